@@ -6,23 +6,38 @@
 -- \c cuenta_db;
 
 -- Eliminar tablas si existen (para recreación)
+DROP TABLE IF EXISTS outbox_cliente_cuenta CASCADE;
+DROP TABLE IF EXISTS ledger_volcado CASCADE;
+DROP TABLE IF EXISTS ledger_apartado CASCADE;
+DROP TABLE IF EXISTS saldo_diario CASCADE;
 DROP TABLE IF EXISTS movimiento CASCADE;
 DROP TABLE IF EXISTS cuenta CASCADE;
+DROP SEQUENCE IF EXISTS movimiento_seq;
+DROP SEQUENCE IF EXISTS cuenta_seq;
+DROP SEQUENCE IF EXISTS outbox_cliente_cuenta_seq;
+
+-- Secuencias con incremento 50: Hibernate reserva bloques de identificadores
+-- (allocationSize = 50) y puede agrupar los INSERT en lotes JDBC
+CREATE SEQUENCE cuenta_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE movimiento_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE outbox_cliente_cuenta_seq START WITH 1 INCREMENT BY 50;
 
 -- Crear tabla cuenta
 CREATE TABLE cuenta (
-    numero_cuenta BIGSERIAL PRIMARY KEY,
+    numero_cuenta BIGINT PRIMARY KEY DEFAULT nextval('cuenta_seq'),
     tipo_cuenta VARCHAR(20) NOT NULL,
     saldo_inicial NUMERIC(15, 2) NOT NULL,
     estado VARCHAR(10) NOT NULL,
-    cliente_id BIGINT NOT NULL,
+    cliente_id VARCHAR(50) NOT NULL,
     CONSTRAINT chk_saldo_positivo CHECK (saldo_inicial >= 0),
     CONSTRAINT chk_estado_valido CHECK (estado IN ('Activa', 'Inactiva', 'Cancelada'))
 );
 
--- Crear tabla movimiento
+-- Crear tabla movimiento, particionada por mes de fecha_movimiento. La clave primaria
+-- incluye la clave de partición (requisito de PostgreSQL); numero_movimiento sigue siendo
+-- único porque sale de la secuencia
 CREATE TABLE movimiento (
-    numero_movimiento BIGSERIAL PRIMARY KEY,
+    numero_movimiento BIGINT NOT NULL DEFAULT nextval('movimiento_seq'),
     fecha_movimiento TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     tipo_movimiento VARCHAR(20) NOT NULL,
     valor NUMERIC(15, 2) NOT NULL,
@@ -33,17 +48,122 @@ CREATE TABLE movimiento (
         REFERENCES cuenta(numero_cuenta) 
         ON DELETE CASCADE 
         ON UPDATE CASCADE,
-    CONSTRAINT chk_saldo_movimiento_positivo CHECK (saldo >= 0)
+    CONSTRAINT chk_saldo_movimiento_positivo CHECK (saldo >= 0),
+    PRIMARY KEY (numero_movimiento, fecha_movimiento)
+) PARTITION BY RANGE (fecha_movimiento);
+
+-- Particiones mensuales: ParticionMovimientoJob crea las de los próximos meses al arrancar y
+-- cada noche. La partición por defecto recoge lo que no tenga partición (por ejemplo,
+-- movimientos con fechas muy antiguas); debe quedar vacía para poder crear su mes
+CREATE TABLE movimiento_default PARTITION OF movimiento DEFAULT;
+
+-- Crear tabla saldo_diario (resumen por cuenta y día, mantenido por la aplicación)
+CREATE TABLE saldo_diario (
+    numero_cuenta BIGINT NOT NULL,
+    fecha DATE NOT NULL,
+    saldo_apertura NUMERIC(15, 2) NOT NULL,
+    saldo_cierre NUMERIC(15, 2) NOT NULL,
+    total_debitos NUMERIC(17, 2) NOT NULL,
+    total_creditos NUMERIC(17, 2) NOT NULL,
+    total_movimientos INTEGER NOT NULL,
+    PRIMARY KEY (numero_cuenta, fecha),
+    CONSTRAINT fk_saldo_diario_cuenta
+        FOREIGN KEY (numero_cuenta)
+        REFERENCES cuenta(numero_cuenta)
+        ON DELETE CASCADE
+        ON UPDATE CASCADE
+);
+
+-- Crear tabla outbox_cliente_cuenta (altas de cuenta pendientes de copiar a cliente_cuentas)
+-- Sin clave foránea: el evento debe sobrevivir aunque la cuenta se borre antes de publicarse
+CREATE TABLE outbox_cliente_cuenta (
+    id BIGINT PRIMARY KEY DEFAULT nextval('outbox_cliente_cuenta_seq'),
+    cliente_id VARCHAR(50) NOT NULL,
+    numero_cuenta BIGINT NOT NULL,
+    fecha_creacion TIMESTAMP NOT NULL
+);
+
+-- Crear tabla ledger_volcado (modo ledger: posición del diario local de cada instancia ya
+-- volcada a movimiento; se actualiza en la misma transacción que el volcado)
+CREATE TABLE ledger_volcado (
+    nodo VARCHAR(100) PRIMARY KEY,
+    posicion BIGINT NOT NULL
+);
+
+-- Crear tabla ledger_apartado (modo ledger: movimientos ya confirmados que la base de datos
+-- rechaza al volcarlos; se apartan para no bloquear el volcado y requieren conciliación manual)
+CREATE TABLE ledger_apartado (
+    nodo VARCHAR(100) NOT NULL,
+    lsn BIGINT NOT NULL,
+    numero_movimiento BIGINT NOT NULL,
+    numero_cuenta BIGINT NOT NULL,
+    cliente_id TEXT,
+    fecha TIMESTAMP NOT NULL,
+    tipo_movimiento TEXT,
+    valor_centavos BIGINT NOT NULL,
+    saldo_centavos BIGINT NOT NULL,
+    error TEXT,
+    fecha_apartado TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (nodo, lsn)
 );
 
 -- Crear índices para mejorar el rendimiento
 CREATE INDEX idx_cuenta_cliente_id ON cuenta(cliente_id);
-CREATE INDEX idx_movimiento_numero_cuenta ON movimiento(numero_cuenta);
 CREATE INDEX idx_movimiento_fecha ON movimiento(fecha_movimiento);
+-- Posición de cada movimiento dentro de su cuenta (recálculo incremental de saldos al editar)
+-- y rangos por cuenta y fecha de los reportes; se crea en cada partición
+CREATE INDEX idx_movimiento_cuenta_fecha ON movimiento(numero_cuenta, fecha_movimiento, numero_movimiento);
+-- Antigüedad del evento pendiente más antiguo (métrica outbox.lag)
+CREATE INDEX idx_outbox_cliente_cuenta_fecha ON outbox_cliente_cuenta(fecha_creacion);
+
+-- Migración de una base con cliente_id numérico: la aplicación lo trata como texto (ejecutar
+-- una sola vez)
+/*
+ALTER TABLE cuenta ALTER COLUMN cliente_id TYPE VARCHAR(50);
+*/
+
+-- Migración de una base existente creada con BIGSERIAL (ejecutar una sola vez)
+/*
+CREATE SEQUENCE IF NOT EXISTS cuenta_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS movimiento_seq INCREMENT BY 50;
+SELECT setval('cuenta_seq', (SELECT COALESCE(MAX(numero_cuenta), 0) + 50 FROM cuenta));
+SELECT setval('movimiento_seq', (SELECT COALESCE(MAX(numero_movimiento), 0) + 50 FROM movimiento));
+ALTER TABLE cuenta ALTER COLUMN numero_cuenta SET DEFAULT nextval('cuenta_seq');
+ALTER TABLE movimiento ALTER COLUMN numero_movimiento SET DEFAULT nextval('movimiento_seq');
+*/
+
+-- Migración de una tabla movimiento sin particionar (ejecutar una sola vez, con la aplicación
+-- parada). La tabla actual pasa a ser la partición de todo el histórico anterior al mes en
+-- curso; ParticionMovimientoJob crea el mes en curso y los siguientes al arrancar
+/*
+BEGIN;
+ALTER TABLE movimiento RENAME TO movimiento_historico;
+ALTER INDEX idx_movimiento_cuenta_fecha RENAME TO idx_movimiento_historico_cuenta_fecha;
+ALTER INDEX idx_movimiento_fecha RENAME TO idx_movimiento_historico_fecha;
+-- Cubierto por el prefijo de idx_movimiento_cuenta_fecha
+DROP INDEX IF EXISTS idx_movimiento_numero_cuenta;
+ALTER TABLE movimiento_historico DROP CONSTRAINT movimiento_pkey;
+ALTER TABLE movimiento_historico ADD PRIMARY KEY (numero_movimiento, fecha_movimiento);
+CREATE TABLE movimiento (LIKE movimiento_historico INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+    PARTITION BY RANGE (fecha_movimiento);
+ALTER TABLE movimiento ADD PRIMARY KEY (numero_movimiento, fecha_movimiento);
+ALTER TABLE movimiento ADD CONSTRAINT fk_movimiento_cuenta FOREIGN KEY (numero_cuenta)
+    REFERENCES cuenta(numero_cuenta) ON DELETE CASCADE ON UPDATE CASCADE;
+ALTER TABLE movimiento ATTACH PARTITION movimiento_historico
+    FOR VALUES FROM (MINVALUE) TO (date_trunc('month', CURRENT_DATE));
+CREATE TABLE movimiento_default PARTITION OF movimiento DEFAULT;
+CREATE INDEX idx_movimiento_cuenta_fecha ON movimiento(numero_cuenta, fecha_movimiento, numero_movimiento);
+CREATE INDEX idx_movimiento_fecha ON movimiento(fecha_movimiento);
+COMMIT;
+*/
 
 -- Comentarios en las tablas
 COMMENT ON TABLE cuenta IS 'Tabla que almacena la información de las cuentas bancarias';
 COMMENT ON TABLE movimiento IS 'Tabla que almacena los movimientos/transacciones de las cuentas';
+COMMENT ON TABLE saldo_diario IS 'Resumen diario por cuenta: saldo de apertura/cierre y totales de movimientos';
+COMMENT ON TABLE ledger_volcado IS 'Posición del diario del ledger volcada a la base de datos, por instancia';
+COMMENT ON TABLE ledger_apartado IS 'Movimientos confirmados por el ledger que la base de datos rechazó al volcarlos';
+COMMENT ON TABLE outbox_cliente_cuenta IS 'Altas de cuenta pendientes de publicar en cliente_cuentas (outbox transaccional)';
 
 -- Comentarios en las columnas
 COMMENT ON COLUMN cuenta.numero_cuenta IS 'Identificador único de la cuenta';
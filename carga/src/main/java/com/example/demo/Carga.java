@@ -0,0 +1,49 @@
+package com.example.demo;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Pruebas de carga locales contra una instancia del servicio y su base de datos:
+ *
+ * <pre>
+ * sembrar   --clientes=1000 --cuentas-por-cliente=3 --movimientos-por-cuenta=100 --cuentas-calientes=0.01
+ * ejecutar  --url=http://localhost:8081 --tasa=200 --duracion=60s --etiqueta=mi-rama
+ * comparar  --base=build/resultados/main --nuevo=build/resultados/mi-rama
+ * </pre>
+ *
+ * Las opciones de cada comando y sus valores por defecto están en {@link SembradorCarga} y
+ * {@link GeneradorCarga}; --jdbc, --usuario y --clave (o SPRING_DATASOURCE_*) indican la base
+ * de datos.
+ */
+public final class Carga {
+
+    private Carga() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Uso: carga sembrar|ejecutar|comparar [--opcion=valor ...]");
+            System.exit(2);
+        }
+        Parametros parametros = Parametros.de(args, 1);
+        switch (args[0]) {
+            case "sembrar" -> new SembradorCarga(parametros).sembrar();
+            case "ejecutar" -> {
+                InformeCarga informe = new GeneradorCarga(parametros).ejecutar();
+                String etiqueta = parametros.texto("etiqueta", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+                Path directorio = Path.of(parametros.texto("salida", "build/resultados")).resolve(etiqueta);
+                informe.imprimir(System.out);
+                informe.guardar(directorio, parametros.usados());
+                System.out.println("Resultados en " + directorio.toAbsolutePath());
+            }
+            case "comparar" -> InformeCarga.comparar(Path.of(parametros.texto("base", null)),
+                    Path.of(parametros.texto("nuevo", null)), System.out);
+            default -> {
+                System.err.println("Comando desconocido: " + args[0]);
+                System.exit(2);
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.demo;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generador de carga en lazo abierto: las peticiones salen a la tasa indicada (tasa por segundo)
+ * sin esperar a las respuestas anteriores, como llegaría el tráfico real. Si el servicio se
+ * satura las peticiones se acumulan en vuelo y su latencia, medida desde el instante en que
+ * debían salir, lo refleja (sin omisión coordinada).
+ *
+ * La mezcla de operaciones se reparte según los pesos mezcla-* y las cuentas se eligen entre las
+ * sembradas por SembradorCarga: con probabilidad trafico-caliente entre las cuentas calientes.
+ * PUT /movimientos/{id} edita depósitos creados durante la propia ejecución. Las peticiones del
+ * periodo de calentamiento no cuentan en el informe.
+ */
+final class GeneradorCarga {
+
+    private static final Pattern NUMERO_MOVIMIENTO = Pattern.compile("\"numeroMovimiento\"\\s*:\\s*(\\d+)");
+    private static final int MOVIMIENTOS_RECIENTES = 10_000;
+
+    enum Operacion {
+        CREAR_MOVIMIENTO("crear_movimiento"),
+        EDITAR_MOVIMIENTO("editar_movimiento"),
+        REPORTE("reporte"),
+        IDS_CLIENTE("ids_cliente");
+
+        private final String clave;
+
+        Operacion(String clave) {
+            this.clave = clave;
+        }
+
+        String clave() {
+            return clave;
+        }
+    }
+
+    private record CuentaCarga(long numeroCuenta, String clienteId) {
+    }
+
+    private final Parametros parametros;
+    private final String url;
+    private final double tasa;
+    private final Duration duracion;
+    private final Duration calentamiento;
+    private final Duration timeout;
+    private final int maximoEnVuelo;
+    private final int[] pesos;
+    private final double traficoCaliente;
+    private final double fraccionCalientes;
+    private final int diasReporte;
+    private final long semilla;
+
+    private final AtomicLongArray recientes = new AtomicLongArray(MOVIMIENTOS_RECIENTES);
+    private final AtomicLong creados = new AtomicLong();
+
+    GeneradorCarga(Parametros parametros) {
+        this.parametros = parametros;
+        this.url = parametros.texto("url", "http://localhost:8081");
+        this.tasa = parametros.decimal("tasa", 200);
+        this.duracion = parametros.duracion("duracion", "60s");
+        this.calentamiento = parametros.duracion("calentamiento", "15s");
+        this.timeout = parametros.duracion("timeout", "30s");
+        this.maximoEnVuelo = parametros.entero("maximo-en-vuelo", 10_000);
+        this.pesos = new int[] {
+                parametros.entero("mezcla-crear", 50),
+                parametros.entero("mezcla-editar", 10),
+                parametros.entero("mezcla-reporte", 10),
+                parametros.entero("mezcla-ids", 30)};
+        this.traficoCaliente = parametros.decimal("trafico-caliente", 0.5);
+        this.fraccionCalientes = parametros.decimal("cuentas-calientes", 0.01);
+        this.diasReporte = parametros.entero("dias-reporte", 30);
+        this.semilla = parametros.largo("semilla", 42);
+    }
+
+    InformeCarga ejecutar() throws SQLException, InterruptedException {
+        List<CuentaCarga> cuentas = cargarCuentas();
+        List<CuentaCarga> calientes = new ArrayList<>();
+        for (int i = 0; i < cuentas.size(); i++) {
+            if (SembradorCarga.caliente(i, fraccionCalientes)) {
+                calientes.add(cuentas.get(i));
+            }
+        }
+        System.out.printf(Locale.ROOT, "%d cuentas (%d calientes); %.0f peticiones/s durante %d s tras %d s de calentamiento%n",
+                cuentas.size(), calientes.size(), tasa, duracion.toSeconds(), calentamiento.toSeconds());
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        InformeCarga informe = new InformeCarga();
+        SplittableRandom aleatorio = new SplittableRandom(semilla);
+        Semaphore enVuelo = new Semaphore(maximoEnVuelo);
+        String rango = LocalDate.now().minusDays(diasReporte) + "," + LocalDate.now();
+        int sumaPesos = pesos[0] + pesos[1] + pesos[2] + pesos[3];
+
+        long intervalo = (long) (TimeUnit.SECONDS.toNanos(1) / tasa);
+        long inicio = System.nanoTime();
+        long medirDesde = inicio + calentamiento.toNanos();
+        long fin = medirDesde + duracion.toNanos();
+        for (long i = 0; ; i++) {
+            long programada = inicio + i * intervalo;
+            if (programada >= fin) {
+                break;
+            }
+            esperarHasta(programada);
+
+            Operacion operacion = elegir(aleatorio.nextInt(sumaPesos));
+            CuentaCarga cuenta = !calientes.isEmpty() && aleatorio.nextDouble() < traficoCaliente
+                    ? calientes.get(aleatorio.nextInt(calientes.size()))
+                    : cuentas.get(aleatorio.nextInt(cuentas.size()));
+            long editado = operacion == Operacion.EDITAR_MOVIMIENTO ? depositoReciente(aleatorio) : 0;
+            if (operacion == Operacion.EDITAR_MOVIMIENTO && editado == 0) {
+                // Todavía no hay depósitos que editar
+                operacion = Operacion.CREAR_MOVIMIENTO;
+            }
+            // Uno de cada cinco movimientos es un retiro pequeño; puede rechazarse por saldo (400)
+            boolean retiro = operacion == Operacion.CREAR_MOVIMIENTO && aleatorio.nextInt(5) == 0;
+            HttpRequest peticion = peticion(operacion, cuenta, editado, retiro, rango, aleatorio);
+            boolean medida = programada >= medirDesde;
+            if (!enVuelo.tryAcquire()) {
+                if (medida) {
+                    informe.descartar(operacion);
+                }
+                continue;
+            }
+
+            Operacion enviada = operacion;
+            boolean deposito = enviada == Operacion.CREAR_MOVIMIENTO && !retiro;
+            HttpResponse.BodyHandler<String> cuerpo = deposito
+                    ? HttpResponse.BodyHandlers.ofString()
+                    : HttpResponse.BodyHandlers.replacing(null);
+            http.sendAsync(peticion, cuerpo).whenComplete((respuesta, error) -> {
+                long latencia = System.nanoTime() - programada;
+                enVuelo.release();
+                if (medida) {
+                    informe.registrar(enviada, latencia, respuesta == null ? -1 : respuesta.statusCode());
+                }
+                if (deposito && respuesta != null && respuesta.statusCode() == 201) {
+                    recordar(respuesta.body());
+                }
+            });
+        }
+
+        // Esperar a las peticiones en vuelo (con el timeout de cada una como máximo)
+        long medido = System.nanoTime() - medirDesde;
+        if (!enVuelo.tryAcquire(maximoEnVuelo, timeout.toSeconds() + 5, TimeUnit.SECONDS)) {
+            System.out.println("Algunas peticiones no terminaron a tiempo");
+        }
+        informe.finalizar(medido / 1e9);
+        return informe;
+    }
+
+    private List<CuentaCarga> cargarCuentas() throws SQLException {
+        List<CuentaCarga> cuentas = new ArrayList<>();
+        try (Connection conexion = DriverManager.getConnection(parametros.jdbc(), parametros.usuario(), parametros.clave());
+             PreparedStatement sentencia = conexion.prepareStatement(
+                     "SELECT numero_cuenta, cliente_id FROM cuenta WHERE " + SembradorCarga.CLIENTES_SEMBRADOS + " ORDER BY numero_cuenta")) {
+            try (ResultSet filas = sentencia.executeQuery()) {
+                while (filas.next()) {
+                    cuentas.add(new CuentaCarga(filas.getLong(1), filas.getString(2)));
+                }
+            }
+        }
+        if (cuentas.isEmpty()) {
+            throw new IllegalStateException("No hay cuentas sembradas: ejecute primero 'sembrar'");
+        }
+        return cuentas;
+    }
+
+    private Operacion elegir(int valor) {
+        Operacion[] operaciones = Operacion.values();
+        for (int i = 0; i < pesos.length; i++) {
+            if (valor < pesos[i]) {
+                return operaciones[i];
+            }
+            valor -= pesos[i];
+        }
+        return Operacion.CREAR_MOVIMIENTO;
+    }
+
+    private HttpRequest peticion(Operacion operacion, CuentaCarga cuenta, long editado, boolean retiro, String rango,
+                                 SplittableRandom aleatorio) {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder().timeout(timeout);
+        switch (operacion) {
+            case CREAR_MOVIMIENTO -> {
+                long valor = retiro ? -aleatorio.nextLong(100, 2_000) : aleatorio.nextLong(100, 10_000);
+                peticion.uri(URI.create(url + "/movimientos"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"cuenta\":{\"numeroCuenta\":" + cuenta.numeroCuenta()
+                                + "},\"tipoMovimiento\":\"" + (retiro ? "Retiro" : "Depósito") + "\",\"valor\":"
+                                + SembradorCarga.importe(valor) + "}"));
+            }
+            case EDITAR_MOVIMIENTO -> peticion.uri(URI.create(url + "/movimientos/" + editado))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString("{\"valor\":" + SembradorCarga.importe(aleatorio.nextLong(100, 10_000)) + "}"));
+            case REPORTE -> peticion.uri(URI.create(url + "/reportes?clienteId=" + cuenta.clienteId() + "&fecha=" + rango
+                    + "&detalle=" + aleatorio.nextBoolean())).GET();
+            case IDS_CLIENTE -> peticion.uri(URI.create(url + "/cuentas/cliente/" + cuenta.clienteId() + "/ids")).GET();
+        }
+        return peticion.build();
+    }
+
+    /**
+     * Uno de los últimos depósitos creados, o 0 si aún no hay ninguno.
+     */
+    private long depositoReciente(SplittableRandom aleatorio) {
+        long disponibles = Math.min(creados.get(), MOVIMIENTOS_RECIENTES);
+        return disponibles == 0 ? 0 : recientes.get((int) aleatorio.nextLong(disponibles));
+    }
+
+    private void recordar(String cuerpo) {
+        Matcher numero = NUMERO_MOVIMIENTO.matcher(cuerpo);
+        if (numero.find()) {
+            // La posición se reserva antes de escribirla: una lectura entretanto ve 0 y crea en su lugar
+            long posicion = creados.getAndIncrement();
+            recientes.set((int) (posicion % MOVIMIENTOS_RECIENTES), Long.parseLong(numero.group(1)));
+        }
+    }
+
+    private static void esperarHasta(long instante) {
+        long espera;
+        while ((espera = instante - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(espera);
+        }
+    }
+}
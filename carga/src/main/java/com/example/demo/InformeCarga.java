@@ -0,0 +1,191 @@
+package com.example.demo;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resultados de una ejecución: por operación, peticiones por resultado y latencia con
+ * HdrHistogram (desde el instante en que la petición debía salir, así que incluye la espera si
+ * el generador o el servicio se retrasan).
+ *
+ * Se guardan en un directorio por ejecución: resumen.csv (una fila por operación y el total),
+ * la distribución completa de cada operación en .hgrm (HdrHistogram Plotter) y las opciones
+ * usadas en configuracion.properties, para comparar ejecuciones con {@link #comparar}.
+ */
+final class InformeCarga {
+
+    static final String RESUMEN = "resumen.csv";
+    static final String CONFIGURACION = "configuracion.properties";
+
+    private static final String TOTAL = "total";
+    private static final long LATENCIA_MAXIMA = TimeUnit.MINUTES.toNanos(10);
+    private static final double NANOS_POR_MILISEGUNDO = 1_000_000.0;
+    private static final String[] COLUMNAS = {"operacion", "peticiones", "por_segundo", "ok", "rechazadas", "sobrecarga",
+            "errores", "descartadas", "p50_ms", "p90_ms", "p99_ms", "p999_ms", "max_ms"};
+
+    private static final class Resultados {
+        final Histogram latencias = new ConcurrentHistogram(LATENCIA_MAXIMA, 3);
+        final LongAdder ok = new LongAdder();
+        final LongAdder rechazadas = new LongAdder();
+        final LongAdder sobrecarga = new LongAdder();
+        final LongAdder errores = new LongAdder();
+        final LongAdder descartadas = new LongAdder();
+    }
+
+    private final Map<GeneradorCarga.Operacion, Resultados> porOperacion = new EnumMap<>(GeneradorCarga.Operacion.class);
+    private double segundos;
+
+    InformeCarga() {
+        for (GeneradorCarga.Operacion operacion : GeneradorCarga.Operacion.values()) {
+            porOperacion.put(operacion, new Resultados());
+        }
+    }
+
+    /**
+     * @param estado código HTTP, o -1 si la petición falló sin respuesta (conexión, timeout)
+     */
+    void registrar(GeneradorCarga.Operacion operacion, long latencia, int estado) {
+        Resultados resultados = porOperacion.get(operacion);
+        resultados.latencias.recordValue(Math.min(latencia, LATENCIA_MAXIMA));
+        if (estado >= 200 && estado < 300) {
+            resultados.ok.increment();
+        } else if (estado == 429 || estado == 503) {
+            resultados.sobrecarga.increment();
+        } else if (estado >= 400 && estado < 500) {
+            resultados.rechazadas.increment();
+        } else {
+            resultados.errores.increment();
+        }
+    }
+
+    /** Petición que no llegó a enviarse por superar el máximo de peticiones en vuelo. */
+    void descartar(GeneradorCarga.Operacion operacion) {
+        porOperacion.get(operacion).descartadas.increment();
+    }
+
+    void finalizar(double segundosMedidos) {
+        this.segundos = segundosMedidos;
+    }
+
+    void imprimir(PrintStream salida) {
+        salida.printf(Locale.ROOT, "%-22s %10s %9s %8s %8s %8s %8s %8s %9s %9s %9s %9s %9s%n", (Object[]) COLUMNAS);
+        for (String[] fila : filas()) {
+            salida.printf(Locale.ROOT, "%-22s %10s %9s %8s %8s %8s %8s %8s %9s %9s %9s %9s %9s%n", (Object[]) fila);
+        }
+    }
+
+    void guardar(Path directorio, Map<String, String> configuracion) throws IOException {
+        Files.createDirectories(directorio);
+        try (Writer resumen = Files.newBufferedWriter(directorio.resolve(RESUMEN))) {
+            resumen.write(String.join(",", COLUMNAS) + "\n");
+            for (String[] fila : filas()) {
+                resumen.write(String.join(",", fila) + "\n");
+            }
+        }
+        for (Map.Entry<GeneradorCarga.Operacion, Resultados> entrada : porOperacion.entrySet()) {
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(directorio.resolve(entrada.getKey().clave() + ".hgrm")))) {
+                entrada.getValue().latencias.outputPercentileDistribution(hgrm, NANOS_POR_MILISEGUNDO);
+            }
+        }
+        try (Writer propiedades = Files.newBufferedWriter(directorio.resolve(CONFIGURACION))) {
+            for (Map.Entry<String, String> opcion : configuracion.entrySet()) {
+                propiedades.write(opcion.getKey() + "=" + opcion.getValue() + "\n");
+            }
+        }
+    }
+
+    private List<String[]> filas() {
+        List<String[]> filas = new ArrayList<>();
+        Resultados total = new Resultados();
+        for (Map.Entry<GeneradorCarga.Operacion, Resultados> entrada : porOperacion.entrySet()) {
+            Resultados resultados = entrada.getValue();
+            filas.add(fila(entrada.getKey().clave(), resultados));
+            total.latencias.add(resultados.latencias);
+            total.ok.add(resultados.ok.sum());
+            total.rechazadas.add(resultados.rechazadas.sum());
+            total.sobrecarga.add(resultados.sobrecarga.sum());
+            total.errores.add(resultados.errores.sum());
+            total.descartadas.add(resultados.descartadas.sum());
+        }
+        filas.add(fila(TOTAL, total));
+        return filas;
+    }
+
+    private String[] fila(String operacion, Resultados resultados) {
+        Histogram latencias = resultados.latencias;
+        long peticiones = latencias.getTotalCount();
+        return new String[] {
+                operacion,
+                Long.toString(peticiones),
+                String.format(Locale.ROOT, "%.1f", segundos > 0 ? peticiones / segundos : 0),
+                Long.toString(resultados.ok.sum()),
+                Long.toString(resultados.rechazadas.sum()),
+                Long.toString(resultados.sobrecarga.sum()),
+                Long.toString(resultados.errores.sum()),
+                Long.toString(resultados.descartadas.sum()),
+                milisegundos(latencias, 50),
+                milisegundos(latencias, 90),
+                milisegundos(latencias, 99),
+                milisegundos(latencias, 99.9),
+                String.format(Locale.ROOT, "%.2f", latencias.getMaxValue() / NANOS_POR_MILISEGUNDO)};
+    }
+
+    private static String milisegundos(Histogram latencias, double percentil) {
+        return String.format(Locale.ROOT, "%.2f", latencias.getValueAtPercentile(percentil) / NANOS_POR_MILISEGUNDO);
+    }
+
+    /**
+     * Compara dos ejecuciones guardadas: para cada operación y métrica, el valor de base, el
+     * nuevo y la variación. Avisa si las opciones de las dos ejecuciones no coinciden.
+     */
+    static void comparar(Path base, Path nuevo, PrintStream salida) throws IOException {
+        List<String> configuracionBase = Files.readAllLines(base.resolve(CONFIGURACION));
+        List<String> configuracionNueva = Files.readAllLines(nuevo.resolve(CONFIGURACION));
+        configuracionBase.removeIf(l -> l.startsWith("etiqueta="));
+        configuracionNueva.removeIf(l -> l.startsWith("etiqueta="));
+        if (!configuracionBase.equals(configuracionNueva)) {
+            salida.println("AVISO: las ejecuciones no usan las mismas opciones (" + CONFIGURACION + ")");
+        }
+
+        Map<String, String[]> filasBase = leerResumen(base);
+        Map<String, String[]> filasNuevas = leerResumen(nuevo);
+        salida.printf(Locale.ROOT, "%-22s %-12s %12s %12s %9s%n", "operacion", "metrica", "base", "nuevo", "cambio");
+        for (Map.Entry<String, String[]> entrada : filasBase.entrySet()) {
+            String[] nueva = filasNuevas.get(entrada.getKey());
+            if (nueva == null) {
+                continue;
+            }
+            for (int columna = 2; columna < COLUMNAS.length; columna++) {
+                double antes = Double.parseDouble(entrada.getValue()[columna]);
+                double despues = Double.parseDouble(nueva[columna]);
+                String cambio = antes == 0 ? (despues == 0 ? "=" : "nuevo") : String.format(Locale.ROOT, "%+.1f%%", (despues - antes) * 100 / antes);
+                salida.printf(Locale.ROOT, "%-22s %-12s %12s %12s %9s%n", entrada.getKey(), COLUMNAS[columna],
+                        entrada.getValue()[columna], nueva[columna], cambio);
+            }
+        }
+    }
+
+    private static Map<String, String[]> leerResumen(Path directorio) throws IOException {
+        Map<String, String[]> filas = new LinkedHashMap<>();
+        List<String> lineas = Files.readAllLines(directorio.resolve(RESUMEN));
+        for (String linea : lineas.subList(1, lineas.size())) {
+            String[] fila = linea.split(",");
+            filas.put(fila[0], fila);
+        }
+        return filas;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opciones de la línea de comandos (--clave=valor). Guarda el valor usado de cada opción,
+ * incluidos los valores por defecto, para dejar constancia de la configuración de cada ejecución.
+ */
+final class Parametros {
+
+    private final Map<String, String> valores = new LinkedHashMap<>();
+    private final Map<String, String> usados = new LinkedHashMap<>();
+
+    static Parametros de(String[] args, int desde) {
+        Parametros parametros = new Parametros();
+        for (int i = desde; i < args.length; i++) {
+            String arg = args[i];
+            int igual = arg.indexOf('=');
+            if (!arg.startsWith("--") || igual < 0) {
+                throw new IllegalArgumentException("Opción no válida: " + arg + " (se espera --clave=valor)");
+            }
+            parametros.valores.put(arg.substring(2, igual), arg.substring(igual + 1));
+        }
+        return parametros;
+    }
+
+    String texto(String clave, String defecto) {
+        String valor = valores.getOrDefault(clave, defecto);
+        if (valor == null) {
+            throw new IllegalArgumentException("Falta la opción --" + clave);
+        }
+        usados.put(clave, valor);
+        return valor;
+    }
+
+    int entero(String clave, int defecto) {
+        return Integer.parseInt(texto(clave, Integer.toString(defecto)));
+    }
+
+    long largo(String clave, long defecto) {
+        return Long.parseLong(texto(clave, Long.toString(defecto)));
+    }
+
+    double decimal(String clave, double defecto) {
+        return Double.parseDouble(texto(clave, Double.toString(defecto)));
+    }
+
+    /**
+     * Duración con unidad: 500ms, 30s, 5m.
+     */
+    Duration duracion(String clave, String defecto) {
+        String valor = texto(clave, defecto);
+        if (valor.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(valor.substring(0, valor.length() - 2)));
+        }
+        if (valor.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(valor.substring(0, valor.length() - 1)));
+        }
+        if (valor.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(valor.substring(0, valor.length() - 1)));
+        }
+        throw new IllegalArgumentException("Duración no válida en --" + clave + ": " + valor + " (use ms, s o m)");
+    }
+
+    /** Opciones de la base de datos, con los mismos valores por defecto que la aplicación. */
+    String jdbc() {
+        return texto("jdbc", System.getenv().getOrDefault("SPRING_DATASOURCE_URL", "jdbc:postgresql://localhost:5432/mibasedatos"));
+    }
+
+    String usuario() {
+        return texto("usuario", System.getenv().getOrDefault("SPRING_DATASOURCE_USERNAME", "postgres"));
+    }
+
+    String clave() {
+        // No se guarda entre las opciones usadas
+        return valores.getOrDefault("clave", System.getenv().getOrDefault("SPRING_DATASOURCE_PASSWORD", "1234"));
+    }
+
+    Map<String, String> usados() {
+        return usados;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.demo;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Datos sintéticos para las pruebas de carga, escritos directamente en PostgreSQL con COPY.
+ *
+ * Crea clientes con identificadores carga-000001, carga-000002... (los de una siembra anterior,
+ * y solo ellos, se borran antes), cuentas-por-cliente cuentas por cliente y movimientos-por-cuenta movimientos por
+ * cuenta repartidos en los últimos dias días, con sus resúmenes en saldo_diario. Una de cada
+ * 1/cuentas-calientes cuentas es caliente: tiene factor-caliente veces más movimientos y
+ * GeneradorCarga le dirige la mayor parte del tráfico. Con la misma semilla los datos son
+ * idénticos.
+ *
+ * Las cachés de la aplicación no ven estos cambios: conviene sembrar con la aplicación parada.
+ */
+final class SembradorCarga {
+
+    private static final int CENTAVOS_SALDO_MINIMO = 100_000;
+
+    /** Marca de los clientes sembrados: nunca se borra ni se lee por rangos de cliente_id. */
+    static final String PREFIJO_CLIENTE = "carga-";
+
+    /** Clientes sembrados (LIKE, con el guion sin significado especial). */
+    static final String CLIENTES_SEMBRADOS = "cliente_id LIKE '" + PREFIJO_CLIENTE + "%'";
+
+    private final Parametros parametros;
+    private final int clientes;
+    private final int cuentasPorCliente;
+    private final int movimientosPorCuenta;
+    private final double fraccionCalientes;
+    private final int factorCaliente;
+    private final int dias;
+    private final long semilla;
+
+    SembradorCarga(Parametros parametros) {
+        this.parametros = parametros;
+        this.clientes = parametros.entero("clientes", 1000);
+        this.cuentasPorCliente = parametros.entero("cuentas-por-cliente", 3);
+        this.movimientosPorCuenta = parametros.entero("movimientos-por-cuenta", 100);
+        this.fraccionCalientes = parametros.decimal("cuentas-calientes", 0.01);
+        this.factorCaliente = parametros.entero("factor-caliente", 20);
+        this.dias = parametros.entero("dias", 90);
+        this.semilla = parametros.largo("semilla", 42);
+    }
+
+    /**
+     * Las cuentas calientes se reparten entre todos los clientes: la de cada posición múltiplo
+     * de 1/fraccion en el orden por numero_cuenta.
+     */
+    static boolean caliente(int indice, double fraccion) {
+        if (fraccion <= 0) {
+            return false;
+        }
+        return indice % Math.max(1, Math.round(1 / fraccion)) == 0;
+    }
+
+    void sembrar() throws SQLException, IOException {
+        long inicio = System.nanoTime();
+        try (Connection conexion = DriverManager.getConnection(parametros.jdbc(), parametros.usuario(), parametros.clave())) {
+            conexion.setAutoCommit(false);
+            int borradas = limpiar(conexion);
+            if (borradas > 0) {
+                System.out.printf("Borradas %d cuentas de una siembra anterior%n", borradas);
+            }
+
+            long[] cuentas = reservar(conexion, "cuenta_seq", clientes * cuentasPorCliente);
+            copiarCuentas(conexion, cuentas);
+            long[] saldos = new long[cuentas.length];
+            long movimientos = copiarMovimientos(conexion, cuentas, saldos);
+            actualizarSaldos(conexion, cuentas, saldos);
+            int resumenes = resumirPorDia(conexion);
+            conexion.commit();
+
+            System.out.printf("Sembrados %d clientes, %d cuentas, %d movimientos y %d resúmenes diarios en %d s%n",
+                    clientes, cuentas.length, movimientos, resumenes,
+                    Duration.ofNanos(System.nanoTime() - inicio).toSeconds());
+        }
+    }
+
+    private int limpiar(Connection conexion) throws SQLException {
+        // movimiento y saldo_diario se borran en cascada
+        try (Statement sentencia = conexion.createStatement()) {
+            return sentencia.executeUpdate("DELETE FROM cuenta WHERE " + CLIENTES_SEMBRADOS);
+        }
+    }
+
+    /**
+     * Valores de la secuencia para las cuentas. Con el optimizador pooled-lo la aplicación usa
+     * [valor, valor + 50) de cada valor que obtiene, así que no coincide con ninguno de estos.
+     */
+    private static long[] reservar(Connection conexion, String secuencia, int cantidad) throws SQLException {
+        long[] valores = new long[cantidad];
+        try (PreparedStatement sentencia = conexion.prepareStatement(
+                "SELECT nextval('" + secuencia + "') FROM generate_series(1, ?)")) {
+            sentencia.setInt(1, cantidad);
+            try (ResultSet filas = sentencia.executeQuery()) {
+                for (int i = 0; filas.next(); i++) {
+                    valores[i] = filas.getLong(1);
+                }
+            }
+        }
+        Arrays.sort(valores);
+        return valores;
+    }
+
+    private void copiarCuentas(Connection conexion, long[] cuentas) throws SQLException, IOException {
+        try (Writer salida = copiar(conexion, "COPY cuenta (numero_cuenta, tipo_cuenta, saldo_inicial, estado, cliente_id) FROM STDIN WITH (FORMAT csv)")) {
+            for (int i = 0; i < cuentas.length; i++) {
+                String tipo = i % 2 == 0 ? "Ahorros" : "Corriente";
+                salida.write(cuentas[i] + "," + tipo + ",0.00,Activa," + cliente(i / cuentasPorCliente) + "\n");
+            }
+        }
+    }
+
+    /**
+     * Movimientos de cada cuenta en orden de fecha; el saldo final de cada cuenta queda en saldos.
+     */
+    private long copiarMovimientos(Connection conexion, long[] cuentas, long[] saldos) throws SQLException, IOException {
+        LocalDateTime desde = LocalDateTime.now().minusDays(dias);
+        long milisegundosRango = Duration.ofDays(dias).toMillis() - 60_000;
+        long total = 0;
+        try (Writer salida = copiar(conexion, "COPY movimiento (fecha_movimiento, tipo_movimiento, valor, saldo, numero_cuenta) FROM STDIN WITH (FORMAT csv)")) {
+            for (int i = 0; i < cuentas.length; i++) {
+                SplittableRandom aleatorio = new SplittableRandom(semilla * 1_000_003 + i);
+                int cantidad = caliente(i, fraccionCalientes) ? movimientosPorCuenta * factorCaliente : movimientosPorCuenta;
+                long paso = Math.max(1, milisegundosRango / Math.max(1, cantidad));
+                long saldo = 0;
+                for (int j = 0; j < cantidad; j++) {
+                    // Retiros solo con saldo suficiente, para que ningún saldo quede negativo
+                    long valor = saldo > CENTAVOS_SALDO_MINIMO && aleatorio.nextInt(10) < 3
+                            ? -aleatorio.nextLong(100, Math.min(saldo / 2, 20_000))
+                            : aleatorio.nextLong(1_000, 50_000);
+                    saldo += valor;
+                    LocalDateTime fecha = desde.plusNanos((j * paso + aleatorio.nextLong(paso)) * 1_000_000);
+                    salida.write(fecha + "," + (valor < 0 ? "Retiro" : "Depósito") + "," + importe(valor) + ","
+                            + importe(saldo) + "," + cuentas[i] + "\n");
+                }
+                saldos[i] = saldo;
+                total += cantidad;
+                if ((i + 1) % 10_000 == 0) {
+                    System.out.printf("%d/%d cuentas, %d movimientos%n", i + 1, cuentas.length, total);
+                }
+            }
+        }
+        return total;
+    }
+
+    private static void actualizarSaldos(Connection conexion, long[] cuentas, long[] saldos) throws SQLException, IOException {
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("CREATE TEMP TABLE carga_saldo (numero_cuenta BIGINT, saldo NUMERIC(15, 2)) ON COMMIT DROP");
+        }
+        try (Writer salida = copiar(conexion, "COPY carga_saldo FROM STDIN WITH (FORMAT csv)")) {
+            for (int i = 0; i < cuentas.length; i++) {
+                salida.write(cuentas[i] + "," + importe(saldos[i]) + "\n");
+            }
+        }
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.executeUpdate("UPDATE cuenta c SET saldo_inicial = s.saldo FROM carga_saldo s WHERE c.numero_cuenta = s.numero_cuenta");
+        }
+    }
+
+    /**
+     * Mismos resúmenes que POST /reportes/saldos-diarios/reconstruir, calculados en la base de
+     * datos para todas las cuentas sembradas a la vez.
+     */
+    private int resumirPorDia(Connection conexion) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement("""
+                INSERT INTO saldo_diario (numero_cuenta, fecha, saldo_apertura, saldo_cierre, total_debitos, total_creditos, total_movimientos)
+                SELECT m.numero_cuenta, m.fecha_movimiento::date,
+                       (array_agg(m.saldo - m.valor ORDER BY m.fecha_movimiento, m.numero_movimiento))[1],
+                       (array_agg(m.saldo ORDER BY m.fecha_movimiento DESC, m.numero_movimiento DESC))[1],
+                       SUM(CASE WHEN m.valor < 0 THEN -m.valor ELSE 0 END),
+                       SUM(CASE WHEN m.valor > 0 THEN m.valor ELSE 0 END),
+                       COUNT(*)
+                FROM movimiento m JOIN cuenta c ON c.numero_cuenta = m.numero_cuenta
+                WHERE c.%s
+                GROUP BY m.numero_cuenta, m.fecha_movimiento::date
+                """.formatted(CLIENTES_SEMBRADOS))) {
+            return sentencia.executeUpdate();
+        }
+    }
+
+    private static String cliente(int indice) {
+        return PREFIJO_CLIENTE + String.format("%06d", indice + 1);
+    }
+
+    private static Writer copiar(Connection conexion, String sql) throws SQLException {
+        PGCopyOutputStream copia = new PGCopyOutputStream(conexion.unwrap(PGConnection.class), sql, 1 << 16);
+        return new BufferedWriter(new OutputStreamWriter(copia, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /** Centavos como NUMERIC(15, 2), sin pasar por BigDecimal. */
+    static String importe(long centavos) {
+        long absoluto = Math.abs(centavos);
+        long resto = absoluto % 100;
+        return (centavos < 0 ? "-" : "") + absoluto / 100 + (resto < 10 ? ".0" : ".") + resto;
+    }
+}
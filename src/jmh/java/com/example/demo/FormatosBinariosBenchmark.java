@@ -0,0 +1,89 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Codificación y decodificación de un reporte de 100k movimientos (100 cuentas x 1000) en JSON,
+ * Smile y CBOR, configurados como los convertidores de FormatosBinariosConfig. El tamaño de
+ * cada formato se imprime al preparar el estado. La decodificación lee BigDecimal como en un
+ * consumidor que conserva los importes exactos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FormatosBinariosBenchmark {
+
+    private static final int CUENTAS = 100;
+    private static final int MOVIMIENTOS_POR_CUENTA = 1000;
+
+    @Param({"json", "smile", "cbor"})
+    private String formato;
+
+    private ObjectMapper objectMapper;
+    private Map<String, Object> reporte;
+    private byte[] codificado;
+
+    @Setup
+    public void preparar() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToEnable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        objectMapper = switch (formato) {
+            case "smile" -> builder.factory(new SmileFactory()).featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+            case "cbor" -> builder.factory(new CBORFactory()).featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+            default -> builder.factory(new JsonFactory()).build();
+        };
+
+        List<ReporteFila> filas = new ArrayList<>(CUENTAS * MOVIMIENTOS_POR_CUENTA);
+        long fecha = System.currentTimeMillis();
+        for (long c = 1; c <= CUENTAS; c++) {
+            BigDecimal saldo = new BigDecimal("100000.00");
+            for (int i = 0; i < MOVIMIENTOS_POR_CUENTA; i++) {
+                BigDecimal valor = BigDecimal.valueOf(i % 3 == 0 ? -4599 : 10025, 2);
+                saldo = saldo.add(valor);
+                filas.add(new ReporteFila(c, "Ahorros", saldo, "Activa", c * 1_000_000 + i,
+                        new Date(fecha + i * 60_000L), valor.signum() < 0 ? "Retiro" : "Depósito", valor, saldo));
+            }
+        }
+        reporte = new HashMap<>();
+        reporte.put("clienteId", "benchmark");
+        reporte.put("fechaGeneracion", new Date(fecha));
+        reporte.put("cuentas", ReporteService.ensamblar(filas));
+
+        codificado = objectMapper.writeValueAsBytes(reporte);
+        System.out.printf("%nReporte de %d movimientos en %s: %,d bytes%n", filas.size(), formato, codificado.length);
+    }
+
+    @Benchmark
+    public byte[] codificar() throws IOException {
+        return objectMapper.writeValueAsBytes(reporte);
+    }
+
+    @Benchmark
+    public JsonNode decodificar() throws IOException {
+        return objectMapper.readTree(codificado);
+    }
+}
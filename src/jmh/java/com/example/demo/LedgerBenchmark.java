@@ -0,0 +1,63 @@
+package com.example.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Movimientos confirmados por segundo en el diario del ledger con 256 peticiones concurrentes:
+ * cada operación espera a su fsync, así que el resultado mide directamente el efecto de la
+ * confirmación en grupo (con grupoMaximo = 1, un fsync por movimiento).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(256)
+public class LedgerBenchmark {
+
+    @Param({"1", "2000"})
+    private int grupoMaximo;
+
+    private Path directorio;
+    private DiarioLedger diario;
+    private final AtomicLong movimientos = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        directorio = Files.createTempDirectory("ledger-benchmark");
+        diario = new DiarioLedger(directorio, 64L * 1024 * 1024, grupoMaximo);
+        diario.recuperar(0, r -> { });
+        diario.iniciar(grupo -> { });
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        diario.close();
+        try (Stream<Path> ficheros = Files.walk(directorio)) {
+            ficheros.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public RegistroLedger anotar() {
+        long numero = movimientos.incrementAndGet();
+        return diario.anotar(new RegistroLedger(0, numero, numero % 1000, "benchmark", System.currentTimeMillis(),
+                "Depósito", 1250, 100_000)).join();
+    }
+}
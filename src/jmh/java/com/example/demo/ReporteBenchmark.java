@@ -0,0 +1,82 @@
+package com.example.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ensamblado del reporte a partir de las filas de la consulta, y acumulación de totales con
+ * BigDecimal frente a centavos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReporteBenchmark {
+
+    @Param({"10", "100"})
+    private int cuentas;
+
+    @Param({"100", "1000"})
+    private int movimientosPorCuenta;
+
+    private List<ReporteFila> filas;
+
+    @Setup
+    public void preparar() {
+        filas = new ArrayList<>(cuentas * movimientosPorCuenta);
+        long fecha = System.currentTimeMillis();
+        for (long c = 1; c <= cuentas; c++) {
+            BigDecimal saldo = BigDecimal.ZERO;
+            for (int i = 0; i < movimientosPorCuenta; i++) {
+                BigDecimal valor = BigDecimal.valueOf(i % 3 == 0 ? -4599 : 10025, 2);
+                saldo = saldo.add(valor);
+                filas.add(new ReporteFila(c, "Ahorros", saldo, "Activa", c * 1_000_000 + i,
+                        new Date(fecha + i), valor.signum() < 0 ? "Retiro" : "Depósito", valor, saldo));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> ensamblar() {
+        return ReporteService.ensamblar(filas);
+    }
+
+    @Benchmark
+    public void totalesBigDecimal(Blackhole bh) {
+        BigDecimal debitos = BigDecimal.ZERO;
+        BigDecimal creditos = BigDecimal.ZERO;
+        for (ReporteFila fila : filas) {
+            int signo = fila.valor().signum();
+            if (signo < 0) {
+                debitos = debitos.subtract(fila.valor());
+            } else if (signo > 0) {
+                creditos = creditos.add(fila.valor());
+            }
+        }
+        bh.consume(debitos);
+        bh.consume(creditos);
+    }
+
+    @Benchmark
+    public void totalesCentavos(Blackhole bh) {
+        TotalesMovimientos totales = new TotalesMovimientos();
+        for (ReporteFila fila : filas) {
+            totales.agregar(fila.valor());
+        }
+        bh.consume(totales.getDebitos());
+        bh.consume(totales.getCreditos());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Edición del valor de un movimiento situado a mitad del historial de la cuenta: recálculo
+ * completo sobre todos los movimientos (como hacía calculateSaldoAfterMovimiento) frente al
+ * cálculo incremental actual, que parte del saldo guardado en el propio movimiento.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SaldoBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int movimientos;
+
+    private List<Movimiento> historial;
+    private Movimiento editado;
+    private BigDecimal saldoCuenta;
+    private BigDecimal valorAnterior;
+
+    @Setup
+    public void preparar() {
+        Cuenta cuenta = new Cuenta(1L, "Ahorros", BigDecimal.ZERO, "Activa", "benchmark");
+        historial = new ArrayList<>(movimientos);
+        BigDecimal saldo = new BigDecimal("1000.00");
+        long fecha = System.currentTimeMillis();
+        for (int i = 0; i < movimientos; i++) {
+            BigDecimal valor = BigDecimal.valueOf(i % 2 == 0 ? 1250 : -730, 2);
+            saldo = saldo.add(valor);
+            historial.add(new Movimiento((long) i, new Date(fecha + i), "Depósito", valor, saldo, cuenta));
+        }
+        saldoCuenta = saldo;
+        Movimiento original = historial.get(movimientos / 2);
+        valorAnterior = original.getValor();
+        editado = new Movimiento(original.getNumeroMovimiento(), original.getFechaMovimiento(), original.getTipoMovimiento(),
+                valorAnterior.add(new BigDecimal("5.00")), original.getSaldo(), cuenta);
+    }
+
+    @Benchmark
+    public BigDecimal recalculoCompleto() {
+        return calculateSaldoAfterMovimiento(historial, editado, saldoCuenta, valorAnterior);
+    }
+
+    @Benchmark
+    public long recalculoCompletoCentavos() {
+        long suma = 0;
+        for (Movimiento m : historial) {
+            suma = Centavos.sumar(suma, Centavos.de(m.getNumeroMovimiento().equals(editado.getNumeroMovimiento()) ? valorAnterior : m.getValor()));
+        }
+        long saldo = Centavos.de(saldoCuenta) - suma;
+        for (Movimiento m : historial) {
+            if (m.getNumeroMovimiento().equals(editado.getNumeroMovimiento())) {
+                return Centavos.sumar(saldo, Centavos.de(editado.getValor()));
+            }
+            saldo = Centavos.sumar(saldo, Centavos.de(m.getValor()));
+        }
+        return saldo;
+    }
+
+    /**
+     * Lo que calcula SaldoService.cambiarValor en la JVM; el desplazamiento de los saldos
+     * posteriores es un único UPDATE en la base de datos.
+     */
+    @Benchmark
+    public BigDecimal incremental() {
+        return editado.getSaldo().add(editado.getValor().subtract(valorAnterior));
+    }
+
+    /** Copia del cálculo anterior de MovimientoController, sin la consulta. */
+    private static BigDecimal calculateSaldoAfterMovimiento(List<Movimiento> allMovimientos, Movimiento movimiento,
+                                                            BigDecimal currentCuentaSaldo, BigDecimal oldMovimientoValor) {
+        BigDecimal sumOfAllMovimientos = BigDecimal.ZERO;
+        for (Movimiento m : allMovimientos) {
+            if (m.getNumeroMovimiento().equals(movimiento.getNumeroMovimiento())) {
+                sumOfAllMovimientos = sumOfAllMovimientos.add(oldMovimientoValor);
+            } else {
+                sumOfAllMovimientos = sumOfAllMovimientos.add(m.getValor());
+            }
+        }
+
+        BigDecimal runningBalance = currentCuentaSaldo.subtract(sumOfAllMovimientos);
+        for (Movimiento m : allMovimientos) {
+            if (m.getNumeroMovimiento().equals(movimiento.getNumeroMovimiento())) {
+                runningBalance = runningBalance.add(movimiento.getValor());
+                break;
+            } else {
+                runningBalance = runningBalance.add(m.getValor());
+            }
+        }
+        return runningBalance;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de listas de movimientos y cuentas con un ObjectMapper configurado como
+ * el de Spring MVC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializacionBenchmark {
+
+    @Param({"100", "10000"})
+    private int tamano;
+
+    private ObjectMapper objectMapper;
+    private List<Movimiento> movimientos;
+    private List<Cuenta> cuentas;
+
+    @Setup
+    public void preparar() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        movimientos = new ArrayList<>(tamano);
+        cuentas = new ArrayList<>(tamano);
+        long fecha = System.currentTimeMillis();
+        for (int i = 0; i < tamano; i++) {
+            Cuenta cuenta = new Cuenta((long) i, "Ahorros", BigDecimal.valueOf(150000 + i, 2), "Activa", "cliente-" + (i % 50));
+            cuentas.add(cuenta);
+            movimientos.add(new Movimiento((long) i, new Date(fecha + i), "Depósito",
+                    BigDecimal.valueOf(2500, 2), cuenta.getSaldoInicial(), cuenta));
+        }
+    }
+
+    @Benchmark
+    public byte[] movimientos() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(movimientos);
+    }
+
+    @Benchmark
+    public byte[] cuentas() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cuentas);
+    }
+}
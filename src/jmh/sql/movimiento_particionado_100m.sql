@@ -0,0 +1,129 @@
+-- Benchmark del reporte sobre 100M movimientos: tabla movimiento sin particionar frente a la
+-- particionada por mes (basedatos.sql). Se ejecuta con psql contra una base de pruebas; crea
+-- todo en el esquema bench y necesita unos 40 GB libres y bastante tiempo de carga:
+--
+--   psql -d cuenta_bench -f src/jmh/sql/movimiento_particionado_100m.sql > particionado.txt
+--
+-- Volúmenes: 1M cuentas (5 por cliente) x 100 movimientos repartidos en 24 meses. Cambiar
+-- :movimientos para una prueba más corta.
+
+\set ON_ERROR_STOP on
+\set cuentas 1000000
+\set movimientos 100000000
+
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+SET search_path = bench;
+
+CREATE TABLE cuenta (
+    numero_cuenta BIGINT PRIMARY KEY,
+    tipo_cuenta VARCHAR(20) NOT NULL,
+    saldo_inicial NUMERIC(15, 2) NOT NULL,
+    estado VARCHAR(10) NOT NULL,
+    cliente_id VARCHAR(50) NOT NULL
+);
+INSERT INTO cuenta
+SELECT g, 'Ahorros', 1000.00, 'Activa', (g / 5)::text FROM generate_series(1, :cuentas) g;
+CREATE INDEX ON cuenta(cliente_id);
+
+-- Mismas columnas e índices en ambas tablas
+CREATE TABLE movimiento_plano (
+    numero_movimiento BIGINT PRIMARY KEY,
+    fecha_movimiento TIMESTAMP NOT NULL,
+    tipo_movimiento VARCHAR(20) NOT NULL,
+    valor NUMERIC(15, 2) NOT NULL,
+    saldo NUMERIC(15, 2) NOT NULL,
+    numero_cuenta BIGINT NOT NULL
+);
+
+CREATE TABLE movimiento_particionado (
+    numero_movimiento BIGINT NOT NULL,
+    fecha_movimiento TIMESTAMP NOT NULL,
+    tipo_movimiento VARCHAR(20) NOT NULL,
+    valor NUMERIC(15, 2) NOT NULL,
+    saldo NUMERIC(15, 2) NOT NULL,
+    numero_cuenta BIGINT NOT NULL,
+    PRIMARY KEY (numero_movimiento, fecha_movimiento)
+) PARTITION BY RANGE (fecha_movimiento);
+
+DO $$
+DECLARE
+    mes DATE := DATE '2023-01-01';
+BEGIN
+    WHILE mes < DATE '2025-01-01' LOOP
+        EXECUTE format('CREATE TABLE movimiento_particionado_p%s PARTITION OF movimiento_particionado FOR VALUES FROM (%L) TO (%L)',
+                to_char(mes, 'YYYYMM'), mes, mes + INTERVAL '1 month');
+        mes := mes + INTERVAL '1 month';
+    END LOOP;
+END $$;
+CREATE TABLE movimiento_particionado_default PARTITION OF movimiento_particionado DEFAULT;
+
+-- Carga sin índices secundarios; fechas y cuentas deterministas repartidas por los 24 meses
+\echo 'Cargando movimiento_plano'
+\timing on
+INSERT INTO movimiento_plano
+SELECT g,
+       TIMESTAMP '2023-01-01' + ((g * 7919) % (730 * 86400)) * INTERVAL '1 second',
+       CASE WHEN g % 3 = 0 THEN 'Retiro' ELSE 'Depósito' END,
+       CASE WHEN g % 3 = 0 THEN -10.00 ELSE 20.00 END,
+       1000.00,
+       g % :cuentas + 1
+FROM generate_series(1, :movimientos) g;
+
+\echo 'Cargando movimiento_particionado'
+INSERT INTO movimiento_particionado SELECT * FROM movimiento_plano;
+
+CREATE INDEX ON movimiento_plano(numero_cuenta, fecha_movimiento, numero_movimiento);
+CREATE INDEX ON movimiento_plano(fecha_movimiento);
+CREATE INDEX ON movimiento_particionado(numero_cuenta, fecha_movimiento, numero_movimiento);
+CREATE INDEX ON movimiento_particionado(fecha_movimiento);
+\timing off
+
+VACUUM ANALYZE cuenta;
+VACUUM ANALYZE movimiento_plano;
+VACUUM ANALYZE movimiento_particionado;
+
+SELECT pg_size_pretty(pg_total_relation_size('movimiento_plano')) AS plano,
+       (SELECT pg_size_pretty(sum(pg_total_relation_size(inhrelid))) FROM pg_inherits
+        WHERE inhparent = 'movimiento_particionado'::regclass) AS particionado;
+
+-- Consulta del reporte (CONSULTA_REPORTE de MovimientoRepository) para un cliente con 5
+-- cuentas: un mes y un trimestre. Cada consulta se ejecuta una vez para calentar la caché y
+-- después se mide
+PREPARE reporte_plano(TEXT, TIMESTAMP, TIMESTAMP) AS
+SELECT c.numero_cuenta, c.tipo_cuenta, c.saldo_inicial, c.estado,
+       m.numero_movimiento, m.fecha_movimiento, m.tipo_movimiento, m.valor, m.saldo
+FROM cuenta c LEFT JOIN movimiento_plano m ON m.numero_cuenta = c.numero_cuenta
+     AND m.fecha_movimiento >= $2 AND m.fecha_movimiento <= $3
+WHERE c.cliente_id = $1
+ORDER BY c.numero_cuenta, m.fecha_movimiento, m.numero_movimiento;
+
+PREPARE reporte_particionado(TEXT, TIMESTAMP, TIMESTAMP) AS
+SELECT c.numero_cuenta, c.tipo_cuenta, c.saldo_inicial, c.estado,
+       m.numero_movimiento, m.fecha_movimiento, m.tipo_movimiento, m.valor, m.saldo
+FROM cuenta c LEFT JOIN movimiento_particionado m ON m.numero_cuenta = c.numero_cuenta
+     AND m.fecha_movimiento >= $2 AND m.fecha_movimiento <= $3
+WHERE c.cliente_id = $1
+ORDER BY c.numero_cuenta, m.fecha_movimiento, m.numero_movimiento;
+
+\echo 'Reporte de un mes'
+EXECUTE reporte_plano('12345', '2024-06-01', '2024-06-30 23:59:59');
+EXECUTE reporte_particionado('12345', '2024-06-01', '2024-06-30 23:59:59');
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY) EXECUTE reporte_plano('54321', '2024-06-01', '2024-06-30 23:59:59');
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY) EXECUTE reporte_particionado('54321', '2024-06-01', '2024-06-30 23:59:59');
+
+\echo 'Reporte de un trimestre'
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY) EXECUTE reporte_plano('99999', '2024-04-01', '2024-06-30 23:59:59');
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY) EXECUTE reporte_particionado('99999', '2024-04-01', '2024-06-30 23:59:59');
+
+-- Coste de las inserciones del mes en curso: en la tabla particionada solo se mantienen los
+-- índices de la partición del mes, mucho más pequeños
+\echo 'Inserción de 1M movimientos en el último mes'
+\timing on
+INSERT INTO movimiento_plano
+SELECT :movimientos + g, TIMESTAMP '2024-12-01' + (g % 2592000) * INTERVAL '1 second', 'Depósito', 20.00, 1000.00, g % :cuentas + 1
+FROM generate_series(1, 1000000) g;
+INSERT INTO movimiento_particionado
+SELECT :movimientos + g, TIMESTAMP '2024-12-01' + (g % 2592000) * INTERVAL '1 second', 'Depósito', 20.00, 1000.00, g % :cuentas + 1
+FROM generate_series(1, 1000000) g;
+\timing off
@@ -0,0 +1,119 @@
+package com.example.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calentamiento antes de aceptar tráfico: recorre los endpoints principales por HTTP contra el
+ * propio servidor para que Hibernate, Jackson, el pool de conexiones y el JIT estén preparados
+ * cuando llegue la primera petición real.
+ *
+ * Se ejecuta como ApplicationRunner, es decir, antes de ApplicationReadyEvent: hasta que termina,
+ * /actuator/health/readiness sigue respondiendo REFUSING_TRAFFIC. Las lecturas usan datos reales
+ * para recorrer las mismas consultas que el tráfico: el cliente cuenta.calentamiento.cliente-id
+ * o, si no se indica, el de la primera cuenta, y la primera cuenta de ese cliente. Los reportes
+ * se piden con rangos distintos para no quedarse en ReporteCache. No escribe nada: POST
+ * /movimientos se envía contra una cuenta que no existe, así que solo calienta hasta la
+ * búsqueda de la cuenta.
+ */
+@Component
+public class CalentamientoArranque implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CalentamientoArranque.class);
+
+    /** Las peticiones de calentamiento no cuentan en MedicionArranque. */
+    static final String CABECERA = "X-Calentamiento";
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${cuenta.calentamiento.activo:false}")
+    private boolean activo;
+
+    @Value("${cuenta.calentamiento.iteraciones:300}")
+    private int iteraciones;
+
+    @Value("${cuenta.calentamiento.duracion-maxima:30s}")
+    private Duration duracionMaxima;
+
+    /** Vacío: el cliente de la primera cuenta. */
+    @Value("${cuenta.calentamiento.cliente-id:}")
+    private String clienteId;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String puerto = environment.getProperty("local.server.port");
+        if (!activo || puerto == null) {
+            return;
+        }
+        RestClient http = RestClient.builder()
+                .baseUrl("http://localhost:" + puerto)
+                .defaultHeader(CABECERA, "true")
+                .defaultStatusHandler(status -> true, (peticion, respuesta) -> { })
+                .build();
+        String movimiento = "{\"cuenta\":{\"numeroCuenta\":-1},\"tipoMovimiento\":\"Depósito\",\"valor\":1.00}";
+        String cliente = clienteId;
+        long numeroCuenta = -1;
+        try {
+            List<Map<String, Object>> cuentas = cliente.isBlank()
+                    ? jdbcTemplate.queryForList("SELECT cliente_id, numero_cuenta FROM cuenta ORDER BY numero_cuenta LIMIT 1")
+                    : jdbcTemplate.queryForList("SELECT cliente_id, numero_cuenta FROM cuenta WHERE cliente_id = ? ORDER BY numero_cuenta LIMIT 1", cliente);
+            if (!cuentas.isEmpty()) {
+                cliente = (String) cuentas.get(0).get("cliente_id");
+                numeroCuenta = ((Number) cuentas.get(0).get("numero_cuenta")).longValue();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Calentamiento sin datos reales: {}", e.getMessage());
+        }
+        if (numeroCuenta < 0) {
+            log.info("Sin cuentas para el calentamiento; solo se recorren respuestas vacías");
+            cliente = cliente.isBlank() ? "calentamiento" : cliente;
+        }
+
+        long inicio = System.nanoTime();
+        long limite = inicio + duracionMaxima.toNanos();
+        int realizadas = 0;
+        try {
+            for (; realizadas < iteraciones && System.nanoTime() < limite; realizadas++) {
+                LocalDate hoy = LocalDate.now();
+                String rango = hoy.minusDays(30 + realizadas % 60) + "," + hoy;
+                http.get().uri("/cuentas/cliente/{c}/ids", cliente).retrieve().toBodilessEntity();
+                http.get().uri("/cuentas/{id}", numeroCuenta).retrieve().toBodilessEntity();
+                http.get().uri("/cuentas/{id}/saldo?at={at}", numeroCuenta, LocalDateTime.now().minusDays(realizadas % 30))
+                        .retrieve().toBodilessEntity();
+                http.get().uri("/movimientos?clienteId={c}", cliente).retrieve().toBodilessEntity();
+                http.get().uri("/movimientos?numeroCuenta={n}&desde={d}", numeroCuenta, hoy.minusDays(30))
+                        .retrieve().toBodilessEntity();
+                http.get().uri("/reportes?clienteId={c}&fecha={f}&detalle={d}", cliente, rango, realizadas % 2 == 0)
+                        .retrieve().toBodilessEntity();
+                http.post().uri("/movimientos").contentType(MediaType.APPLICATION_JSON).body(movimiento)
+                        .retrieve().toBodilessEntity();
+            }
+        } catch (RestClientException e) {
+            // El calentamiento nunca impide arrancar
+            log.warn("Calentamiento interrumpido tras {} iteraciones: {}", realizadas, e.getMessage());
+            return;
+        }
+        log.info("Calentamiento con el cliente {}: {} iteraciones en {} ms", cliente, realizadas, Duration.ofNanos(System.nanoTime() - inicio).toMillis());
+    }
+}
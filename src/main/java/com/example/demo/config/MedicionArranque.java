@@ -0,0 +1,119 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempos de arranque desde el inicio de la JVM: hasta estar lista (tras el calentamiento),
+ * hasta atender la primera petición real y hasta que la latencia se estabiliza. Se registran en
+ * el log y como métricas arranque.* (NaN mientras no se conocen).
+ *
+ * La latencia se considera estable cuando la mediana de dos ventanas seguidas de peticiones no
+ * mejora más de un 10 % respecto a la ventana anterior, es decir, cuando el JIT y las cachés
+ * ya no la reducen. Después de eso el filtro solo comprueba un booleano.
+ */
+@Component
+public class MedicionArranque extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(MedicionArranque.class);
+
+    private static final int VENTANA = 200;
+    private static final double TOLERANCIA = 0.10;
+    private static final int VENTANAS_ESTABLES = 2;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile long listo = -1;
+    private volatile long primeraPeticion = -1;
+    private volatile long estable = -1;
+
+    private final long[] ventana = new long[VENTANA];
+    private int enVentana;
+    private long peticiones;
+    private double medianaAnterior = -1;
+    private int ventanasEstables;
+
+    @PostConstruct
+    void iniciar() {
+        TimeGauge.builder(Metricas.ARRANQUE_LISTO, this, TimeUnit.MILLISECONDS, m -> milisegundos(m.listo)).register(meterRegistry);
+        TimeGauge.builder(Metricas.ARRANQUE_PRIMERA_PETICION, this, TimeUnit.MILLISECONDS, m -> milisegundos(m.primeraPeticion)).register(meterRegistry);
+        TimeGauge.builder(Metricas.ARRANQUE_ESTABLE, this, TimeUnit.MILLISECONDS, m -> milisegundos(m.estable)).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alEstarLista() {
+        listo = desdeInicio();
+        log.info("Lista para recibir tráfico {} ms después de arrancar la JVM", listo);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (estable >= 0 || request.getHeader(CalentamientoArranque.CABECERA) != null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long inicio = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            registrar(System.nanoTime() - inicio);
+        }
+    }
+
+    private synchronized void registrar(long duracion) {
+        if (estable >= 0) {
+            return;
+        }
+        peticiones++;
+        if (primeraPeticion < 0) {
+            primeraPeticion = desdeInicio();
+            log.info("Primera petición atendida {} ms después de arrancar la JVM ({} ms)",
+                    primeraPeticion, TimeUnit.NANOSECONDS.toMillis(duracion));
+        }
+        ventana[enVentana++] = duracion;
+        if (enVentana < VENTANA) {
+            return;
+        }
+        enVentana = 0;
+        Arrays.sort(ventana);
+        double mediana = ventana[VENTANA / 2];
+        if (medianaAnterior > 0 && mediana >= medianaAnterior * (1 - TOLERANCIA)) {
+            ventanasEstables++;
+        } else {
+            ventanasEstables = 0;
+        }
+        medianaAnterior = mediana;
+        if (ventanasEstables >= VENTANAS_ESTABLES) {
+            estable = desdeInicio();
+            log.info("Latencia estable tras {} peticiones, {} ms después de arrancar la JVM (mediana {} ms)",
+                    peticiones, estable, String.format("%.2f", mediana / 1_000_000));
+        }
+    }
+
+    private static long desdeInicio() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    private static double milisegundos(long valor) {
+        return valor < 0 ? Double.NaN : valor;
+    }
+}
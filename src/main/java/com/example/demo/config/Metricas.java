@@ -0,0 +1,42 @@
+package com.example.demo;
+
+/**
+ * Nombres de las métricas propias del servicio. Las de HTTP (http.server.requests), repositorios
+ * (spring.data.repository.invocations), Hikari (hikaricp.*) y cachés (cache.*) las registra
+ * Spring Boot.
+ */
+public final class Metricas {
+
+    /** Movimientos rechazados, con etiquetas motivo y operacion (crear, actualizar, batch). */
+    public static final String MOVIMIENTOS_RECHAZADOS = "movimientos.rechazados";
+
+    /** Cuentas por reporte generado, con etiqueta modo (detalle, totales). */
+    public static final String REPORTE_CUENTAS = "reporte.cuentas";
+
+    /** Movimientos por reporte generado, con etiqueta modo (detalle, totales). */
+    public static final String REPORTE_MOVIMIENTOS = "reporte.movimientos";
+
+    /** Límite adaptativo de reportes simultáneos (AdmisionReportes). */
+    public static final String REPORTES_ADMISION_LIMITE = "reportes.admision.limite";
+
+    /** Reportes en curso, incluidas las exportaciones. */
+    public static final String REPORTES_ADMISION_EN_CURSO = "reportes.admision.en-curso";
+
+    /** Reportes rechazados por carga, con etiqueta motivo (cliente = 429, global = 503). */
+    public static final String REPORTES_ADMISION_RECHAZADOS = "reportes.admision.rechazados";
+
+    /** Desde el inicio de la JVM hasta estar lista para recibir tráfico (tras el calentamiento). */
+    public static final String ARRANQUE_LISTO = "arranque.listo";
+
+    /** Desde el inicio de la JVM hasta atender la primera petición real. */
+    public static final String ARRANQUE_PRIMERA_PETICION = "arranque.primera-peticion";
+
+    /** Desde el inicio de la JVM hasta que la mediana de latencia deja de mejorar. */
+    public static final String ARRANQUE_ESTABLE = "arranque.estable";
+
+    /** Conexiones activas / tamaño máximo del pool de Hikari (1 = pool agotado). */
+    public static final String HIKARI_SATURACION = "hikaricp.connections.saturacion";
+
+    private Metricas() {
+    }
+}
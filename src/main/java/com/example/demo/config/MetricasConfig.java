@@ -0,0 +1,36 @@
+package com.example.demo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+@Configuration
+public class MetricasConfig {
+
+    /**
+     * Saturación del pool como una sola serie; junto con hikaricp.connections.pending (hilos
+     * esperando conexión) indica si la latencia viene de esperar al pool.
+     */
+    @Bean
+    public MeterBinder saturacionHikari(DataSource dataSource) throws SQLException {
+        if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+            return registry -> { };
+        }
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        return registry -> Gauge.builder(Metricas.HIKARI_SATURACION, hikari, MetricasConfig::saturacion)
+                .description("Conexiones activas sobre el máximo del pool")
+                .tag("pool", String.valueOf(hikari.getPoolName()))
+                .register(registry);
+    }
+
+    private static double saturacion(HikariDataSource hikari) {
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        return pool == null ? 0 : (double) pool.getActiveConnections() / hikari.getMaximumPoolSize();
+    }
+}
@@ -1,16 +1,23 @@
 package com.example.demo;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/cuentas")
@@ -19,40 +26,131 @@ public class CuentaController {
     @Autowired
     private CuentaRepository cuentaRepository;
 
+    @Autowired
+    private EventoClienteCuentaRepository eventoClienteCuentaRepository;
+
+    @Autowired
+    private CuentaBatchService cuentaBatchService;
+
+    @Autowired
+    private SaldoDiarioService saldoDiarioService;
+
+    @Autowired
+    private CuentaCache cuentaCache;
+
+    @Autowired
+    private ReporteCache reporteCache;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${cuenta.cuentas.batch.maximo:100000}")
+    private int maximoBatch;
+
+    @Value("${cuenta.paginacion.tamano-defecto:100}")
+    private int tamanoPaginaDefecto;
+
+    @Value("${cuenta.paginacion.tamano-maximo:500}")
+    private int tamanoPaginaMaximo;
+
     @PostMapping
     @Transactional
     public ResponseEntity<Cuenta> createCuenta(@RequestBody Cuenta cuenta) {
         Cuenta savedCuenta = cuentaRepository.save(cuenta);
-        // Insertar en la tabla cliente_cuentas para que el otro microservicio pueda encontrarla
-        cuentaRepository.insertClienteCuenta(savedCuenta.getClienteId(), savedCuenta.getNumeroCuenta());
+        // Evento en el outbox, en la misma transacción: RelayClienteCuentas lo copia a cliente_cuentas
+        eventoClienteCuentaRepository.save(EventoClienteCuenta.de(savedCuenta));
+        cuentaCache.invalidarCliente(savedCuenta.getClienteId());
+        reporteCache.invalidarCliente(savedCuenta.getClienteId());
         return new ResponseEntity<>(savedCuenta, HttpStatus.CREATED);
     }
 
+    /**
+     * Alta masiva de cuentas (migración de sucursales). Devuelve un resultado por cuenta, en el
+     * orden de la petición, con el numeroCuenta asignado o el motivo del rechazo.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createCuentasBatch(@RequestBody List<Cuenta> cuentas) {
+        if (cuentas.size() > maximoBatch) {
+            Map<String, String> error = new HashMap<>();
+            error.put("mensaje", "El lote supera el máximo de " + maximoBatch + " cuentas");
+            return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(cuentaBatchService.registrar(cuentas), HttpStatus.OK);
+    }
+
+    /**
+     * Paginación por clave: el token "siguiente" de la respuesta se envía como "cursor" para
+     * obtener la página siguiente. El tamaño de página está acotado por cuenta.paginacion.tamano-maximo.
+     */
     @GetMapping
-    public ResponseEntity<List<Cuenta>> getAllCuentas() {
-        List<Cuenta> cuentas = cuentaRepository.findAll();
-        return new ResponseEntity<>(cuentas, HttpStatus.OK);
+    public ResponseEntity<?> getAllCuentas(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String clienteId,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) String tipoCuenta) {
+        long despuesDe;
+        try {
+            despuesDe = Pagina.decodificarCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("mensaje", e.getMessage());
+            return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        }
+
+        int tamano = size == null ? tamanoPaginaDefecto : Math.min(size, tamanoPaginaMaximo);
+        if (tamano < 1) {
+            Map<String, String> error = new HashMap<>();
+            error.put("mensaje", "El parámetro size debe ser mayor que 0");
+            return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        }
+
+        List<CuentaDto> cuentas = cuentaRepository.findPagina(despuesDe, clienteId, estado, tipoCuenta, Limit.of(tamano + 1));
+        return new ResponseEntity<>(Pagina.de(cuentas, tamano, CuentaDto::numeroCuenta), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Cuenta> getCuentaById(@PathVariable Long id) {
-        Optional<Cuenta> cuenta = cuentaRepository.findById(id);
+    public ResponseEntity<CuentaDto> getCuentaById(@PathVariable Long id) {
+        Optional<CuentaDto> cuenta = cuentaCache.buscarCuenta(id);
         return cuenta.map(c -> new ResponseEntity<>(c, HttpStatus.OK))
                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * Saldo de la cuenta en el instante {@code at} (yyyy-MM-ddTHH:mm:ss); sin {@code at}, el actual,
+     * leído de la propia cuenta. Los resúmenes diarios solo reflejan movimientos, no los saldos
+     * sobrescritos con PUT /cuentas/{id}.
+     */
+    @GetMapping("/{id}/saldo")
+    public ResponseEntity<Map<String, Object>> getSaldoAl(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        Date instante = at == null ? new Date() : Date.from(at.atZone(ZoneId.systemDefault()).toInstant());
+        Optional<BigDecimal> saldo = at == null
+                ? cuentaRepository.findById(id).map(Cuenta::getSaldoInicial)
+                : saldoDiarioService.saldoAl(id, instante);
+        if (saldo.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("numeroCuenta", id);
+        response.put("fecha", instante);
+        response.put("saldo", saldo.get());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @GetMapping("/cliente/{clienteId}")
-    public ResponseEntity<List<Cuenta>> getCuentasByClienteId(@PathVariable String clienteId) {
-        List<Cuenta> cuentas = cuentaRepository.findByClienteId(clienteId);
+    public ResponseEntity<List<CuentaDto>> getCuentasByClienteId(@PathVariable String clienteId) {
+        List<CuentaDto> cuentas = cuentaRepository.findDtoByClienteId(clienteId);
         return new ResponseEntity<>(cuentas, HttpStatus.OK);
     }
 
     @GetMapping("/cliente/{clienteId}/ids")
     public ResponseEntity<Map<String, List<Long>>> getCuentaIdsByClienteId(@PathVariable String clienteId) {
-        List<Cuenta> cuentas = cuentaRepository.findByClienteId(clienteId);
-        List<Long> cuentaIds = cuentas.stream()
-                .map(Cuenta::getNumeroCuenta)
-                .collect(Collectors.toList());
+        List<Long> cuentaIds = cuentaCache.buscarIdsDeCliente(clienteId);
         Map<String, List<Long>> response = new HashMap<>();
         response.put("cuentaIds", cuentaIds);
         return new ResponseEntity<>(response, HttpStatus.OK);
@@ -60,22 +158,32 @@ public class CuentaController {
 
     @PutMapping("/{id}")
     public ResponseEntity<Cuenta> updateCuenta(@PathVariable Long id, @RequestBody Cuenta cuentaDetails) {
-        Optional<Cuenta> cuentaOptional = cuentaRepository.findById(id);
-        
-        if (cuentaOptional.isPresent()) {
+        // El saldo se sobrescribe: los movimientos del ledger pendientes se vuelcan antes de
+        // abrir la transacción
+        Optional<Cuenta> updatedCuenta = ledgerService.conCuentasSuspendidas(List.of(id), () -> transactionTemplate.execute(estado -> {
+            Optional<Cuenta> cuentaOptional = cuentaRepository.findById(id);
+            if (cuentaOptional.isEmpty()) {
+                return Optional.<Cuenta>empty();
+            }
             Cuenta cuenta = cuentaOptional.get();
+            String clienteAnterior = cuenta.getClienteId();
             cuenta.setTipoCuenta(cuentaDetails.getTipoCuenta());
             cuenta.setSaldoInicial(cuentaDetails.getSaldoInicial());
             cuenta.setEstado(cuentaDetails.getEstado());
             if (cuentaDetails.getClienteId() != null) {
                 cuenta.setClienteId(cuentaDetails.getClienteId());
             }
-            
-            Cuenta updatedCuenta = cuentaRepository.save(cuenta);
-            return new ResponseEntity<>(updatedCuenta, HttpStatus.OK);
-        } else {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+
+            Cuenta guardada = cuentaRepository.save(cuenta);
+            cuentaCache.invalidarCuenta(id);
+            cuentaCache.invalidarCliente(clienteAnterior);
+            cuentaCache.invalidarCliente(guardada.getClienteId());
+            reporteCache.invalidarCliente(clienteAnterior);
+            reporteCache.invalidarCliente(guardada.getClienteId());
+            return Optional.of(guardada);
+        }));
+        return updatedCuenta.map(c -> new ResponseEntity<>(c, HttpStatus.OK))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
 }
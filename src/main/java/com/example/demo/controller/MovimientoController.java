@@ -1,16 +1,30 @@
 package com.example.demo;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/movimientos")
@@ -20,45 +34,28 @@ public class MovimientoController {
     private MovimientoRepository movimientoRepository;
 
     @Autowired
-    private CuentaRepository cuentaRepository;
+    private SaldoService saldoService;
 
-    /**
-     * Recalculates the saldo for a movimiento based on all previous movimientos
-     * @param cuenta The cuenta
-     * @param movimiento The movimiento to calculate saldo for
-     * @param currentCuentaSaldo The current saldo of the cuenta (before this movimiento update)
-     * @param oldMovimientoValor The old valor of this movimiento (before update)
-     */
-    private BigDecimal calculateSaldoAfterMovimiento(Cuenta cuenta, Movimiento movimiento, BigDecimal currentCuentaSaldo, BigDecimal oldMovimientoValor) {
-        // Get all movimientos for this cuenta ordered by date
-        List<Movimiento> allMovimientos = movimientoRepository.findByCuentaOrderByFechaMovimientoAsc(cuenta);
-        
-        // Calculate sum of all movimientos using the old valor for this movimiento
-        BigDecimal sumOfAllMovimientos = BigDecimal.ZERO;
-        for (Movimiento m : allMovimientos) {
-            if (m.getNumeroMovimiento().equals(movimiento.getNumeroMovimiento())) {
-                sumOfAllMovimientos = sumOfAllMovimientos.add(oldMovimientoValor);
-            } else {
-                sumOfAllMovimientos = sumOfAllMovimientos.add(m.getValor());
-            }
-        }
-        
-        // Calculate original initial balance
-        BigDecimal initialBalance = currentCuentaSaldo.subtract(sumOfAllMovimientos);
-        
-        // Now calculate balance up to and including this movimiento (using new valor)
-        BigDecimal runningBalance = initialBalance;
-        for (Movimiento m : allMovimientos) {
-            if (m.getNumeroMovimiento().equals(movimiento.getNumeroMovimiento())) {
-                runningBalance = runningBalance.add(movimiento.getValor());
-                break;
-            } else {
-                runningBalance = runningBalance.add(m.getValor());
-            }
-        }
-        
-        return runningBalance;
-    }
+    @Autowired
+    private MovimientoBatchService movimientoBatchService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cuenta.movimientos.batch.maximo:200000}")
+    private int maximoBatch;
+
+    @Value("${cuenta.paginacion.tamano-defecto:100}")
+    private int tamanoPaginaDefecto;
+
+    @Value("${cuenta.paginacion.tamano-maximo:500}")
+    private int tamanoPaginaMaximo;
 
     @PostMapping
     public ResponseEntity<Movimiento> createMovimiento(@RequestBody Movimiento movimiento) {
@@ -67,152 +64,147 @@ public class MovimientoController {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
-        // Find the cuenta
-        Optional<Cuenta> cuentaOptional = cuentaRepository.findById(movimiento.getCuenta().getNumeroCuenta());
-        if (cuentaOptional.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-
-        Cuenta cuenta = cuentaOptional.get();
-
         // Validate that valor is provided
         if (movimiento.getValor() == null) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
-        // Calculate new saldo: current saldoInicial + valor (valor can be positive or negative)
-        BigDecimal currentSaldo = cuenta.getSaldoInicial();
-        BigDecimal newSaldo = currentSaldo.add(movimiento.getValor());
+        // The balance is updated atomically and committed together with the movimiento, or
+        // in memory and in the ledger's write-ahead log when the ledger mode is enabled
+        try {
+            Movimiento savedMovimiento = ledgerService.isActivo()
+                    ? ledgerService.registrar(movimiento)
+                    : saldoService.registrarMovimiento(movimiento);
+            return new ResponseEntity<>(savedMovimiento, HttpStatus.CREATED);
+        } catch (CuentaNoEncontradaException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (SaldoNoDisponibleException e) {
+            meterRegistry.counter(Metricas.MOVIMIENTOS_RECHAZADOS, "motivo", "saldo_no_disponible", "operacion", "crear").increment();
+            return new ResponseEntity("Saldo no disponible", HttpStatus.BAD_REQUEST);
+        } catch (ArithmeticException e) {
+            return new ResponseEntity("Valor inválido", HttpStatus.BAD_REQUEST);
+        } catch (IllegalArgumentException e) {
+            // The ledger validates the movimiento against the table before acknowledging it
+            Map<String, String> error = new HashMap<>();
+            error.put("mensaje", e.getMessage());
+            return new ResponseEntity(error, HttpStatus.BAD_REQUEST);
+        } catch (LedgerNoDisponibleException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("mensaje", e.getMessage());
+            return new ResponseEntity(error, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
 
-        // Validate that saldo is not negative (saldo no disponible)
-        if (newSaldo.compareTo(BigDecimal.ZERO) < 0) {
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createMovimientosBatch(@RequestBody List<Movimiento> movimientos) {
+        if (movimientos.size() > maximoBatch) {
             Map<String, String> error = new HashMap<>();
-            error.put("mensaje", "Saldo no disponible");
-            return new ResponseEntity("Saldo no disponible", HttpStatus.BAD_REQUEST);
+            error.put("mensaje", "El lote supera el máximo de " + maximoBatch + " movimientos");
+            return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
         }
+        return new ResponseEntity<>(registrarLote(movimientos), HttpStatus.OK);
+    }
 
-        // Set fechaMovimiento if not provided
-        if (movimiento.getFechaMovimiento() == null) {
-            movimiento.setFechaMovimiento(new Date());
+    /**
+     * Same as the JSON batch endpoint, but reads one movimiento per line (NDJSON)
+     * so that large settlement files don't need to be wrapped in a single array.
+     */
+    @PostMapping(value = "/batch", consumes = "application/x-ndjson")
+    public ResponseEntity<?> createMovimientosBatchNdjson(InputStream body) throws IOException {
+        List<Movimiento> movimientos = new ArrayList<>();
+        try (MappingIterator<Movimiento> iterator = objectMapper.readerFor(Movimiento.class).readValues(body)) {
+            while (iterator.hasNext()) {
+                if (movimientos.size() == maximoBatch) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("mensaje", "El lote supera el máximo de " + maximoBatch + " movimientos");
+                    return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+                }
+                movimientos.add(iterator.next());
+            }
         }
+        return new ResponseEntity<>(registrarLote(movimientos), HttpStatus.OK);
+    }
 
-        // Set the cuenta and new saldo in movimiento
-        movimiento.setCuenta(cuenta);
-        movimiento.setSaldo(newSaldo);
+    /**
+     * Keyset pagination: pass the returned "siguiente" token back as "cursor" to get the next
+     * page. Page size is capped at cuenta.paginacion.tamano-maximo.
+     */
+    @GetMapping
+    public ResponseEntity<?> getAllMovimientos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Long numeroCuenta,
+            @RequestParam(required = false) String clienteId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String tipoMovimiento) {
+        long despuesDe;
+        try {
+            despuesDe = Pagina.decodificarCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("mensaje", e.getMessage());
+            return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        }
 
-        // Update cuenta's saldoInicial to reflect the new balance
-        cuenta.setSaldoInicial(newSaldo);
+        int tamano = size == null ? tamanoPaginaDefecto : Math.min(size, tamanoPaginaMaximo);
+        if (tamano < 1) {
+            Map<String, String> error = new HashMap<>();
+            error.put("mensaje", "El parámetro size debe ser mayor que 0");
+            return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        }
 
-        // Save both cuenta and movimiento (transaction is tracked)
-        cuentaRepository.save(cuenta);
-        Movimiento savedMovimiento = movimientoRepository.save(movimiento);
+        // Date filters cover whole days: [desde 00:00, hasta + 1 day 00:00)
+        ZoneId zona = ZoneId.systemDefault();
+        Date fechaDesde = desde == null ? null : Date.from(desde.atStartOfDay(zona).toInstant());
+        Date fechaHasta = hasta == null ? null : Date.from(hasta.plusDays(1).atStartOfDay(zona).toInstant());
 
-        return new ResponseEntity<>(savedMovimiento, HttpStatus.CREATED);
+        List<MovimientoDto> movimientos = movimientoRepository.findPagina(despuesDe, numeroCuenta, clienteId,
+                fechaDesde, fechaHasta, tipoMovimiento, Limit.of(tamano + 1));
+        return new ResponseEntity<>(Pagina.de(movimientos, tamano, MovimientoDto::numeroMovimiento), HttpStatus.OK);
     }
 
-    @GetMapping
-    public ResponseEntity<List<Movimiento>> getAllMovimientos() {
-        List<Movimiento> movimientos = movimientoRepository.findAll();
-        return new ResponseEntity<>(movimientos, HttpStatus.OK);
+    private List<MovimientoBatchResultado> registrarLote(List<Movimiento> movimientos) {
+        // In ledger mode the accounts are flushed before the batch transaction is opened
+        return ledgerService.conCuentasSuspendidas(MovimientoBatchService.cuentas(movimientos),
+                () -> movimientoBatchService.registrar(movimientos));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Movimiento> getMovimientoById(@PathVariable Long id) {
-        Optional<Movimiento> movimiento = movimientoRepository.findById(id);
+    public ResponseEntity<MovimientoDto> getMovimientoById(@PathVariable Long id) {
+        Optional<MovimientoDto> movimiento = movimientoRepository.findDtoById(id);
         return movimiento.map(m -> new ResponseEntity<>(m, HttpStatus.OK))
                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<Movimiento> updateMovimiento(@PathVariable Long id, @RequestBody Movimiento movimientoDetails) {
-        Optional<Movimiento> movimientoOptional = movimientoRepository.findById(id);
-        
-        if (movimientoOptional.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-
-        Movimiento movimiento = movimientoOptional.get();
-        Cuenta cuenta = movimiento.getCuenta();
-        BigDecimal oldValor = movimiento.getValor();
-
-        // Update movimiento fields
-        if (movimientoDetails.getFechaMovimiento() != null) {
-            movimiento.setFechaMovimiento(movimientoDetails.getFechaMovimiento());
-        }
-        if (movimientoDetails.getTipoMovimiento() != null) {
-            movimiento.setTipoMovimiento(movimientoDetails.getTipoMovimiento());
-        }
-
-        // Handle valor update and recalculate saldo
-        if (movimientoDetails.getValor() != null) {
-            BigDecimal newValor = movimientoDetails.getValor();
-            BigDecimal currentSaldo = cuenta.getSaldoInicial();
-            
-            // Update movimiento valor first so we can recalculate saldo
-            movimiento.setValor(newValor);
-            
-            // Recalculate the saldo after this movimiento (using old valor for calculation)
-            BigDecimal movimientoSaldo = calculateSaldoAfterMovimiento(cuenta, movimiento, currentSaldo, oldValor);
-            movimiento.setSaldo(movimientoSaldo);
-            
-            // Calculate the difference and adjust cuenta's saldo
-            BigDecimal valorDifference = newValor.subtract(oldValor);
-            BigDecimal updatedCuentaSaldo = currentSaldo.add(valorDifference);
-            
-            // Validate that saldo is not negative (saldo no disponible)
-            if (updatedCuentaSaldo.compareTo(BigDecimal.ZERO) < 0) {
-                // Revert the movimiento valor change
-                movimiento.setValor(oldValor);
-                Map<String, String> error = new HashMap<>();
-                error.put("mensaje", "Saldo no disponible");
-                return new ResponseEntity("Saldo no disponible", HttpStatus.BAD_REQUEST);
+        // Later saldos are shifted in SQL; the history of the cuenta is never loaded
+        // In ledger mode both accounts are flushed before the transaction is opened
+        Set<Long> cuentas = new HashSet<>();
+        if (ledgerService.isActivo()) {
+            Optional<Long> cuentaOrigen = movimientoRepository.findNumeroCuentaById(id);
+            if (cuentaOrigen.isEmpty()) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
             }
-            
-            // Update cuenta's saldo to reflect the new current balance
-            cuenta.setSaldoInicial(updatedCuentaSaldo);
-            cuentaRepository.save(cuenta);
-        }
-
-        // Handle cuenta change (if provided)
-        if (movimientoDetails.getCuenta() != null && movimientoDetails.getCuenta().getNumeroCuenta() != null) {
-            Long newCuentaId = movimientoDetails.getCuenta().getNumeroCuenta();
-            if (!newCuentaId.equals(cuenta.getNumeroCuenta())) {
-                // Revert from old cuenta
-                BigDecimal currentSaldo = cuenta.getSaldoInicial();
-                cuenta.setSaldoInicial(currentSaldo.subtract(movimiento.getValor()));
-                cuentaRepository.save(cuenta);
-                
-                // Apply to new cuenta
-                Optional<Cuenta> newCuentaOptional = cuentaRepository.findById(newCuentaId);
-                if (newCuentaOptional.isEmpty()) {
-                    // Revert the old cuenta change
-                    cuenta.setSaldoInicial(currentSaldo);
-                    cuentaRepository.save(cuenta);
-                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-                }
-                Cuenta newCuenta = newCuentaOptional.get();
-                BigDecimal newCuentaSaldo = newCuenta.getSaldoInicial().add(movimiento.getValor());
-                
-                // Validate that saldo is not negative (saldo no disponible)
-                if (newCuentaSaldo.compareTo(BigDecimal.ZERO) < 0) {
-                    // Revert the old cuenta change
-                    cuenta.setSaldoInicial(currentSaldo);
-                    cuentaRepository.save(cuenta);
-                    Map<String, String> error = new HashMap<>();
-                    error.put("mensaje", "Saldo no disponible");
-                    return new ResponseEntity("Saldo no disponible", HttpStatus.BAD_REQUEST);
-                }
-                
-                newCuenta.setSaldoInicial(newCuentaSaldo);
-                cuentaRepository.save(newCuenta);
-                
-                movimiento.setCuenta(newCuenta);
-                movimiento.setSaldo(newCuentaSaldo);
+            cuentas.add(cuentaOrigen.get());
+            if (movimientoDetails.getCuenta() != null && movimientoDetails.getCuenta().getNumeroCuenta() != null) {
+                cuentas.add(movimientoDetails.getCuenta().getNumeroCuenta());
             }
         }
-        
-        Movimiento updatedMovimiento = movimientoRepository.save(movimiento);
-        return new ResponseEntity<>(updatedMovimiento, HttpStatus.OK);
+        try {
+            Optional<Movimiento> updatedMovimiento = ledgerService.conCuentasSuspendidas(cuentas,
+                    () -> saldoService.actualizarMovimiento(id, movimientoDetails));
+            return updatedMovimiento.map(m -> new ResponseEntity<>(m, HttpStatus.OK))
+                    .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        } catch (CuentaNoEncontradaException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (SaldoNoDisponibleException e) {
+            meterRegistry.counter(Metricas.MOVIMIENTOS_RECHAZADOS, "motivo", "saldo_no_disponible", "operacion", "actualizar").increment();
+            return new ResponseEntity("Saldo no disponible", HttpStatus.BAD_REQUEST);
+        } catch (ConcurrencyFailureException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
     }
 }
 
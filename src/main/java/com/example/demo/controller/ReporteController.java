@@ -1,30 +1,62 @@
 package com.example.demo;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/reportes")
 public class ReporteController {
 
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    @Autowired
+    private ReporteService reporteService;
+
+    @Autowired
+    private ExportadorReporte exportadorReporte;
+
     @Autowired
     private CuentaRepository cuentaRepository;
 
     @Autowired
-    private MovimientoRepository movimientoRepository;
+    private SaldoDiarioService saldoDiarioService;
+
+    @Autowired
+    private ReconstruccionSaldoDiarioJob reconstruccionSaldoDiarioJob;
+
+    @Autowired
+    private ReporteCache reporteCache;
+
+    @Autowired
+    private ReporteParaleloService reporteParaleloService;
+
+    @Autowired
+    private AdmisionReportes admisionReportes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @GetMapping
     public ResponseEntity<?> generarReporte(
             @RequestParam(required = false) String fecha,
-            @RequestParam(required = false) String clienteId) {
+            @RequestParam(required = false) String clienteId,
+            @RequestParam(defaultValue = "true") boolean detalle,
+            WebRequest webRequest) {
         
         try {
             // Validar parámetros
@@ -34,132 +66,216 @@ public class ReporteController {
                 return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
             }
 
-            if (fecha == null || fecha.isEmpty()) {
-                Map<String, String> error = new HashMap<>();
-                error.put("mensaje", "El parámetro fecha es requerido. Formato: fechaInicio,fechaFin (yyyy-MM-dd)");
-                return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
-            }
-
-            // Parsear rango de fechas
-            String[] fechas = fecha.split(",");
-            if (fechas.length != 2) {
-                Map<String, String> error = new HashMap<>();
-                error.put("mensaje", "Formato de fecha incorrecto. Use: fechaInicio,fechaFin (yyyy-MM-dd)");
-                return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
-            }
-
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-            sdf.setLenient(false);
-            
-            Date fechaInicio;
-            Date fechaFin;
+            RangoFechas rango;
             try {
-                // Parsear fechas
-                Date fechaInicioTemp = sdf.parse(fechas[0].trim());
-                Date fechaFinTemp = sdf.parse(fechas[1].trim());
-                
-                // Establecer hora inicio del día para fechaInicio (00:00:00.000)
-                Calendar calInicio = Calendar.getInstance();
-                calInicio.setTime(fechaInicioTemp);
-                calInicio.set(Calendar.HOUR_OF_DAY, 0);
-                calInicio.set(Calendar.MINUTE, 0);
-                calInicio.set(Calendar.SECOND, 0);
-                calInicio.set(Calendar.MILLISECOND, 0);
-                fechaInicio = calInicio.getTime();
-                
-                // Establecer hora fin del día para fechaFin (23:59:59.999)
-                Calendar calFin = Calendar.getInstance();
-                calFin.setTime(fechaFinTemp);
-                calFin.set(Calendar.HOUR_OF_DAY, 23);
-                calFin.set(Calendar.MINUTE, 59);
-                calFin.set(Calendar.SECOND, 59);
-                calFin.set(Calendar.MILLISECOND, 999);
-                fechaFin = calFin.getTime();
-                
-            } catch (ParseException e) {
+                rango = RangoFechas.parse(fecha);
+            } catch (IllegalArgumentException e) {
                 Map<String, String> error = new HashMap<>();
-                error.put("mensaje", "Formato de fecha inválido. Use: yyyy-MM-dd");
+                error.put("mensaje", e.getMessage());
                 return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
             }
 
-            if (fechaInicio.after(fechaFin)) {
-                Map<String, String> error = new HashMap<>();
-                error.put("mensaje", "La fecha de inicio debe ser anterior a la fecha de fin");
-                return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+            // Si el cliente no ha cambiado desde la versión que tiene el llamante, 304 sin
+            // consultar la base de datos (solo si llegan las invalidaciones de otras instancias)
+            ReporteCache.Clave clave = ReporteCache.Clave.de(clienteId, rango, detalle);
+            long version = reporteCache.version(clienteId);
+            String etag = reporteCache.etag(clave, version, formato(webRequest.getHeader(HttpHeaders.ACCEPT)));
+            if (reporteCache.isAlDia() && webRequest.checkNotModified(etag)) {
+                return null;
             }
 
-            // Buscar cuentas del cliente
-            List<Cuenta> cuentas = cuentaRepository.findByClienteId(clienteId);
-            
-            if (cuentas.isEmpty()) {
+            // Solo los reportes que hay que generar pasan por el control de admisión
+            Map<String, Object> reporte = reporteCache.obtener(clave, version, () -> {
+                try (AdmisionReportes.Permiso permiso = admisionReportes.adquirir(clienteId, true)) {
+                    return construirReporte(clienteId, rango, detalle);
+                }
+            });
+            if (reporte == null) {
                 Map<String, String> error = new HashMap<>();
                 error.put("mensaje", "No se encontraron cuentas para el cliente especificado");
                 return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
             }
 
-            // Construir el reporte
-            Map<String, Object> reporte = new HashMap<>();
-            reporte.put("clienteId", clienteId);
-            reporte.put("fechaInicio", sdf.format(fechaInicio));
-            reporte.put("fechaFin", sdf.format(fechaFin));
-            reporte.put("fechaGeneracion", new Date());
-
-            List<Map<String, Object>> cuentasReporte = new ArrayList<>();
-
-            for (Cuenta cuenta : cuentas) {
-                Map<String, Object> cuentaInfo = new HashMap<>();
-                cuentaInfo.put("numeroCuenta", cuenta.getNumeroCuenta());
-                cuentaInfo.put("tipoCuenta", cuenta.getTipoCuenta());
-                cuentaInfo.put("saldoInicial", cuenta.getSaldoInicial());
-                cuentaInfo.put("saldoActual", cuenta.getSaldoInicial());
-                cuentaInfo.put("estado", cuenta.getEstado());
-
-                // Buscar movimientos en el rango de fechas
-                List<Movimiento> movimientos = movimientoRepository.findByCuentaAndFechaMovimientoBetween(
-                        cuenta.getNumeroCuenta(), fechaInicio, fechaFin);
-
-                List<Map<String, Object>> movimientosInfo = movimientos.stream()
-                        .map(m -> {
-                            Map<String, Object> mov = new HashMap<>();
-                            mov.put("numeroMovimiento", m.getNumeroMovimiento());
-                            mov.put("fechaMovimiento", m.getFechaMovimiento());
-                            mov.put("tipoMovimiento", m.getTipoMovimiento());
-                            mov.put("valor", m.getValor());
-                            mov.put("saldo", m.getSaldo());
-                            return mov;
-                        })
-                        .collect(Collectors.toList());
-
-                cuentaInfo.put("movimientos", movimientosInfo);
-                cuentaInfo.put("totalMovimientos", movimientos.size());
-                
-                // Calcular totales
-                BigDecimal totalDebitos = movimientos.stream()
-                        .filter(m -> m.getValor().compareTo(BigDecimal.ZERO) < 0)
-                        .map(m -> m.getValor().abs())
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                
-                BigDecimal totalCreditos = movimientos.stream()
-                        .filter(m -> m.getValor().compareTo(BigDecimal.ZERO) > 0)
-                        .map(Movimiento::getValor)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                cuentaInfo.put("totalDebitos", totalDebitos);
-                cuentaInfo.put("totalCreditos", totalCreditos);
-
-                cuentasReporte.add(cuentaInfo);
-            }
-
-            reporte.put("cuentas", cuentasReporte);
-            reporte.put("totalCuentas", cuentas.size());
-
-            return new ResponseEntity<>(reporte, HttpStatus.OK);
+            // Un ETag por formato negociado; las cachés intermedias siguen distinguiendo por Accept
+            return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(reporte);
 
+        } catch (ReporteRechazadoException e) {
+            return rechazado(e);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("mensaje", "Error al generar el reporte: " + e.getMessage());
             return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
-}
 
+    /**
+     * Formato en que se responderá según Accept, con el mismo orden que los convertidores: JSON
+     * primero (también sin Accept o con comodines), después Smile y CBOR.
+     */
+    static String formato(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return "json";
+        }
+        List<MediaType> tipos;
+        try {
+            tipos = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return "json";
+        }
+        tipos.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType tipo : tipos) {
+            if (tipo.getQualityValue() == 0) {
+                continue;
+            }
+            if (tipo.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return "json";
+            }
+            if (tipo.isCompatibleWith(SMILE)) {
+                return "smile";
+            }
+            if (tipo.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return "cbor";
+            }
+        }
+        return "json";
+    }
+
+    /**
+     * @return null si el cliente no tiene cuentas
+     */
+    private Map<String, Object> construirReporte(String clienteId, RangoFechas rango, boolean detalle) {
+        // Buscar cuentas y movimientos del cliente en una sola consulta (o por grupos de cuentas
+        // en paralelo con hilos virtuales); sin detalle, solo los totales a partir de los
+        // resúmenes diarios
+        List<Map<String, Object>> cuentasReporte;
+        if (!detalle) {
+            cuentasReporte = reporteService.generarTotales(clienteId, rango.inicio(), rango.fin());
+        } else if (reporteParaleloService.isActivo()) {
+            cuentasReporte = reporteParaleloService.generarCuentas(clienteId, rango.inicio(), rango.fin());
+        } else {
+            cuentasReporte = reporteService.generarCuentas(clienteId, rango.inicio(), rango.fin());
+        }
+
+        if (cuentasReporte.isEmpty()) {
+            return null;
+        }
+
+        String modo = detalle ? "detalle" : "totales";
+        meterRegistry.summary(Metricas.REPORTE_CUENTAS, "modo", modo).record(cuentasReporte.size());
+        long totalMovimientos = 0;
+        for (Map<String, Object> cuenta : cuentasReporte) {
+            totalMovimientos += ((Number) cuenta.get("totalMovimientos")).longValue();
+        }
+        meterRegistry.summary(Metricas.REPORTE_MOVIMIENTOS, "modo", modo).record(totalMovimientos);
+
+        // Construir el reporte
+        Map<String, Object> reporte = new HashMap<>();
+        reporte.put("clienteId", clienteId);
+        reporte.put("fechaInicio", rango.inicioFormateado());
+        reporte.put("fechaFin", rango.finFormateado());
+        reporte.put("fechaGeneracion", new Date());
+
+        reporte.put("cuentas", cuentasReporte);
+        reporte.put("totalCuentas", cuentasReporte.size());
+        return reporte;
+    }
+
+    /**
+     * Exportación del reporte en streaming (NDJSON o CSV): las filas se escriben en la
+     * respuesta a medida que se leen del cursor, sin construir el reporte en memoria.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportarReporte(
+            @RequestParam(required = false) String fecha,
+            @RequestParam(required = false) String clienteId,
+            @RequestParam(defaultValue = ExportadorReporte.NDJSON) String format,
+            WebRequest webRequest) {
+
+        // Validar parámetros
+        if (clienteId == null || clienteId.isEmpty()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("mensaje", "El parámetro clienteId es requerido");
+            return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        }
+
+        if (!ExportadorReporte.NDJSON.equals(format) && !ExportadorReporte.CSV.equals(format)) {
+            Map<String, String> error = new HashMap<>();
+            error.put("mensaje", "Formato no soportado. Use: ndjson o csv");
+            return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        }
+
+        RangoFechas rango;
+        try {
+            rango = RangoFechas.parse(fecha);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("mensaje", e.getMessage());
+            return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        }
+
+        if (!cuentaRepository.existsByClienteId(clienteId)) {
+            Map<String, String> error = new HashMap<>();
+            error.put("mensaje", "No se encontraron cuentas para el cliente especificado");
+            return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+        }
+
+        // La plaza se ocupa hasta que termina la escritura de la respuesta
+        AdmisionReportes.Permiso permiso;
+        try {
+            permiso = admisionReportes.adquirir(clienteId, false);
+        } catch (ReporteRechazadoException e) {
+            return rechazado(e);
+        }
+        StreamingResponseBody cuerpo = salida -> {
+            try (permiso) {
+                exportadorReporte.exportar(clienteId, rango, format, salida);
+            }
+        };
+        // La escritura puede no llegar a ejecutarse (timeout, error o desconexión antes de empezar):
+        // la plaza se libera también al terminar el procesamiento asíncrono, por cualquier motivo.
+        // Cerrarla dos veces no tiene efecto
+        WebAsyncUtils.getAsyncManager(webRequest).registerCallableInterceptor(permiso, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                permiso.close();
+            }
+        });
+        if (ExportadorReporte.CSV.equals(format)) {
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"reporte-" + clienteId + ".csv\"")
+                    .body(cuerpo);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(cuerpo);
+    }
+
+    private static ResponseEntity<Map<String, String>> rechazado(ReporteRechazadoException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("mensaje", e.getMessage());
+        return ResponseEntity.status(e.getEstado())
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getReintentarEnSegundos()))
+                .body(error);
+    }
+
+    /**
+     * Reconstruye los resúmenes diarios desde los movimientos: de una cuenta (síncrono) o de
+     * todas (en segundo plano).
+     */
+    @PostMapping("/saldos-diarios/reconstruir")
+    public ResponseEntity<Map<String, String>> reconstruirSaldosDiarios(@RequestParam(required = false) Long numeroCuenta) {
+        Map<String, String> respuesta = new HashMap<>();
+        if (numeroCuenta != null) {
+            saldoDiarioService.reconstruir(numeroCuenta);
+            respuesta.put("mensaje", "Saldos diarios reconstruidos para la cuenta " + numeroCuenta);
+            return new ResponseEntity<>(respuesta, HttpStatus.OK);
+        }
+        if (!reconstruccionSaldoDiarioJob.iniciar()) {
+            respuesta.put("mensaje", "Ya hay una reconstrucción en curso");
+            return new ResponseEntity<>(respuesta, HttpStatus.CONFLICT);
+        }
+        respuesta.put("mensaje", "Reconstrucción de saldos diarios iniciada");
+        return new ResponseEntity<>(respuesta, HttpStatus.ACCEPTED);
+    }
+}
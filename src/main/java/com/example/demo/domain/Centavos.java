@@ -0,0 +1,38 @@
+package com.example.demo;
+
+import java.math.BigDecimal;
+
+/**
+ * Importes como {@code long} de centavos para la aritmética de las rutas calientes (saldos
+ * corrientes y totales de reportes), sin crear un BigDecimal por operación.
+ *
+ * Las columnas son NUMERIC(15,2)/NUMERIC(17,2), así que cualquier importe cabe en un long; las
+ * sumas usan {@link Math#addExact} y las conversiones son exactas: un importe con más de dos
+ * decimales significativos o que no cabe lanza ArithmeticException en lugar de redondearse.
+ */
+public final class Centavos {
+
+    /** Mayor importe que admite una columna NUMERIC(15,2), en centavos. */
+    public static final long MAXIMO_NUMERIC_15_2 = 999_999_999_999_999L;
+
+    private Centavos() {
+    }
+
+    /**
+     * @throws ArithmeticException si el valor tiene decimales más allá de los centavos o no cabe en un long
+     */
+    public static long de(BigDecimal valor) {
+        return valor.movePointRight(2).longValueExact();
+    }
+
+    public static BigDecimal aBigDecimal(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    /**
+     * @throws ArithmeticException si el resultado desborda
+     */
+    public static long sumar(long a, long b) {
+        return Math.addExact(a, b);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import java.util.Date;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Evento pendiente de publicar en cliente_cuentas (outbox). Se guarda en la misma transacción
+ * que la cuenta y lo borra RelayClienteCuentas una vez publicado.
+ */
+@Entity
+@Table(name = "outbox_cliente_cuenta")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoClienteCuenta {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_cliente_cuenta_seq")
+  @SequenceGenerator(name = "outbox_cliente_cuenta_seq", sequenceName = "outbox_cliente_cuenta_seq", allocationSize = 50)
+  private Long id;
+
+  @Column(name = "cliente_id", nullable = false, length = 50)
+  private String clienteId;
+
+  @Column(name = "numero_cuenta", nullable = false)
+  private Long numeroCuenta;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "fecha_creacion", nullable = false)
+  private Date fechaCreacion;
+
+  public static EventoClienteCuenta de(Cuenta cuenta) {
+    return new EventoClienteCuenta(null, cuenta.getClienteId(), cuenta.getNumeroCuenta(), new Date());
+  }
+}
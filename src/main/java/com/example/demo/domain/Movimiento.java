@@ -5,8 +5,10 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
@@ -18,21 +20,25 @@ import lombok.NoArgsConstructor;
 import jakarta.persistence.FetchType;
 
 @Entity
-@Table(name = "movimiento")
+@Table(name = "movimiento", indexes = @Index(name = "idx_movimiento_cuenta_fecha", columnList = "numero_cuenta, fecha_movimiento, numero_movimiento"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Movimiento {
 
+  /** Longitud de movimiento.tipo_movimiento. */
+  public static final int MAXIMO_TIPO_MOVIMIENTO = 20;
+
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movimiento_seq")
+  @SequenceGenerator(name = "movimiento_seq", sequenceName = "movimiento_seq", allocationSize = 50)
   private Long numeroMovimiento;
 
   @Temporal(TemporalType.TIMESTAMP)
   @Column(nullable = false)
   private Date fechaMovimiento;
 
-  @Column(nullable = false, length = 20)
+  @Column(nullable = false, length = MAXIMO_TIPO_MOVIMIENTO)
   private String tipoMovimiento;
 
   @Column(nullable = false, precision = 15, scale = 2)
@@ -0,0 +1,56 @@
+package com.example.demo;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resumen diario de una cuenta: saldo de apertura y cierre del día y totales de sus
+ * movimientos. Se mantiene de forma incremental al crear y editar movimientos.
+ */
+@Entity
+@Table(name = "saldo_diario")
+@IdClass(SaldoDiario.Clave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoDiario {
+
+  @Id
+  @Column(name = "numero_cuenta")
+  private Long numeroCuenta;
+
+  @Id
+  private LocalDate fecha;
+
+  @Column(nullable = false, precision = 15, scale = 2)
+  private BigDecimal saldoApertura;
+
+  @Column(nullable = false, precision = 15, scale = 2)
+  private BigDecimal saldoCierre;
+
+  @Column(nullable = false, precision = 17, scale = 2)
+  private BigDecimal totalDebitos;
+
+  @Column(nullable = false, precision = 17, scale = 2)
+  private BigDecimal totalCreditos;
+
+  @Column(nullable = false)
+  private Integer totalMovimientos;
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Clave implements Serializable {
+    private Long numeroCuenta;
+    private LocalDate fecha;
+  }
+}
@@ -0,0 +1,42 @@
+package com.example.demo;
+
+import java.math.BigDecimal;
+
+/**
+ * Acumulador de débitos, créditos y número de movimientos en centavos. Los débitos se
+ * acumulan en positivo.
+ */
+public final class TotalesMovimientos {
+
+    private long debitos;
+    private long creditos;
+    private int movimientos;
+
+    /**
+     * @throws ArithmeticException si el valor no es un importe en centavos o el total desborda
+     */
+    public void agregar(BigDecimal valor) {
+        agregar(Centavos.de(valor));
+    }
+
+    public void agregar(long centavos) {
+        if (centavos < 0) {
+            debitos = Math.subtractExact(debitos, centavos);
+        } else {
+            creditos = Math.addExact(creditos, centavos);
+        }
+        movimientos++;
+    }
+
+    public int getMovimientos() {
+        return movimientos;
+    }
+
+    public BigDecimal getDebitos() {
+        return Centavos.aBigDecimal(debitos);
+    }
+
+    public BigDecimal getCreditos() {
+        return Centavos.aBigDecimal(creditos);
+    }
+}
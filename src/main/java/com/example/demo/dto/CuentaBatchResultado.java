@@ -0,0 +1,34 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de un elemento del alta masiva de cuentas, en la misma posición (indice) que
+ * tenía en la petición.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CuentaBatchResultado {
+
+  public static final String ACEPTADO = "ACEPTADO";
+  public static final String RECHAZADO = "RECHAZADO";
+
+  private int indice;
+  private String estado;
+  private String mensaje;
+  private Long numeroCuenta;
+  private String clienteId;
+
+  public static CuentaBatchResultado aceptado(int indice, Cuenta cuenta) {
+    return new CuentaBatchResultado(indice, ACEPTADO, null, cuenta.getNumeroCuenta(), cuenta.getClienteId());
+  }
+
+  public static CuentaBatchResultado rechazado(int indice, String clienteId, String mensaje) {
+    return new CuentaBatchResultado(indice, RECHAZADO, mensaje, null, clienteId);
+  }
+}
@@ -0,0 +1,15 @@
+package com.example.demo;
+
+import java.math.BigDecimal;
+
+/**
+ * Cuenta tal como se devuelve en las lecturas; inmutable, por lo que también es lo que guarda
+ * la caché de cuentas.
+ */
+public record CuentaDto(
+    Long numeroCuenta,
+    String tipoCuenta,
+    BigDecimal saldoInicial,
+    String estado,
+    String clienteId) {
+}
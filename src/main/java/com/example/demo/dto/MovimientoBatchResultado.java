@@ -0,0 +1,37 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de un elemento de la carga masiva de movimientos, en la misma
+ * posición (indice) que tenía en la petición.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovimientoBatchResultado {
+
+  public static final String ACEPTADO = "ACEPTADO";
+  public static final String RECHAZADO = "RECHAZADO";
+
+  private int indice;
+  private String estado;
+  private String mensaje;
+  private Long numeroMovimiento;
+  private Long numeroCuenta;
+  private BigDecimal saldo;
+
+  public static MovimientoBatchResultado aceptado(int indice, Movimiento movimiento) {
+    return new MovimientoBatchResultado(indice, ACEPTADO, null, movimiento.getNumeroMovimiento(),
+        movimiento.getCuenta().getNumeroCuenta(), movimiento.getSaldo());
+  }
+
+  public static MovimientoBatchResultado rechazado(int indice, Long numeroCuenta, String mensaje) {
+    return new MovimientoBatchResultado(indice, RECHAZADO, mensaje, null, numeroCuenta, null);
+  }
+}
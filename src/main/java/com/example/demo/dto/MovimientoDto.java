@@ -0,0 +1,17 @@
+package com.example.demo;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Movimiento tal como se devuelve en las lecturas: solo el número de la cuenta, sin la
+ * entidad Cuenta.
+ */
+public record MovimientoDto(
+    Long numeroMovimiento,
+    Date fechaMovimiento,
+    String tipoMovimiento,
+    BigDecimal valor,
+    BigDecimal saldo,
+    Long numeroCuenta) {
+}
@@ -0,0 +1,60 @@
+package com.example.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página de resultados con paginación por clave (keyset). {@code siguiente} es un token opaco
+ * que se envía como {@code cursor} para pedir la página siguiente; es null en la última página.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Pagina<T> {
+
+  private static final String PREFIJO = "k1:";
+
+  private List<T> contenido;
+  private String siguiente;
+
+  /**
+   * Construye la página a partir de una consulta que pidió {@code tamano + 1} filas: la fila
+   * extra solo indica que existe una página siguiente.
+   */
+  public static <T> Pagina<T> de(List<T> filas, int tamano, Function<T, Long> clave) {
+    if (filas.size() <= tamano) {
+      return new Pagina<>(filas, null);
+    }
+    List<T> contenido = filas.subList(0, tamano);
+    return new Pagina<>(contenido, codificarCursor(clave.apply(contenido.get(tamano - 1))));
+  }
+
+  public static String codificarCursor(Long ultimaClave) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString((PREFIJO + ultimaClave).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return la última clave entregada, o 0 si no hay cursor
+   * @throws IllegalArgumentException si el token no fue generado por {@link #codificarCursor}
+   */
+  public static long decodificarCursor(String cursor) {
+    if (cursor == null || cursor.isEmpty()) {
+      return 0L;
+    }
+    try {
+      String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      if (!valor.startsWith(PREFIJO)) {
+        throw new IllegalArgumentException("Token de continuación inválido");
+      }
+      return Long.parseLong(valor.substring(PREFIJO.length()));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Token de continuación inválido");
+    }
+  }
+}
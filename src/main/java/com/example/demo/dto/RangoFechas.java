@@ -0,0 +1,74 @@
+package com.example.demo;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Rango de fechas de un reporte: desde el inicio del primer día (00:00:00.000) hasta el
+ * final del último (23:59:59.999).
+ */
+public record RangoFechas(Date inicio, Date fin) {
+
+    /**
+     * Interpreta el parámetro {@code fecha} con formato fechaInicio,fechaFin (yyyy-MM-dd).
+     *
+     * @throws IllegalArgumentException con el mensaje para el cliente si el parámetro no es válido
+     */
+    public static RangoFechas parse(String fecha) {
+        if (fecha == null || fecha.isEmpty()) {
+            throw new IllegalArgumentException("El parámetro fecha es requerido. Formato: fechaInicio,fechaFin (yyyy-MM-dd)");
+        }
+
+        // Parsear rango de fechas
+        String[] fechas = fecha.split(",");
+        if (fechas.length != 2) {
+            throw new IllegalArgumentException("Formato de fecha incorrecto. Use: fechaInicio,fechaFin (yyyy-MM-dd)");
+        }
+
+        SimpleDateFormat sdf = formato();
+        Date fechaInicio;
+        Date fechaFin;
+        try {
+            // Establecer hora inicio del día para fechaInicio (00:00:00.000)
+            Calendar calInicio = Calendar.getInstance();
+            calInicio.setTime(sdf.parse(fechas[0].trim()));
+            calInicio.set(Calendar.HOUR_OF_DAY, 0);
+            calInicio.set(Calendar.MINUTE, 0);
+            calInicio.set(Calendar.SECOND, 0);
+            calInicio.set(Calendar.MILLISECOND, 0);
+            fechaInicio = calInicio.getTime();
+
+            // Establecer hora fin del día para fechaFin (23:59:59.999)
+            Calendar calFin = Calendar.getInstance();
+            calFin.setTime(sdf.parse(fechas[1].trim()));
+            calFin.set(Calendar.HOUR_OF_DAY, 23);
+            calFin.set(Calendar.MINUTE, 59);
+            calFin.set(Calendar.SECOND, 59);
+            calFin.set(Calendar.MILLISECOND, 999);
+            fechaFin = calFin.getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Formato de fecha inválido. Use: yyyy-MM-dd");
+        }
+
+        if (fechaInicio.after(fechaFin)) {
+            throw new IllegalArgumentException("La fecha de inicio debe ser anterior a la fecha de fin");
+        }
+        return new RangoFechas(fechaInicio, fechaFin);
+    }
+
+    public String inicioFormateado() {
+        return formato().format(inicio);
+    }
+
+    public String finFormateado() {
+        return formato().format(fin);
+    }
+
+    private static SimpleDateFormat formato() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+        sdf.setLenient(false);
+        return sdf;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Fila plana del reporte: una cuenta del cliente junto con uno de sus movimientos en el
+ * rango. Las cuentas sin movimientos en el rango aparecen una vez con los campos del
+ * movimiento en null.
+ */
+public record ReporteFila(
+    Long numeroCuenta,
+    String tipoCuenta,
+    BigDecimal saldoInicial,
+    String estado,
+    Long numeroMovimiento,
+    Date fechaMovimiento,
+    String tipoMovimiento,
+    BigDecimal valor,
+    BigDecimal saldo) {
+}
@@ -0,0 +1,17 @@
+package com.example.demo;
+
+import java.math.BigDecimal;
+
+/**
+ * Totales de una cuenta en el rango del reporte, calculados a partir de los resúmenes
+ * diarios. Los totales son null si la cuenta no tuvo movimientos en el rango.
+ */
+public record ReporteTotalesFila(
+    Long numeroCuenta,
+    String tipoCuenta,
+    BigDecimal saldoInicial,
+    String estado,
+    Long totalMovimientos,
+    BigDecimal totalDebitos,
+    BigDecimal totalCreditos) {
+}
@@ -0,0 +1,11 @@
+package com.example.demo;
+
+/**
+ * La cuenta referenciada por un movimiento no existe.
+ */
+public class CuentaNoEncontradaException extends RuntimeException {
+
+    public CuentaNoEncontradaException(Long numeroCuenta) {
+        super("Cuenta no encontrada: " + numeroCuenta);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo;
+
+/**
+ * El ledger en memoria no puede aceptar el movimiento (saturado, diario fallido o sin respuesta
+ * a tiempo). No indica que el movimiento se haya rechazado por la cuenta.
+ */
+public class LedgerNoDisponibleException extends RuntimeException {
+
+    public LedgerNoDisponibleException(String mensaje) {
+        super(mensaje);
+    }
+
+    public LedgerNoDisponibleException(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * El reporte no se admite por carga: 429 si el cliente ya tiene demasiados reportes en curso,
+ * 503 si se alcanzó el límite global. Incluye los segundos recomendados para reintentar.
+ */
+public class ReporteRechazadoException extends RuntimeException {
+
+    private final HttpStatus estado;
+    private final long reintentarEnSegundos;
+
+    public ReporteRechazadoException(String mensaje, HttpStatus estado, long reintentarEnSegundos) {
+        super(mensaje);
+        this.estado = estado;
+        this.reintentarEnSegundos = reintentarEnSegundos;
+    }
+
+    public HttpStatus getEstado() {
+        return estado;
+    }
+
+    public long getReintentarEnSegundos() {
+        return reintentarEnSegundos;
+    }
+}
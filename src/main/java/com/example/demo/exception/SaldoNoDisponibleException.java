@@ -0,0 +1,11 @@
+package com.example.demo;
+
+/**
+ * El movimiento dejaría la cuenta con saldo negativo.
+ */
+public class SaldoNoDisponibleException extends RuntimeException {
+
+    public SaldoNoDisponibleException(Long numeroCuenta) {
+        super("Saldo no disponible en la cuenta " + numeroCuenta);
+    }
+}
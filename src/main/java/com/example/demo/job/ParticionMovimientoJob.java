@@ -0,0 +1,183 @@
+package com.example.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Mantenimiento de las particiones mensuales de movimiento (ver basedatos.sql).
+ *
+ * Crea por adelantado las particiones del mes en curso y de los próximos meses, para que los
+ * movimientos nuevos no caigan en la partición por defecto, y separa las particiones más
+ * antiguas que la retención configurada moviéndolas al esquema de archivo: dejan de recorrerse
+ * en las consultas y en el mantenimiento de índices, pero siguen disponibles para consulta
+ * directa. Si movimiento no está particionada, no hace nada.
+ *
+ * Las particiones se separan con DETACH PARTITION CONCURRENTLY, que no bloquea las lecturas ni
+ * las escrituras de movimiento. PostgreSQL no lo permite si existe una partición por defecto
+ * (movimiento_default en basedatos.sql); en ese caso se usa DETACH PARTITION, que bloquea
+ * movimiento durante la operación, normalmente breve.
+ */
+@Component
+public class ParticionMovimientoJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ParticionMovimientoJob.class);
+    private static final DateTimeFormatter SUFIJO = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String PREFIJO = "movimiento_p";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${cuenta.movimiento.particiones.meses-adelante:3}")
+    private int mesesAdelante;
+
+    /** Meses completos que se mantienen en movimiento además del mes en curso (0 = todos). */
+    @Value("${cuenta.movimiento.particiones.retencion-meses:0}")
+    private int retencionMeses;
+
+    @Value("${cuenta.movimiento.particiones.esquema-archivo:archivo}")
+    private String esquemaArchivo;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        mantener();
+    }
+
+    @Scheduled(cron = "${cuenta.movimiento.particiones.cron:0 15 3 * * *}")
+    public void programado() {
+        mantener();
+    }
+
+    public synchronized void mantener() {
+        if (!particionada()) {
+            log.debug("La tabla movimiento no está particionada; no se crean particiones");
+            return;
+        }
+        finalizarSeparacionesPendientes();
+        YearMonth actual = YearMonth.now();
+        for (int i = 0; i <= mesesAdelante; i++) {
+            crear(actual.plusMonths(i));
+        }
+        if (retencionMeses > 0) {
+            archivarAnterioresA(actual.minusMonths(retencionMeses));
+        }
+    }
+
+    private boolean particionada() {
+        try {
+            Boolean particionada = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid "
+                            + "WHERE c.relname = 'movimiento' AND c.relnamespace = current_schema()::regnamespace)", Boolean.class);
+            return Boolean.TRUE.equals(particionada);
+        } catch (DataAccessException e) {
+            // Otra base de datos (H2 en las pruebas)
+            return false;
+        }
+    }
+
+    /**
+     * Primer día cuyos movimientos siguen en movimiento: el siguiente al último mes archivado,
+     * o vacío si no hay particiones archivadas.
+     */
+    public Optional<LocalDate> inicioNoArchivado() {
+        List<String> archivadas;
+        try {
+            archivadas = jdbcTemplate.queryForList(
+                    "SELECT c.relname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+                            + "WHERE n.nspname = ? AND c.relname LIKE '" + PREFIJO + "%'", String.class, esquemaArchivo);
+        } catch (DataAccessException e) {
+            // Otra base de datos (H2 en las pruebas)
+            return Optional.empty();
+        }
+        return archivadas.stream()
+                .map(this::mes)
+                .flatMap(Optional::stream)
+                .max(YearMonth::compareTo)
+                .map(mes -> mes.plusMonths(1).atDay(1));
+    }
+
+    /**
+     * Un DETACH PARTITION CONCURRENTLY interrumpido deja la partición pendiente de separar; se
+     * completa antes de seguir.
+     */
+    private void finalizarSeparacionesPendientes() {
+        List<String> pendientes;
+        try {
+            pendientes = jdbcTemplate.queryForList(
+                    "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                            + "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = 'movimiento' "
+                            + "AND p.relnamespace = current_schema()::regnamespace AND i.inhdetachpending", String.class);
+        } catch (DataAccessException e) {
+            // PostgreSQL anterior a 14, sin separación concurrente
+            return;
+        }
+        for (String particion : pendientes) {
+            jdbcTemplate.execute("ALTER TABLE movimiento DETACH PARTITION " + particion + " FINALIZE");
+            log.info("Separación pendiente de la partición {} de movimiento completada", particion);
+        }
+    }
+
+    private boolean tieneParticionPorDefecto() {
+        Boolean existe = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid "
+                        + "WHERE c.relname = 'movimiento' AND c.relnamespace = current_schema()::regnamespace "
+                        + "AND p.partdefid <> 0)", Boolean.class);
+        return Boolean.TRUE.equals(existe);
+    }
+
+    private Optional<YearMonth> mes(String particion) {
+        try {
+            return Optional.of(YearMonth.parse(particion.substring(PREFIJO.length()), SUFIJO));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void crear(YearMonth mes) {
+        String particion = PREFIJO + mes.format(SUFIJO);
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + particion + " PARTITION OF movimiento FOR VALUES FROM ('"
+                    + mes.atDay(1) + "') TO ('" + mes.plusMonths(1).atDay(1) + "')");
+        } catch (DataAccessException e) {
+            // Normalmente, movimientos de ese mes ya guardados en la partición por defecto
+            log.error("No se pudo crear la partición {} de movimiento", particion, e);
+        }
+    }
+
+    /**
+     * Separa las particiones mensuales anteriores a {@code limite} y las mueve al esquema de
+     * archivo. Los resúmenes de saldo_diario de esos meses se conservan.
+     */
+    private void archivarAnterioresA(YearMonth limite) {
+        List<String> particiones = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = 'movimiento' "
+                        + "AND p.relnamespace = current_schema()::regnamespace AND c.relname LIKE '" + PREFIJO + "%' "
+                        + "ORDER BY c.relname", String.class);
+        // Fuera de transacción: DETACH PARTITION CONCURRENTLY no puede ejecutarse dentro de una
+        String separar = tieneParticionPorDefecto() ? "" : " CONCURRENTLY";
+        for (String particion : particiones) {
+            Optional<YearMonth> mes = mes(particion);
+            if (mes.isEmpty() || !mes.get().isBefore(limite)) {
+                continue;
+            }
+            jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + esquemaArchivo);
+            jdbcTemplate.execute("ALTER TABLE movimiento DETACH PARTITION " + particion + separar);
+            jdbcTemplate.execute("ALTER TABLE " + particion + " SET SCHEMA " + esquemaArchivo);
+            log.info("Partición {} de movimiento archivada en {} (anterior a {})", particion, esquemaArchivo, limite.atDay(1));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reconstruye los resúmenes diarios de todas las cuentas (carga inicial o reparación).
+ * Recorre las cuentas por clave y reconstruye cada una en su propia transacción, así que solo
+ * bloquea una cuenta a la vez.
+ */
+@Component
+public class ReconstruccionSaldoDiarioJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconstruccionSaldoDiarioJob.class);
+    private static final int CUENTAS_POR_PAGINA = 1000;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private SaldoDiarioService saldoDiarioService;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+
+    /**
+     * Lanza la reconstrucción en segundo plano.
+     *
+     * @return false si ya hay una reconstrucción en curso
+     */
+    public boolean iniciar() {
+        if (!enCurso.compareAndSet(false, true)) {
+            return false;
+        }
+        taskExecutor.execute(() -> {
+            try {
+                reconstruirTodo();
+            } finally {
+                enCurso.set(false);
+            }
+        });
+        return true;
+    }
+
+    @Scheduled(cron = "${cuenta.saldo-diario.reconstruccion.cron:-}")
+    public void programado() {
+        if (!iniciar()) {
+            log.info("Reconstrucción de saldos diarios ya en curso; se omite la ejecución programada");
+        }
+    }
+
+    private void reconstruirTodo() {
+        long inicio = System.currentTimeMillis();
+        long despuesDe = 0L;
+        int total = 0;
+        List<Long> numerosCuenta;
+        do {
+            numerosCuenta = cuentaRepository.findNumerosCuenta(despuesDe, Limit.of(CUENTAS_POR_PAGINA));
+            for (Long numeroCuenta : numerosCuenta) {
+                saldoDiarioService.reconstruir(numeroCuenta);
+                despuesDe = numeroCuenta;
+                total++;
+            }
+        } while (numerosCuenta.size() == CUENTAS_POR_PAGINA);
+        log.info("Saldos diarios reconstruidos para {} cuentas en {} ms", total, System.currentTimeMillis() - inicio);
+    }
+}
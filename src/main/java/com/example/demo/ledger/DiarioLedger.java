@@ -0,0 +1,314 @@
+package com.example.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario de escritura anticipada (WAL) del ledger: segmentos de solo añadir en un directorio
+ * local, con confirmación en grupo.
+ *
+ * Un único hilo escritor toma todos los registros que se han acumulado mientras esperaba el
+ * fsync anterior (hasta grupoMaximo), los escribe seguidos y hace un solo fsync para todos; las
+ * peticiones solo se confirman después. Con muchas peticiones concurrentes el coste del fsync se
+ * reparte entre cientos de movimientos.
+ *
+ * Formato de cada registro: longitud (int), CRC32C del contenido (int) y contenido. Al
+ * recuperar, el primer registro incompleto o con CRC distinto marca el final del diario (una
+ * escritura cortada por la caída) y se trunca ahí. Por eso un registro que supere
+ * MAXIMO_REGISTRO se rechaza al anotarlo: si se escribiera, la recuperación lo tomaría por el
+ * final del diario y descartaría todo lo posterior.
+ */
+public class DiarioLedger implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DiarioLedger.class);
+    private static final String EXTENSION = ".wal";
+    private static final int CABECERA = 8;
+    private static final int MAXIMO_REGISTRO = 1024;
+    /** Seis long y la longitud (short) de cada texto. */
+    private static final int FIJO_REGISTRO = 6 * Long.BYTES + 2 * Short.BYTES;
+
+    private final Path directorio;
+    private final long tamanoSegmento;
+    private final int grupoMaximo;
+
+    /** Primer lsn de cada segmento → fichero. */
+    private final ConcurrentSkipListMap<Long, Path> segmentos = new ConcurrentSkipListMap<>();
+    private final BlockingQueue<Pendiente> cola = new LinkedBlockingQueue<>();
+
+    private FileChannel canal;
+    private long siguienteLsn = 1;
+    private ByteBuffer buffer;
+    private Thread escritor;
+    private volatile Exception fallo;
+
+    private record Pendiente(RegistroLedger registro, CompletableFuture<RegistroLedger> confirmado) {
+    }
+
+    /** Marca de cierre: el escritor termina después de escribir lo encolado antes. */
+    private static final Pendiente FIN = new Pendiente(null, null);
+
+    public DiarioLedger(Path directorio, long tamanoSegmento, int grupoMaximo) {
+        this.directorio = directorio;
+        this.tamanoSegmento = tamanoSegmento;
+        this.grupoMaximo = grupoMaximo;
+        this.buffer = ByteBuffer.allocateDirect(grupoMaximo * (CABECERA + MAXIMO_REGISTRO));
+    }
+
+    /**
+     * Lee el diario existente y entrega, en orden, los registros con lsn mayor que
+     * {@code volcadoHasta}. Debe llamarse una vez, antes de {@link #iniciar}.
+     */
+    public void recuperar(long volcadoHasta, Consumer<RegistroLedger> pendiente) throws IOException {
+        Files.createDirectories(directorio);
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            ficheros.filter(f -> f.getFileName().toString().endsWith(EXTENSION))
+                    .forEach(f -> segmentos.put(primerLsn(f), f));
+        }
+        for (Map.Entry<Long, Path> segmento : segmentos.entrySet()) {
+            long ultimo = leerSegmento(segmento.getValue(), volcadoHasta, pendiente);
+            siguienteLsn = Math.max(siguienteLsn, Math.max(segmento.getKey(), ultimo + 1));
+        }
+        // Sin segmentos (directorio nuevo o perdido) los lsn no pueden volver a empezar por debajo de
+        // lo volcado: al recuperar se saltarían como si ya estuvieran en la base de datos
+        siguienteLsn = Math.max(siguienteLsn, volcadoHasta + 1);
+    }
+
+    /**
+     * Abre un segmento nuevo y arranca el hilo escritor. {@code alConfirmar} recibe cada grupo
+     * ya persistido, en orden de lsn, desde el hilo escritor.
+     */
+    public void iniciar(Consumer<List<RegistroLedger>> alConfirmar) throws IOException {
+        abrirSegmento();
+        escritor = Thread.ofPlatform().name("ledger-diario").daemon().start(() -> escribir(alConfirmar));
+    }
+
+    /**
+     * Encola el registro; el futuro se completa con el lsn asignado una vez persistido, o con
+     * excepción si el diario ha fallado o el registro no cabe (ver {@link #cabe}).
+     */
+    public CompletableFuture<RegistroLedger> anotar(RegistroLedger registro) {
+        CompletableFuture<RegistroLedger> confirmado = new CompletableFuture<>();
+        if (fallo != null) {
+            confirmado.completeExceptionally(fallo);
+        } else if (!cabe(registro.tipoMovimiento(), registro.clienteId())) {
+            confirmado.completeExceptionally(new IllegalArgumentException(
+                    "El movimiento " + registro.numeroMovimiento() + " supera el tamaño máximo de registro del diario"));
+        } else {
+            cola.add(new Pendiente(registro, confirmado));
+        }
+        return confirmado;
+    }
+
+    /**
+     * Indica si un registro con estos textos cabe en MAXIMO_REGISTRO una vez codificado.
+     */
+    public static boolean cabe(String tipoMovimiento, String clienteId) {
+        return FIJO_REGISTRO + bytes(tipoMovimiento).length + bytes(clienteId).length <= MAXIMO_REGISTRO;
+    }
+
+    public boolean isFallido() {
+        return fallo != null;
+    }
+
+    /**
+     * Borra los segmentos cuyos registros están todos volcados (lsn <= volcadoHasta). El
+     * segmento en uso nunca se borra.
+     */
+    public void liberarHasta(long volcadoHasta) {
+        Long actual = segmentos.isEmpty() ? null : segmentos.lastKey();
+        for (Map.Entry<Long, Path> segmento : segmentos.entrySet()) {
+            Long siguiente = segmentos.higherKey(segmento.getKey());
+            if (segmento.getKey().equals(actual) || siguiente == null || siguiente - 1 > volcadoHasta) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segmento.getValue());
+                segmentos.remove(segmento.getKey());
+            } catch (IOException e) {
+                log.warn("No se pudo borrar el segmento {} del diario", segmento.getValue(), e);
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (escritor != null) {
+            cola.add(FIN);
+            try {
+                escritor.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (canal != null) {
+            canal.close();
+        }
+    }
+
+    private void escribir(Consumer<List<RegistroLedger>> alConfirmar) {
+        List<Pendiente> grupo = new ArrayList<>(grupoMaximo);
+        boolean fin = false;
+        while (!fin) {
+            try {
+                grupo.add(cola.take());
+                cola.drainTo(grupo, grupoMaximo - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            fin = grupo.remove(FIN);
+            if (grupo.isEmpty()) {
+                continue;
+            }
+            List<RegistroLedger> anotados = new ArrayList<>(grupo.size());
+            try {
+                if (canal.size() >= tamanoSegmento) {
+                    canal.force(false);
+                    canal.close();
+                    abrirSegmento();
+                }
+                buffer.clear();
+                for (Pendiente pendiente : grupo) {
+                    RegistroLedger registro = pendiente.registro().conLsn(siguienteLsn++);
+                    codificar(registro, buffer);
+                    anotados.add(registro);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+                canal.force(false);
+            } catch (IOException | RuntimeException e) {
+                // Sin garantías sobre lo escrito: se deja de aceptar hasta reiniciar y recuperar
+                log.error("Error escribiendo el diario del ledger; se rechazan los movimientos hasta reiniciar", e);
+                fallo = e;
+                grupo.forEach(p -> p.confirmado().completeExceptionally(e));
+                List<Pendiente> restantes = new ArrayList<>();
+                cola.drainTo(restantes);
+                restantes.stream().filter(p -> p != FIN).forEach(p -> p.confirmado().completeExceptionally(e));
+                return;
+            }
+            alConfirmar.accept(anotados);
+            for (int i = 0; i < grupo.size(); i++) {
+                grupo.get(i).confirmado().complete(anotados.get(i));
+            }
+            grupo.clear();
+        }
+    }
+
+    private void abrirSegmento() throws IOException {
+        Path fichero = directorio.resolve(String.format("%020d%s", siguienteLsn, EXTENSION));
+        canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentos.put(siguienteLsn, fichero);
+        // La entrada del directorio también debe sobrevivir a una caída
+        try (FileChannel dir = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.debug("El sistema de ficheros no permite sincronizar el directorio {}", directorio);
+        }
+    }
+
+    private long leerSegmento(Path fichero, long volcadoHasta, Consumer<RegistroLedger> pendiente) throws IOException {
+        long ultimo = 0;
+        try (FileChannel lectura = FileChannel.open(fichero, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer datos = ByteBuffer.wrap(Files.readAllBytes(fichero));
+            int valido = 0;
+            while (datos.remaining() >= CABECERA) {
+                int longitud = datos.getInt();
+                int crc = datos.getInt();
+                if (longitud <= 0 || longitud > MAXIMO_REGISTRO || datos.remaining() < longitud) {
+                    break;
+                }
+                ByteBuffer contenido = datos.slice(datos.position(), longitud);
+                CRC32C calculado = new CRC32C();
+                calculado.update(contenido.duplicate());
+                if ((int) calculado.getValue() != crc) {
+                    break;
+                }
+                datos.position(datos.position() + longitud);
+                RegistroLedger registro = decodificar(contenido);
+                ultimo = registro.lsn();
+                if (registro.lsn() > volcadoHasta) {
+                    pendiente.accept(registro);
+                }
+                valido = datos.position();
+            }
+            if (valido < datos.limit()) {
+                log.warn("Diario {} truncado en el byte {} de {} (escritura incompleta)", fichero, valido, datos.limit());
+                lectura.truncate(valido);
+                lectura.force(false);
+            }
+        }
+        return ultimo;
+    }
+
+    static void codificar(RegistroLedger registro, ByteBuffer destino) {
+        int inicio = destino.position();
+        destino.position(inicio + CABECERA);
+        destino.putLong(registro.lsn());
+        destino.putLong(registro.numeroMovimiento());
+        destino.putLong(registro.numeroCuenta());
+        destino.putLong(registro.fecha());
+        destino.putLong(registro.valor());
+        destino.putLong(registro.saldo());
+        texto(registro.tipoMovimiento(), destino);
+        texto(registro.clienteId(), destino);
+        int fin = destino.position();
+        CRC32C crc = new CRC32C();
+        crc.update(destino.slice(inicio + CABECERA, fin - inicio - CABECERA));
+        destino.putInt(inicio, fin - inicio - CABECERA);
+        destino.putInt(inicio + 4, (int) crc.getValue());
+    }
+
+    static RegistroLedger decodificar(ByteBuffer origen) {
+        long lsn = origen.getLong();
+        long numeroMovimiento = origen.getLong();
+        long numeroCuenta = origen.getLong();
+        long fecha = origen.getLong();
+        long valor = origen.getLong();
+        long saldo = origen.getLong();
+        String tipoMovimiento = texto(origen);
+        String clienteId = texto(origen);
+        return new RegistroLedger(lsn, numeroMovimiento, numeroCuenta, clienteId, fecha, tipoMovimiento, valor, saldo);
+    }
+
+    private static void texto(String valor, ByteBuffer destino) {
+        byte[] bytes = bytes(valor);
+        destino.putShort((short) bytes.length);
+        destino.put(bytes);
+    }
+
+    private static byte[] bytes(String valor) {
+        return valor == null ? new byte[0] : valor.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String texto(ByteBuffer origen) {
+        byte[] bytes = new byte[origen.getShort()];
+        origen.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long primerLsn(Path fichero) {
+        String nombre = fichero.getFileName().toString();
+        return Long.parseLong(nombre.substring(0, nombre.length() - EXTENSION.length()));
+    }
+}
@@ -0,0 +1,783 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Modo ledger de POST /movimientos (cuenta.ledger.activo): los saldos de las cuentas activas
+ * viven en memoria y el movimiento se confirma en cuanto queda en el diario local, sin esperar
+ * a la base de datos.
+ *
+ * Cada cuenta pertenece a una partición con un único hilo, que es el único que lee y modifica
+ * su saldo: la comprobación de saldo no disponible no necesita bloqueos. Los movimientos
+ * aceptados se anotan en el {@link DiarioLedger} (fsync en grupo) y un hilo volcador los
+ * inserta después por lotes en movimiento, cuenta y saldo_diario, guardando en la misma
+ * transacción hasta qué posición del diario está volcado (ledger_volcado). Al arrancar se
+ * vuelca lo que quedara pendiente en el diario antes de aceptar movimientos.
+ *
+ * Los saldos en memoria solo son correctos si ninguna otra instancia escribe movimientos en las
+ * mismas cuentas, así que solo puede haber una instancia con el ledger activo: al arrancar toma
+ * un advisory lock de sesión de PostgreSQL en una conexión propia, fuera del pool, y si otra
+ * instancia lo tiene el arranque falla. Si esa conexión se pierde, no se aceptan movimientos
+ * hasta recuperar el lock.
+ *
+ * Las demás escrituras de saldo (edición de movimientos, carga masiva, PUT /cuentas) se
+ * ejecutan dentro de {@link #conCuentasSuspendidas}, antes de abrir su transacción: sus
+ * movimientos nuevos esperan, se vuelcan los pendientes y, al terminar, la cuenta se vuelve a
+ * leer de la base de datos.
+ */
+@Service
+public class LedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerService.class);
+
+    /** INCREMENT BY de movimiento_seq; con el optimizador pooled-lo cada valor reserva [valor, valor + 50). */
+    private static final int IDS_POR_BLOQUE = 50;
+
+    /** Clave del advisory lock que reserva el ledger para una única instancia. */
+    private static final long CLAVE_EXCLUSIVA = 0x4C45444745520001L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SaldoDiarioService saldoDiarioService;
+
+    @Autowired
+    private CuentaCache cuentaCache;
+
+    @Autowired
+    private ReporteCache reporteCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${cuenta.ledger.activo:false}")
+    private boolean activo;
+
+    @Value("${cuenta.ledger.directorio:ledger}")
+    private String directorio;
+
+    /** Identifica el diario de esta instancia en ledger_volcado. */
+    @Value("${cuenta.ledger.nodo:local}")
+    private String nodo;
+
+    @Value("${cuenta.ledger.particiones:0}")
+    private int numeroParticiones;
+
+    @Value("${cuenta.ledger.cuentas-por-particion:100000}")
+    private int cuentasPorParticion;
+
+    @Value("${cuenta.ledger.pendientes-maximos:100000}")
+    private int pendientesMaximos;
+
+    @Value("${cuenta.ledger.grupo-maximo:2000}")
+    private int grupoMaximo;
+
+    @Value("${cuenta.ledger.segmento:64MB}")
+    private DataSize tamanoSegmento;
+
+    @Value("${cuenta.ledger.volcado.tamano-lote:5000}")
+    private int tamanoLoteVolcado;
+
+    @Value("${cuenta.ledger.volcado.intervalo:200ms}")
+    private Duration intervaloVolcado;
+
+    @Value("${cuenta.ledger.espera:10s}")
+    private Duration espera;
+
+    /** Ver basedatos.sql. */
+    private static final String CREAR_LEDGER_APARTADO = "CREATE TABLE IF NOT EXISTS ledger_apartado ("
+            + "nodo VARCHAR(100) NOT NULL, lsn BIGINT NOT NULL, numero_movimiento BIGINT NOT NULL, numero_cuenta BIGINT NOT NULL, "
+            + "cliente_id TEXT, fecha TIMESTAMP NOT NULL, tipo_movimiento TEXT, valor_centavos BIGINT NOT NULL, "
+            + "saldo_centavos BIGINT NOT NULL, error TEXT, fecha_apartado TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+            + "PRIMARY KEY (nodo, lsn))";
+
+    /** Cuentas suspendidas por el hilo actual. */
+    private final ThreadLocal<Set<Long>> suspendidas = ThreadLocal.withInitial(Set::of);
+
+    private DiarioLedger diario;
+    private Particion[] particiones;
+    private Semaphore admision;
+    private Thread volcador;
+    private volatile boolean cerrando;
+
+    /** Conexión que mantiene el advisory lock; null con otra base de datos (H2 en las pruebas). */
+    private Connection exclusiva;
+    private volatile boolean exclusivo;
+    private long exclusivaComprobada;
+
+    private final BlockingQueue<RegistroLedger> porVolcar = new LinkedBlockingQueue<>();
+
+    private Timer duracionVolcado;
+    private Counter fallosVolcado;
+    private Counter apartados;
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    @PostConstruct
+    void iniciar() throws IOException, SQLException {
+        if (!activo) {
+            return;
+        }
+        if (!reservarExclusiva()) {
+            throw new IllegalStateException("Otra instancia tiene el ledger activo (advisory lock " + CLAVE_EXCLUSIVA
+                    + "); solo puede haber una con cuenta.ledger.activo=true");
+        }
+        duracionVolcado = Timer.builder("ledger.volcado").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        fallosVolcado = meterRegistry.counter("ledger.volcado.fallos");
+        apartados = meterRegistry.counter("ledger.volcado.apartados");
+        DistributionSummary grupos = DistributionSummary.builder("ledger.grupo.movimientos")
+                .description("Movimientos por fsync del diario").register(meterRegistry);
+        Gauge.builder("ledger.volcado.pendientes", porVolcar, BlockingQueue::size).register(meterRegistry);
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS ledger_volcado (nodo VARCHAR(100) PRIMARY KEY, posicion BIGINT NOT NULL)");
+        jdbcTemplate.execute(CREAR_LEDGER_APARTADO);
+        jdbcTemplate.update("INSERT INTO ledger_volcado (nodo, posicion) VALUES (?, 0) ON CONFLICT DO NOTHING", nodo);
+        long volcadoHasta = jdbcTemplate.queryForObject("SELECT posicion FROM ledger_volcado WHERE nodo = ?", Long.class, nodo);
+
+        // Recuperación: todo lo anotado y no volcado llega a la base de datos antes de aceptar nada
+        diario = new DiarioLedger(Path.of(directorio), tamanoSegmento.toBytes(), grupoMaximo);
+        List<RegistroLedger> pendientes = new ArrayList<>();
+        diario.recuperar(volcadoHasta, pendientes::add);
+        for (int desde = 0; desde < pendientes.size(); desde += tamanoLoteVolcado) {
+            volcarLote(pendientes.subList(desde, Math.min(desde + tamanoLoteVolcado, pendientes.size())));
+        }
+        if (!pendientes.isEmpty()) {
+            log.info("Ledger {}: {} movimientos recuperados del diario y volcados", nodo, pendientes.size());
+            diario.liberarHasta(pendientes.get(pendientes.size() - 1).lsn());
+        }
+
+        admision = new Semaphore(pendientesMaximos);
+        int cantidad = numeroParticiones > 0 ? numeroParticiones : Runtime.getRuntime().availableProcessors();
+        particiones = new Particion[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            particiones[i] = new Particion(i);
+        }
+        volcador = Thread.ofPlatform().name("ledger-volcado").start(this::volcar);
+        diario.iniciar(grupo -> {
+            grupos.record(grupo.size());
+            porVolcar.addAll(grupo);
+        });
+    }
+
+    @PreDestroy
+    void cerrar() throws IOException, InterruptedException {
+        if (!activo) {
+            return;
+        }
+        cerrando = true;
+        for (Particion particion : particiones) {
+            particion.hilo.interrupt();
+        }
+        diario.close();
+        // Lo que no llegue a volcarse sigue en el diario y se vuelca al arrancar
+        volcador.join(espera.toMillis());
+        liberarExclusiva();
+    }
+
+    /**
+     * Toma el advisory lock del ledger en una conexión nueva. Con una base de datos que no es
+     * PostgreSQL no hay nada que reservar.
+     *
+     * @return false si otra instancia tiene el lock
+     */
+    private boolean reservarExclusiva() throws SQLException {
+        String url = dataSourceProperties.determineUrl();
+        if (url == null || !url.startsWith("jdbc:postgresql:")) {
+            exclusivo = true;
+            return true;
+        }
+        Connection conexion = DriverManager.getConnection(url,
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+        try (PreparedStatement sentencia = conexion.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            sentencia.setLong(1, CLAVE_EXCLUSIVA);
+            try (ResultSet resultado = sentencia.executeQuery()) {
+                resultado.next();
+                exclusivo = resultado.getBoolean(1);
+            }
+        } catch (SQLException | RuntimeException e) {
+            conexion.close();
+            throw e;
+        }
+        if (exclusivo) {
+            exclusiva = conexion;
+        } else {
+            conexion.close();
+        }
+        return exclusivo;
+    }
+
+    /**
+     * Desde el hilo volcador, como mucho una vez por segundo: si la conexión del lock se ha
+     * perdido, el lock también, y se deja de aceptar movimientos hasta volver a tomarlo. Si
+     * mientras tanto otra instancia lo ha tomado, ya no se recupera.
+     */
+    private synchronized void comprobarExclusiva() {
+        if (exclusiva == null && exclusivo) {
+            return;
+        }
+        long ahora = System.nanoTime();
+        if (ahora - exclusivaComprobada < TimeUnit.SECONDS.toNanos(1)) {
+            return;
+        }
+        exclusivaComprobada = ahora;
+        try {
+            if (exclusiva != null && exclusiva.isValid(1)) {
+                return;
+            }
+            if (exclusivo) {
+                log.error("Ledger {}: se perdió la conexión del advisory lock; no se aceptan movimientos hasta recuperarlo", nodo);
+            }
+            exclusivo = false;
+            liberarExclusiva();
+            if (reservarExclusiva()) {
+                log.info("Ledger {}: advisory lock recuperado", nodo);
+            }
+        } catch (SQLException e) {
+            log.warn("Ledger {}: no se pudo recuperar el advisory lock: {}", nodo, e.getMessage());
+        }
+    }
+
+    private synchronized void liberarExclusiva() {
+        if (exclusiva == null) {
+            return;
+        }
+        try {
+            // Cerrar la sesión libera el lock
+            exclusiva.close();
+        } catch (SQLException e) {
+            log.warn("Ledger {}: error cerrando la conexión del advisory lock: {}", nodo, e.getMessage());
+        }
+        exclusiva = null;
+    }
+
+    /**
+     * Aplica el movimiento sobre el saldo en memoria y espera a que quede en el diario.
+     *
+     * @throws CuentaNoEncontradaException si la cuenta no existe
+     * @throws SaldoNoDisponibleException si el saldo resultante sería negativo
+     * @throws ArithmeticException si el valor tiene más de dos decimales o, como el saldo
+     *         resultante, no cabe en NUMERIC(15,2)
+     * @throws IllegalArgumentException si tipoMovimiento falta o supera su longitud en la tabla
+     * @throws LedgerNoDisponibleException si el ledger está saturado, ha fallado, ha perdido el
+     *         advisory lock o no responde en cuenta.ledger.espera; en este último caso el
+     *         movimiento puede haberse aplicado
+     */
+    public Movimiento registrar(Movimiento movimiento) {
+        if (diario.isFallido()) {
+            throw new LedgerNoDisponibleException("El diario del ledger no está disponible");
+        }
+        if (!exclusivo) {
+            throw new LedgerNoDisponibleException("El ledger no tiene la exclusividad sobre las cuentas");
+        }
+        // Lo que se confirma debe poder volcarse: se valida contra las restricciones de movimiento
+        String tipoMovimiento = movimiento.getTipoMovimiento();
+        if (tipoMovimiento == null || tipoMovimiento.isBlank() || tipoMovimiento.length() > Movimiento.MAXIMO_TIPO_MOVIMIENTO) {
+            throw new IllegalArgumentException("tipoMovimiento es requerido y admite como mucho " + Movimiento.MAXIMO_TIPO_MOVIMIENTO + " caracteres");
+        }
+        if (Math.abs(Centavos.de(movimiento.getValor())) > Centavos.MAXIMO_NUMERIC_15_2) {
+            throw new ArithmeticException("Valor fuera de rango");
+        }
+        Solicitud solicitud = new Solicitud(movimiento.getCuenta().getNumeroCuenta(), Centavos.de(movimiento.getValor()),
+                movimiento.getFechaMovimiento() != null ? movimiento.getFechaMovimiento().getTime() : 0L,
+                movimiento.getTipoMovimiento(), new CompletableFuture<>());
+        if (!admision.tryAcquire()) {
+            throw new LedgerNoDisponibleException("Ledger saturado");
+        }
+        try {
+            Particion particion = particion(solicitud.numeroCuenta());
+            particion.enviar(() -> particion.aceptar(solicitud));
+            return solicitud.resultado().get(espera.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LedgerNoDisponibleException("Registro del movimiento interrumpido", e);
+        } catch (TimeoutException e) {
+            throw new LedgerNoDisponibleException("El ledger no respondió a tiempo", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new LedgerNoDisponibleException("El diario del ledger no está disponible", e.getCause());
+        } finally {
+            admision.release();
+        }
+    }
+
+    /**
+     * Retira temporalmente las cuentas del ledger para modificarlas en la base de datos: espera
+     * a que sus movimientos pendientes estén volcados, ejecuta {@code accion} (que abre su propia
+     * transacción) reteniendo mientras tanto los movimientos nuevos, y al terminar las cuentas se
+     * vuelven a leer de la base de datos. Sin ledger activo solo ejecuta la acción.
+     *
+     * La espera no puede hacerse con una transacción abierta: retendría una conexión del pool
+     * que el volcado y las particiones necesitan para avanzar.
+     *
+     * @throws CannotAcquireLockException si el volcado no termina en cuenta.ledger.espera
+     * @throws IllegalStateException si se llama con una transacción activa
+     */
+    public <T> T conCuentasSuspendidas(Collection<Long> numerosCuenta, Supplier<T> accion) {
+        if (!activo || numerosCuenta.isEmpty()) {
+            return accion.get();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Las cuentas del ledger se suspenden antes de abrir la transacción");
+        }
+        Set<Long> cuentas = new LinkedHashSet<>(numerosCuenta);
+        List<CompletableFuture<Void>> volcadas = new ArrayList<>(cuentas.size());
+        for (Long numeroCuenta : cuentas) {
+            CompletableFuture<Void> volcada = new CompletableFuture<>();
+            Particion particion = particion(numeroCuenta);
+            particion.enviar(() -> particion.suspender(numeroCuenta, volcada));
+            volcadas.add(volcada);
+        }
+        Set<Long> anteriores = suspendidas.get();
+        try {
+            CompletableFuture.allOf(volcadas.toArray(new CompletableFuture[0])).get(espera.toMillis(), TimeUnit.MILLISECONDS);
+            Set<Long> actuales = new HashSet<>(anteriores);
+            actuales.addAll(cuentas);
+            suspendidas.set(actuales);
+            return accion.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrumpido esperando el volcado del ledger", e);
+        } catch (TimeoutException | ExecutionException e) {
+            throw new CannotAcquireLockException("Las cuentas " + cuentas + " tienen movimientos del ledger sin volcar", e);
+        } finally {
+            suspendidas.set(anteriores);
+            // Se reanudan también si la espera falla
+            for (Long numeroCuenta : cuentas) {
+                Particion particion = particion(numeroCuenta);
+                particion.enviar(() -> particion.reanudar(numeroCuenta));
+            }
+        }
+    }
+
+    /**
+     * Comprueba que el hilo actual tiene las cuentas suspendidas con
+     * {@link #conCuentasSuspendidas} antes de modificarlas en la base de datos. Sin ledger
+     * activo no hace nada.
+     *
+     * @throws ConcurrencyFailureException si alguna cuenta no está suspendida, por ejemplo
+     *         porque el movimiento editado cambió de cuenta desde que se suspendió
+     */
+    public void exigirSuspendidas(Collection<Long> numerosCuenta) {
+        if (activo && !suspendidas.get().containsAll(numerosCuenta)) {
+            throw new ConcurrencyFailureException("Las cuentas " + numerosCuenta + " no están suspendidas del ledger");
+        }
+    }
+
+    private Particion particion(long numeroCuenta) {
+        return particiones[(int) Math.floorMod(numeroCuenta, (long) particiones.length)];
+    }
+
+    private void volcar() {
+        List<RegistroLedger> lote = new ArrayList<>(tamanoLoteVolcado);
+        while (!cerrando) {
+            comprobarExclusiva();
+            try {
+                RegistroLedger siguiente = porVolcar.poll(1, TimeUnit.SECONDS);
+                if (siguiente == null) {
+                    continue;
+                }
+                // Se acumula durante como mucho un intervalo para volcar lotes grandes
+                lote.add(siguiente);
+                long limite = System.nanoTime() + intervaloVolcado.toNanos();
+                while (lote.size() < tamanoLoteVolcado) {
+                    porVolcar.drainTo(lote, tamanoLoteVolcado - lote.size());
+                    long restante = limite - System.nanoTime();
+                    if (lote.size() >= tamanoLoteVolcado || restante <= 0 || (siguiente = porVolcar.poll(restante, TimeUnit.NANOSECONDS)) == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            volcarConReintentos(lote);
+            lote.clear();
+        }
+    }
+
+    /**
+     * Vuelca el lote reintentando con espera creciente mientras la base de datos no esté
+     * disponible. Si la base de datos rechaza el lote (restricciones), reintentarlo no sirve: se
+     * vuelca movimiento a movimiento y los que se rechazan por sí mismos se apartan.
+     */
+    private void volcarConReintentos(List<RegistroLedger> lote) {
+        List<RegistroLedger> restantes = lote;
+        boolean unoAUno = false;
+        long esperaReintento = intervaloVolcado.toMillis();
+        while (!restantes.isEmpty()) {
+            List<RegistroLedger> parte = unoAUno ? restantes.subList(0, 1) : restantes;
+            try {
+                volcados(parte, duracionVolcado.recordCallable(() -> volcarLote(parte)));
+                restantes = restantes.subList(parte.size(), restantes.size());
+                esperaReintento = intervaloVolcado.toMillis();
+            } catch (DataIntegrityViolationException e) {
+                fallosVolcado.increment();
+                if (!unoAUno) {
+                    log.error("La base de datos rechazó un lote de {} movimientos del ledger; se vuelcan uno a uno", parte.size(), e);
+                    unoAUno = true;
+                } else {
+                    apartar(parte.get(0), e);
+                    restantes = restantes.subList(1, restantes.size());
+                }
+            } catch (Exception e) {
+                fallosVolcado.increment();
+                log.error("Error volcando {} movimientos del ledger; nuevo intento en {} ms", parte.size(), esperaReintento, e);
+                if (cerrando) {
+                    return;
+                }
+                try {
+                    Thread.sleep(esperaReintento);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                esperaReintento = Math.min(esperaReintento * 2, espera.toMillis());
+            }
+        }
+    }
+
+    private void volcados(List<RegistroLedger> lote, Map<Long, Integer> volcados) {
+        diario.liberarHasta(lote.get(lote.size() - 1).lsn());
+        // Cada partición descuenta los movimientos volcados de sus cuentas
+        Map<Particion, Map<Long, Integer>> porParticion = new HashMap<>();
+        volcados.forEach((cuenta, cantidad) -> porParticion.computeIfAbsent(particion(cuenta), p -> new HashMap<>()).put(cuenta, cantidad));
+        porParticion.forEach((particion, cuentas) -> particion.enviar(() -> particion.volcados(cuentas)));
+    }
+
+    /**
+     * Guarda en ledger_apartado un movimiento confirmado que la base de datos rechaza y avanza
+     * la posición volcada, para que no bloquee a los siguientes. El saldo de la cuenta en
+     * memoria deja de incluirlo; el movimiento requiere conciliación manual.
+     */
+    private void apartar(RegistroLedger registro, DataIntegrityViolationException error) {
+        log.error("Movimiento {} del ledger (lsn {}, cuenta {}) rechazado por la base de datos; se aparta en ledger_apartado",
+                registro.numeroMovimiento(), registro.lsn(), registro.numeroCuenta(), error);
+        transactionTemplate.executeWithoutResult(estado -> {
+            jdbcTemplate.update("INSERT INTO ledger_apartado (nodo, lsn, numero_movimiento, numero_cuenta, cliente_id, fecha, "
+                            + "tipo_movimiento, valor_centavos, saldo_centavos, error) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+                            + "ON CONFLICT DO NOTHING",
+                    nodo, registro.lsn(), registro.numeroMovimiento(), registro.numeroCuenta(), registro.clienteId(),
+                    new Timestamp(registro.fecha()), registro.tipoMovimiento(), registro.valor(), registro.saldo(),
+                    String.valueOf(error.getMostSpecificCause().getMessage()));
+            jdbcTemplate.update("UPDATE ledger_volcado SET posicion = ? WHERE nodo = ?", registro.lsn(), nodo);
+        });
+        apartados.increment();
+        diario.liberarHasta(registro.lsn());
+        Particion particion = particion(registro.numeroCuenta());
+        particion.enviar(() -> particion.apartado(registro.numeroCuenta(), registro.valor()));
+    }
+
+    /**
+     * Inserta los movimientos, aplica a cada cuenta la suma de sus valores, actualiza los
+     * resúmenes diarios y avanza la posición volcada, todo en una transacción.
+     *
+     * @return movimientos volcados por cuenta
+     */
+    private Map<Long, Integer> volcarLote(List<RegistroLedger> lote) {
+        return transactionTemplate.execute(estado -> {
+            jdbcTemplate.batchUpdate("INSERT INTO movimiento (numero_movimiento, fecha_movimiento, tipo_movimiento, valor, saldo, numero_cuenta) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)", lote, lote.size(), (ps, r) -> {
+                ps.setLong(1, r.numeroMovimiento());
+                ps.setTimestamp(2, new Timestamp(r.fecha()));
+                ps.setString(3, r.tipoMovimiento());
+                ps.setBigDecimal(4, Centavos.aBigDecimal(r.valor()));
+                ps.setBigDecimal(5, Centavos.aBigDecimal(r.saldo()));
+                ps.setLong(6, r.numeroCuenta());
+            });
+
+            // Por cuenta, en orden de numeroCuenta para bloquear siempre en el mismo orden
+            Map<Long, Long> deltas = new TreeMap<>();
+            Map<Long, Integer> cantidades = new HashMap<>();
+            Set<String> clientes = new HashSet<>();
+            Map<Long, SaldoDiarioService.BloqueDiario> bloqueActual = new HashMap<>();
+            List<SaldoDiarioService.BloqueDiario> bloques = new ArrayList<>();
+            for (RegistroLedger r : lote) {
+                deltas.merge(r.numeroCuenta(), r.valor(), Math::addExact);
+                cantidades.merge(r.numeroCuenta(), 1, Integer::sum);
+                clientes.add(r.clienteId());
+                LocalDate dia = SaldoDiarioService.dia(new Date(r.fecha()));
+                SaldoDiarioService.BloqueDiario bloque = bloqueActual.get(r.numeroCuenta());
+                if (bloque == null || !bloque.dia().equals(dia)) {
+                    bloque = new SaldoDiarioService.BloqueDiario(r.numeroCuenta(), dia, r.saldo() - r.valor());
+                    bloqueActual.put(r.numeroCuenta(), bloque);
+                    bloques.add(bloque);
+                }
+                bloque.totales().agregar(r.valor());
+            }
+            List<Map.Entry<Long, Long>> filas = new ArrayList<>(deltas.entrySet());
+            jdbcTemplate.batchUpdate("UPDATE cuenta SET saldo_inicial = saldo_inicial + ? WHERE numero_cuenta = ?",
+                    filas, filas.size(), (ps, fila) -> {
+                        ps.setBigDecimal(1, Centavos.aBigDecimal(fila.getValue()));
+                        ps.setLong(2, fila.getKey());
+                    });
+            saldoDiarioService.registrar(bloques);
+            jdbcTemplate.update("UPDATE ledger_volcado SET posicion = ? WHERE nodo = ?", lote.get(lote.size() - 1).lsn(), nodo);
+
+            deltas.keySet().forEach(cuentaCache::invalidarCuenta);
+            clientes.forEach(reporteCache::invalidarCliente);
+            return cantidades;
+        });
+    }
+
+    private record Solicitud(long numeroCuenta, long valor, long fecha, String tipoMovimiento,
+                             CompletableFuture<Movimiento> resultado) {
+    }
+
+    /**
+     * Estado en memoria de una cuenta; solo lo toca el hilo de su partición.
+     */
+    private static final class EstadoCuenta {
+
+        private boolean cargada;
+        private long saldo;
+        private String clienteId;
+        private String tipoCuenta;
+        private String estado;
+        /** Movimientos anotados que aún no están en la base de datos. */
+        private int sinVolcar;
+        private int suspensiones;
+        private final List<Solicitud> enEspera = new ArrayList<>();
+        private final List<CompletableFuture<Void>> esperandoVolcado = new ArrayList<>();
+
+        boolean desalojable() {
+            return cargada && sinVolcar == 0 && suspensiones == 0 && enEspera.isEmpty();
+        }
+    }
+
+    /**
+     * Hilo propietario de un subconjunto de cuentas (numeroCuenta módulo número de particiones).
+     * Todo lo que lee o modifica sus cuentas se le envía como mensaje y se ejecuta en orden.
+     */
+    private final class Particion {
+
+        private final BlockingQueue<Runnable> mensajes = new LinkedBlockingQueue<>();
+        private final Thread hilo;
+
+        /** Orden de acceso: se desalojan primero las cuentas menos usadas, si no tienen nada pendiente. */
+        private final Map<Long, EstadoCuenta> cuentas = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, EstadoCuenta> masAntigua) {
+                return size() > cuentasPorParticion && masAntigua.getValue().desalojable();
+            }
+        };
+
+        private long siguienteId;
+        private long finBloqueIds;
+
+        Particion(int numero) {
+            hilo = Thread.ofPlatform().name("ledger-particion-" + numero).daemon().start(this::atender);
+        }
+
+        void enviar(Runnable mensaje) {
+            mensajes.add(mensaje);
+        }
+
+        private void atender() {
+            while (!Thread.currentThread().isInterrupted()) {
+                Runnable mensaje;
+                try {
+                    mensaje = mensajes.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    mensaje.run();
+                } catch (RuntimeException e) {
+                    log.error("Error en {}", hilo.getName(), e);
+                }
+            }
+        }
+
+        void aceptar(Solicitud solicitud) {
+            EstadoCuenta cuenta;
+            long numeroMovimiento;
+            try {
+                cuenta = cuentas.get(solicitud.numeroCuenta());
+                if (cuenta == null) {
+                    cuenta = cargar(solicitud.numeroCuenta());
+                    if (cuenta == null) {
+                        solicitud.resultado().completeExceptionally(new CuentaNoEncontradaException(solicitud.numeroCuenta()));
+                        return;
+                    }
+                }
+                if (cuenta.suspensiones > 0) {
+                    cuenta.enEspera.add(solicitud);
+                    return;
+                }
+                long nuevoSaldo = Centavos.sumar(cuenta.saldo, solicitud.valor());
+                if (nuevoSaldo < 0) {
+                    solicitud.resultado().completeExceptionally(new SaldoNoDisponibleException(solicitud.numeroCuenta()));
+                    return;
+                }
+                if (nuevoSaldo > Centavos.MAXIMO_NUMERIC_15_2) {
+                    solicitud.resultado().completeExceptionally(new ArithmeticException("Saldo fuera de rango"));
+                    return;
+                }
+                if (!DiarioLedger.cabe(solicitud.tipoMovimiento(), cuenta.clienteId)) {
+                    solicitud.resultado().completeExceptionally(new IllegalArgumentException("El movimiento no cabe en un registro del diario"));
+                    return;
+                }
+                numeroMovimiento = siguienteId();
+                cuenta.saldo = nuevoSaldo;
+            } catch (RuntimeException e) {
+                solicitud.resultado().completeExceptionally(e instanceof ArithmeticException ? e
+                        : new LedgerNoDisponibleException("No se pudo cargar la cuenta " + solicitud.numeroCuenta(), e));
+                return;
+            }
+            cuenta.sinVolcar++;
+
+            RegistroLedger registro = new RegistroLedger(0, numeroMovimiento, solicitud.numeroCuenta(), cuenta.clienteId,
+                    solicitud.fecha() != 0 ? solicitud.fecha() : System.currentTimeMillis(),
+                    solicitud.tipoMovimiento(), solicitud.valor(), cuenta.saldo);
+            Cuenta datosCuenta = new Cuenta(solicitud.numeroCuenta(), cuenta.tipoCuenta, Centavos.aBigDecimal(cuenta.saldo),
+                    cuenta.estado, cuenta.clienteId);
+            diario.anotar(registro).whenComplete((anotado, error) -> {
+                if (error != null) {
+                    solicitud.resultado().completeExceptionally(new LedgerNoDisponibleException("El diario del ledger no está disponible", error));
+                } else {
+                    solicitud.resultado().complete(anotado.aMovimiento(datosCuenta));
+                }
+            });
+        }
+
+        void suspender(Long numeroCuenta, CompletableFuture<Void> volcada) {
+            EstadoCuenta cuenta = cuentas.get(numeroCuenta);
+            if (cuenta == null) {
+                // Sin nada pendiente: basta con retener los movimientos nuevos
+                cuenta = new EstadoCuenta();
+                cuentas.put(numeroCuenta, cuenta);
+            }
+            cuenta.suspensiones++;
+            if (cuenta.sinVolcar == 0) {
+                volcada.complete(null);
+            } else {
+                cuenta.esperandoVolcado.add(volcada);
+            }
+        }
+
+        void reanudar(Long numeroCuenta) {
+            EstadoCuenta cuenta = cuentas.get(numeroCuenta);
+            if (cuenta == null || --cuenta.suspensiones > 0) {
+                return;
+            }
+            // Volcada y modificada en la base de datos: se vuelve a leer en el próximo movimiento.
+            // Si la espera caducó y quedan movimientos sin volcar, la acción no llegó a ejecutarse
+            // y el saldo en memoria sigue siendo válido
+            if (cuenta.sinVolcar == 0) {
+                cuentas.remove(numeroCuenta);
+            }
+            List<Solicitud> retenidas = new ArrayList<>(cuenta.enEspera);
+            cuenta.enEspera.clear();
+            retenidas.forEach(this::aceptar);
+        }
+
+        void volcados(Map<Long, Integer> volcados) {
+            volcados.forEach((numeroCuenta, cantidad) -> {
+                EstadoCuenta cuenta = cuentas.get(numeroCuenta);
+                if (cuenta == null) {
+                    return;
+                }
+                cuenta.sinVolcar -= cantidad;
+                if (cuenta.sinVolcar == 0) {
+                    cuenta.esperandoVolcado.forEach(f -> f.complete(null));
+                    cuenta.esperandoVolcado.clear();
+                }
+            });
+        }
+
+        void apartado(long numeroCuenta, long valor) {
+            EstadoCuenta cuenta = cuentas.get(numeroCuenta);
+            if (cuenta == null) {
+                return;
+            }
+            // El movimiento no llegó a la base de datos: el saldo en memoria deja de incluirlo
+            cuenta.saldo -= valor;
+            volcados(Map.of(numeroCuenta, 1));
+        }
+
+        private EstadoCuenta cargar(long numeroCuenta) {
+            List<EstadoCuenta> leidas = jdbcTemplate.query(
+                    "SELECT saldo_inicial, cliente_id, tipo_cuenta, estado FROM cuenta WHERE numero_cuenta = ?", (rs, i) -> {
+                        EstadoCuenta cuenta = new EstadoCuenta();
+                        cuenta.cargada = true;
+                        cuenta.saldo = Centavos.de(rs.getBigDecimal(1));
+                        cuenta.clienteId = rs.getString(2);
+                        cuenta.tipoCuenta = rs.getString(3);
+                        cuenta.estado = rs.getString(4);
+                        return cuenta;
+                    }, numeroCuenta);
+            if (leidas.isEmpty()) {
+                return null;
+            }
+            cuentas.put(numeroCuenta, leidas.get(0));
+            return leidas.get(0);
+        }
+
+        private long siguienteId() {
+            if (siguienteId == finBloqueIds) {
+                siguienteId = jdbcTemplate.queryForObject("SELECT nextval('movimiento_seq')", Long.class);
+                finBloqueIds = siguienteId + IDS_POR_BLOQUE;
+            }
+            return siguienteId++;
+        }
+    }
+}
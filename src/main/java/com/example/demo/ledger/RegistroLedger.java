@@ -0,0 +1,20 @@
+package com.example.demo;
+
+import java.util.Date;
+
+/**
+ * Movimiento aceptado por el ledger, tal como se anota en el diario y se vuelca a movimiento.
+ * Los importes van en centavos; lsn es la posición en el diario (0 hasta que se anota).
+ */
+public record RegistroLedger(long lsn, long numeroMovimiento, long numeroCuenta, String clienteId,
+                             long fecha, String tipoMovimiento, long valor, long saldo) {
+
+    public RegistroLedger conLsn(long lsn) {
+        return new RegistroLedger(lsn, numeroMovimiento, numeroCuenta, clienteId, fecha, tipoMovimiento, valor, saldo);
+    }
+
+    public Movimiento aMovimiento(Cuenta cuenta) {
+        return new Movimiento(numeroMovimiento, new Date(fecha), tipoMovimiento,
+                Centavos.aBigDecimal(valor), Centavos.aBigDecimal(saldo), cuenta);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Destino por defecto: la tabla cliente_cuentas que lee el microservicio de clientes, en la
+ * misma base de datos. Un lote JDBC por llamada; ON CONFLICT DO NOTHING hace idempotentes los
+ * reintentos.
+ */
+@Component
+public class ClienteCuentasJdbcDestino implements DestinoClienteCuenta {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void publicar(List<EventoClienteCuenta> eventos) {
+        jdbcTemplate.batchUpdate("INSERT INTO cliente_cuentas (cliente_id, cuenta_id) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                eventos, eventos.size(), (ps, evento) -> {
+                    ps.setString(1, evento.getClienteId());
+                    ps.setLong(2, evento.getNumeroCuenta());
+                });
+    }
+}
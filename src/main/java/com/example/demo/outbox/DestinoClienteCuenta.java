@@ -0,0 +1,13 @@
+package com.example.demo;
+
+import java.util.List;
+
+/**
+ * Destino de los eventos del outbox de cliente_cuentas. Se llama dentro de la transacción que
+ * borra los eventos del outbox: si lanza una excepción, el lote se reintenta completo, así que
+ * la publicación debe ser idempotente.
+ */
+public interface DestinoClienteCuenta {
+
+    void publicar(List<EventoClienteCuenta> eventos);
+}
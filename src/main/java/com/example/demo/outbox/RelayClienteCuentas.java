@@ -0,0 +1,146 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vacía el outbox de cliente_cuentas hacia el {@link DestinoClienteCuenta} por lotes.
+ *
+ * Cada lote se lee con FOR UPDATE SKIP LOCKED, se publica y se borra en una transacción, de
+ * modo que varias instancias pueden vaciar el outbox a la vez sin repetir eventos. Por ciclo se
+ * envían como mucho max-lotes-por-ciclo lotes (el resto espera al siguiente ciclo), y tras un
+ * fallo del destino la espera entre ciclos se duplica hasta espera-maxima.
+ */
+@Component
+public class RelayClienteCuentas {
+
+    private static final Logger log = LoggerFactory.getLogger(RelayClienteCuentas.class);
+
+    private static final RowMapper<EventoClienteCuenta> EVENTO = (rs, i) -> new EventoClienteCuenta(
+            rs.getLong("id"), rs.getString("cliente_id"), rs.getLong("numero_cuenta"), rs.getTimestamp("fecha_creacion"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DestinoClienteCuenta destino;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cuenta.outbox.relay.activo:true}")
+    private boolean activo;
+
+    @Value("${cuenta.outbox.tamano-lote:500}")
+    private int tamanoLote;
+
+    @Value("${cuenta.outbox.max-lotes-por-ciclo:20}")
+    private int maxLotesPorCiclo;
+
+    @Value("${cuenta.outbox.intervalo:500ms}")
+    private Duration intervalo;
+
+    @Value("${cuenta.outbox.espera-maxima:30s}")
+    private Duration esperaMaxima;
+
+    private final AtomicLong pendientes = new AtomicLong();
+    private final AtomicLong antiguedadMillis = new AtomicLong();
+    private int fallosSeguidos;
+    private long reintentarDespuesDe;
+
+    private Counter publicados;
+    private Counter fallos;
+    private Timer duracionLote;
+
+    @PostConstruct
+    void registrarMetricas() {
+        Gauge.builder("outbox.pendientes", pendientes, AtomicLong::get)
+                .description("Eventos de cliente_cuentas pendientes de publicar")
+                .register(meterRegistry);
+        TimeGauge.builder("outbox.lag", antiguedadMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Antigüedad del evento pendiente más antiguo")
+                .register(meterRegistry);
+        publicados = meterRegistry.counter("outbox.publicados");
+        fallos = meterRegistry.counter("outbox.fallos");
+        duracionLote = Timer.builder("outbox.lote").publishPercentiles(0.5, 0.99).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cuenta.outbox.intervalo:500ms}", initialDelayString = "${cuenta.outbox.intervalo:500ms}")
+    public void vaciar() {
+        if (!activo) {
+            return;
+        }
+        if (System.currentTimeMillis() >= reintentarDespuesDe) {
+            publicarLotes();
+        }
+        // También durante la espera tras un fallo: el lag sigue creciendo aunque no se publique
+        try {
+            actualizarLag();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo medir el outbox de cliente_cuentas: {}", e.getMessage());
+        }
+    }
+
+    private void publicarLotes() {
+        try {
+            for (int lote = 0; lote < maxLotesPorCiclo; lote++) {
+                Integer enviados = duracionLote.record(() -> transactionTemplate.execute(estado -> enviarLote()));
+                if (enviados == null || enviados < tamanoLote) {
+                    break;
+                }
+            }
+            fallosSeguidos = 0;
+            reintentarDespuesDe = 0;
+        } catch (RuntimeException e) {
+            fallos.increment();
+            fallosSeguidos++;
+            long espera = Math.min(esperaMaxima.toMillis(), intervalo.toMillis() << Math.min(fallosSeguidos, 16));
+            reintentarDespuesDe = System.currentTimeMillis() + espera;
+            log.warn("Error publicando el outbox de cliente_cuentas (intento {}), nuevo intento en {} ms", fallosSeguidos, espera, e);
+        }
+    }
+
+    private int enviarLote() {
+        List<EventoClienteCuenta> eventos = jdbcTemplate.query(
+                "SELECT id, cliente_id, numero_cuenta, fecha_creacion FROM outbox_cliente_cuenta "
+                        + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED", EVENTO, tamanoLote);
+        if (eventos.isEmpty()) {
+            return 0;
+        }
+        destino.publicar(eventos);
+        jdbcTemplate.batchUpdate("DELETE FROM outbox_cliente_cuenta WHERE id = ?", eventos, eventos.size(),
+                (ps, evento) -> ps.setLong(1, evento.getId()));
+        publicados.increment(eventos.size());
+        return eventos.size();
+    }
+
+    private void actualizarLag() {
+        jdbcTemplate.query("SELECT COUNT(*), MIN(fecha_creacion) FROM outbox_cliente_cuenta", rs -> {
+            pendientes.set(rs.getLong(1));
+            Timestamp masAntiguo = rs.getTimestamp(2);
+            antiguedadMillis.set(masAntiguo == null ? 0 : Math.max(0, System.currentTimeMillis() - masAntiguo.getTime()));
+        });
+    }
+}
@@ -1,19 +1,69 @@
 package com.example.demo;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CuentaRepository extends JpaRepository<Cuenta, Long> {
     List<Cuenta> findByClienteId(String clienteId);
-    
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.demo.CuentaDto(c.numeroCuenta, c.tipoCuenta, c.saldoInicial, c.estado, c.clienteId) "
+            + "FROM Cuenta c WHERE c.numeroCuenta = :numeroCuenta")
+    Optional<CuentaDto> findDtoById(@Param("numeroCuenta") Long numeroCuenta);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.demo.CuentaDto(c.numeroCuenta, c.tipoCuenta, c.saldoInicial, c.estado, c.clienteId) "
+            + "FROM Cuenta c WHERE c.clienteId = :clienteId ORDER BY c.numeroCuenta")
+    List<CuentaDto> findDtoByClienteId(@Param("clienteId") String clienteId);
+
+    boolean existsByClienteId(String clienteId);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT c.numeroCuenta FROM Cuenta c WHERE c.clienteId = :clienteId ORDER BY c.numeroCuenta")
+    List<Long> findNumerosCuentaByClienteId(@Param("clienteId") String clienteId);
+
+    /**
+     * Página de cuentas con clave mayor que {@code despuesDe}. Los filtros en null no se aplican.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.demo.CuentaDto(c.numeroCuenta, c.tipoCuenta, c.saldoInicial, c.estado, c.clienteId) "
+            + "FROM Cuenta c WHERE c.numeroCuenta > :despuesDe "
+            + "AND (:clienteId IS NULL OR c.clienteId = :clienteId) "
+            + "AND (:estado IS NULL OR c.estado = :estado) "
+            + "AND (:tipoCuenta IS NULL OR c.tipoCuenta = :tipoCuenta) "
+            + "ORDER BY c.numeroCuenta")
+    List<CuentaDto> findPagina(@Param("despuesDe") long despuesDe, @Param("clienteId") String clienteId,
+                            @Param("estado") String estado, @Param("tipoCuenta") String tipoCuenta, Limit limit);
+
+    @Query("SELECT c.numeroCuenta FROM Cuenta c WHERE c.numeroCuenta > :despuesDe ORDER BY c.numeroCuenta")
+    List<Long> findNumerosCuenta(@Param("despuesDe") long despuesDe, Limit limit);
+
+    /**
+     * Bloquea las cuentas indicadas (SELECT ... FOR UPDATE) en orden de numeroCuenta
+     * para que dos cargas concurrentes no se bloqueen mutuamente.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cuenta c WHERE c.numeroCuenta IN :numerosCuenta ORDER BY c.numeroCuenta")
+    List<Cuenta> findAllForUpdate(@Param("numerosCuenta") Collection<Long> numerosCuenta);
+
+    /**
+     * Suma {@code valor} al saldo en una sola sentencia, solo si el resultado no es negativo.
+     * Devuelve 0 si la cuenta no existe o el saldo no alcanza.
+     */
     @Modifying
-    @Query(value = "INSERT INTO cliente_cuentas (cliente_id, cuenta_id) VALUES (:clienteId, :cuentaId) ON CONFLICT DO NOTHING", nativeQuery = true)
-    void insertClienteCuenta(@Param("clienteId") String clienteId, @Param("cuentaId") Long cuentaId);
+    @Query("UPDATE Cuenta c SET c.saldoInicial = c.saldoInicial + :valor WHERE c.numeroCuenta = :numeroCuenta AND c.saldoInicial + :valor >= 0")
+    int incrementarSaldo(@Param("numeroCuenta") Long numeroCuenta, @Param("valor") BigDecimal valor);
 }
-
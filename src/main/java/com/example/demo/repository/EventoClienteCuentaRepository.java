@@ -0,0 +1,8 @@
+package com.example.demo;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EventoClienteCuentaRepository extends JpaRepository<EventoClienteCuenta, Long> {
+}
@@ -1,18 +1,142 @@
 package com.example.demo;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+/**
+ * Los movimientos de una cuenta se ordenan por (fecha_movimiento, numero_movimiento); las
+ * consultas "anterior"/"posterior" usan esa posición y el índice idx_movimiento_cuenta_fecha,
+ * y excluyen siempre el propio movimiento que se está editando.
+ */
 @Repository
 public interface MovimientoRepository extends JpaRepository<Movimiento, Long> {
+
+    /**
+     * Todas las cuentas del cliente con sus movimientos en el rango, sin cargar entidades.
+     * Ordenado por cuenta y posición para ensamblar el reporte en una pasada.
+     */
+    String CONSULTA_REPORTE = "SELECT new com.example.demo.ReporteFila(c.numeroCuenta, c.tipoCuenta, c.saldoInicial, c.estado, "
+            + "m.numeroMovimiento, m.fechaMovimiento, m.tipoMovimiento, m.valor, m.saldo) "
+            + "FROM Cuenta c LEFT JOIN Movimiento m ON m.cuenta = c "
+            + "AND m.fechaMovimiento >= :fechaInicio AND m.fechaMovimiento <= :fechaFin "
+            + "WHERE c.clienteId = :clienteId "
+            + "ORDER BY c.numeroCuenta, m.fechaMovimiento, m.numeroMovimiento";
+
+    /** Con la cuenta en la misma consulta: se serializa junto al movimiento. */
+    @Override
+    @EntityGraph(attributePaths = "cuenta")
+    Optional<Movimiento> findById(Long id);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.demo.MovimientoDto(m.numeroMovimiento, m.fechaMovimiento, m.tipoMovimiento, "
+            + "m.valor, m.saldo, m.cuenta.numeroCuenta) FROM Movimiento m WHERE m.numeroMovimiento = :id")
+    Optional<MovimientoDto> findDtoById(@Param("id") Long id);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT m.cuenta.numeroCuenta FROM Movimiento m WHERE m.numeroMovimiento = :id")
+    Optional<Long> findNumeroCuentaById(@Param("id") Long id);
+
     List<Movimiento> findByCuentaOrderByFechaMovimientoAsc(Cuenta cuenta);
     
     @Query(value = "SELECT * FROM movimiento WHERE numero_cuenta = :numeroCuenta AND fecha_movimiento >= :fechaInicio AND fecha_movimiento <= :fechaFin ORDER BY fecha_movimiento ASC", nativeQuery = true)
     List<Movimiento> findByCuentaAndFechaMovimientoBetween(@Param("numeroCuenta") Long numeroCuenta, @Param("fechaInicio") Date fechaInicio, @Param("fechaFin") Date fechaFin);
-}
 
+    /** Misma consulta que {@link #CONSULTA_REPORTE} restringida a un grupo de cuentas. */
+    String CONSULTA_REPORTE_CUENTAS = "SELECT new com.example.demo.ReporteFila(c.numeroCuenta, c.tipoCuenta, c.saldoInicial, c.estado, "
+            + "m.numeroMovimiento, m.fechaMovimiento, m.tipoMovimiento, m.valor, m.saldo) "
+            + "FROM Cuenta c LEFT JOIN Movimiento m ON m.cuenta = c "
+            + "AND m.fechaMovimiento >= :fechaInicio AND m.fechaMovimiento <= :fechaFin "
+            + "WHERE c.numeroCuenta IN :numerosCuenta "
+            + "ORDER BY c.numeroCuenta, m.fechaMovimiento, m.numeroMovimiento";
+
+    /** Reporte completo en una sola consulta. */
+    @Query(CONSULTA_REPORTE)
+    List<ReporteFila> findReporteByClienteId(@Param("clienteId") String clienteId, @Param("fechaInicio") Date fechaInicio, @Param("fechaFin") Date fechaFin);
+
+    /** Reporte de un grupo de cuentas, para ensamblar el reporte de un cliente por partes. */
+    @Query(CONSULTA_REPORTE_CUENTAS)
+    List<ReporteFila> findReporteByNumerosCuenta(@Param("numerosCuenta") Collection<Long> numerosCuenta, @Param("fechaInicio") Date fechaInicio, @Param("fechaFin") Date fechaFin);
+
+    /**
+     * Misma consulta que {@link #findReporteByClienteId} leída como cursor de solo avance con un
+     * tamaño de lectura acotado. Debe consumirse dentro de una transacción y cerrarse.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(CONSULTA_REPORTE)
+    Stream<ReporteFila> streamReporteByClienteId(@Param("clienteId") String clienteId, @Param("fechaInicio") Date fechaInicio, @Param("fechaFin") Date fechaFin);
+
+    /**
+     * Página de movimientos con clave mayor que {@code despuesDe}. Los filtros en null no se aplican.
+     * Es un recorrido por clave primaria (WHERE id > :despuesDe ORDER BY id LIMIT n), sin OFFSET.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.demo.MovimientoDto(m.numeroMovimiento, m.fechaMovimiento, m.tipoMovimiento, "
+            + "m.valor, m.saldo, m.cuenta.numeroCuenta) "
+            + "FROM Movimiento m WHERE m.numeroMovimiento > :despuesDe "
+            + "AND (:numeroCuenta IS NULL OR m.cuenta.numeroCuenta = :numeroCuenta) "
+            + "AND (:clienteId IS NULL OR m.cuenta.clienteId = :clienteId) "
+            + "AND (:desde IS NULL OR m.fechaMovimiento >= :desde) "
+            + "AND (:hasta IS NULL OR m.fechaMovimiento < :hasta) "
+            + "AND (:tipoMovimiento IS NULL OR m.tipoMovimiento = :tipoMovimiento) "
+            + "ORDER BY m.numeroMovimiento")
+    List<MovimientoDto> findPagina(@Param("despuesDe") long despuesDe, @Param("numeroCuenta") Long numeroCuenta,
+                                @Param("clienteId") String clienteId, @Param("desde") Date desde, @Param("hasta") Date hasta,
+                                @Param("tipoMovimiento") String tipoMovimiento, Limit limit);
+
+    /** Saldo del último movimiento de la cuenta anterior a la posición indicada. */
+    @Query(value = "SELECT saldo FROM movimiento WHERE numero_cuenta = :numeroCuenta AND numero_movimiento <> :numeroMovimiento AND (fecha_movimiento, numero_movimiento) < (:fecha, :numeroMovimiento) ORDER BY fecha_movimiento DESC, numero_movimiento DESC LIMIT 1", nativeQuery = true)
+    Optional<BigDecimal> findSaldoAnterior(@Param("numeroCuenta") Long numeroCuenta, @Param("fecha") Date fecha, @Param("numeroMovimiento") Long numeroMovimiento);
+
+    /** Saldo previo al primer movimiento de la cuenta posterior a la posición indicada. */
+    @Query(value = "SELECT saldo - valor FROM movimiento WHERE numero_cuenta = :numeroCuenta AND numero_movimiento <> :numeroMovimiento AND (fecha_movimiento, numero_movimiento) > (:fecha, :numeroMovimiento) ORDER BY fecha_movimiento ASC, numero_movimiento ASC LIMIT 1", nativeQuery = true)
+    Optional<BigDecimal> findSaldoPrevioAlSiguiente(@Param("numeroCuenta") Long numeroCuenta, @Param("fecha") Date fecha, @Param("numeroMovimiento") Long numeroMovimiento);
+
+    /** Menor saldo entre los movimientos de la cuenta posteriores a la posición indicada, o null si no hay. */
+    @Query(value = "SELECT MIN(saldo) FROM movimiento WHERE numero_cuenta = :numeroCuenta AND numero_movimiento <> :numeroMovimiento AND (fecha_movimiento, numero_movimiento) > (:fecha, :numeroMovimiento)", nativeQuery = true)
+    BigDecimal findSaldoMinimoPosterior(@Param("numeroCuenta") Long numeroCuenta, @Param("fecha") Date fecha, @Param("numeroMovimiento") Long numeroMovimiento);
+
+    /**
+     * Menor saldo entre los movimientos de la cuenta situados entre dos posiciones del mismo
+     * movimiento (ambas excluidas), o null si no hay.
+     */
+    @Query(value = "SELECT MIN(saldo) FROM movimiento WHERE numero_cuenta = :numeroCuenta AND numero_movimiento <> :numeroMovimiento AND (fecha_movimiento, numero_movimiento) > (:desde, :numeroMovimiento) AND (fecha_movimiento, numero_movimiento) < (:hasta, :numeroMovimiento)", nativeQuery = true)
+    BigDecimal findSaldoMinimoEntre(@Param("numeroCuenta") Long numeroCuenta, @Param("desde") Date desde, @Param("hasta") Date hasta, @Param("numeroMovimiento") Long numeroMovimiento);
+
+    /** Suma de los valores de los movimientos de la cuenta situados entre dos posiciones del mismo movimiento (ambas excluidas). */
+    @Query(value = "SELECT COALESCE(SUM(valor), 0) FROM movimiento WHERE numero_cuenta = :numeroCuenta AND numero_movimiento <> :numeroMovimiento AND (fecha_movimiento, numero_movimiento) > (:desde, :numeroMovimiento) AND (fecha_movimiento, numero_movimiento) < (:hasta, :numeroMovimiento)", nativeQuery = true)
+    BigDecimal sumarValorEntrePosiciones(@Param("numeroCuenta") Long numeroCuenta, @Param("desde") Date desde, @Param("hasta") Date hasta, @Param("numeroMovimiento") Long numeroMovimiento);
+
+    /** Desplaza en {@code delta} el saldo de los movimientos de la cuenta situados entre dos posiciones del mismo movimiento (ambas excluidas). */
+    @Modifying
+    @Query(value = "UPDATE movimiento SET saldo = saldo + :delta WHERE numero_cuenta = :numeroCuenta AND numero_movimiento <> :numeroMovimiento AND (fecha_movimiento, numero_movimiento) > (:desde, :numeroMovimiento) AND (fecha_movimiento, numero_movimiento) < (:hasta, :numeroMovimiento)", nativeQuery = true)
+    int desplazarSaldosEntre(@Param("numeroCuenta") Long numeroCuenta, @Param("desde") Date desde, @Param("hasta") Date hasta, @Param("numeroMovimiento") Long numeroMovimiento, @Param("delta") BigDecimal delta);
+
+    /** Desplaza en {@code delta} el saldo de todos los movimientos de la cuenta posteriores a la posición indicada. */
+    @Modifying
+    @Query(value = "UPDATE movimiento SET saldo = saldo + :delta WHERE numero_cuenta = :numeroCuenta AND numero_movimiento <> :numeroMovimiento AND (fecha_movimiento, numero_movimiento) > (:fecha, :numeroMovimiento)", nativeQuery = true)
+    int desplazarSaldosPosteriores(@Param("numeroCuenta") Long numeroCuenta, @Param("fecha") Date fecha, @Param("numeroMovimiento") Long numeroMovimiento, @Param("delta") BigDecimal delta);
+
+    /** Suma de los valores de los movimientos de la cuenta entre dos instantes (ambos incluidos). */
+    @Query("SELECT COALESCE(SUM(m.valor), 0) FROM Movimiento m WHERE m.cuenta.numeroCuenta = :numeroCuenta "
+            + "AND m.fechaMovimiento >= :desde AND m.fechaMovimiento <= :hasta")
+    BigDecimal sumarValorEntre(@Param("numeroCuenta") Long numeroCuenta, @Param("desde") Date desde, @Param("hasta") Date hasta);
+}
@@ -0,0 +1,112 @@
+package com.example.demo;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Todas las escrituras se hacen con la fila de la cuenta bloqueada por la transacción del
+ * movimiento, por lo que no hay dos actualizaciones concurrentes del mismo (cuenta, fecha).
+ */
+@Repository
+public interface SaldoDiarioRepository extends JpaRepository<SaldoDiario, SaldoDiario.Clave> {
+
+    /**
+     * Crea vacío el día si no existe. Su apertura (y cierre) es el cierre del día anterior con
+     * resumen o, si no lo hay, la apertura del siguiente; solo si la cuenta no tiene ningún día
+     * se usa {@code saldoPrevio}. Debe ejecutarse antes de {@link #APLICAR}.
+     */
+    String ABRIR_DIA = "INSERT INTO saldo_diario (numero_cuenta, fecha, saldo_apertura, saldo_cierre, total_debitos, total_creditos, total_movimientos) "
+            + "SELECT numero_cuenta, fecha, saldo, saldo, 0, 0, 0 FROM (SELECT p.numero_cuenta, p.fecha, COALESCE("
+            + "(SELECT a.saldo_cierre FROM saldo_diario a WHERE a.numero_cuenta = p.numero_cuenta AND a.fecha < p.fecha ORDER BY a.fecha DESC LIMIT 1), "
+            + "(SELECT s.saldo_apertura FROM saldo_diario s WHERE s.numero_cuenta = p.numero_cuenta AND s.fecha > p.fecha ORDER BY s.fecha LIMIT 1), "
+            + "p.saldo_previo) AS saldo "
+            + "FROM (SELECT CAST(:numeroCuenta AS BIGINT) AS numero_cuenta, CAST(:fecha AS DATE) AS fecha, "
+            + "CAST(:saldoPrevio AS NUMERIC(15, 2)) AS saldo_previo) p "
+            + "WHERE NOT EXISTS (SELECT 1 FROM saldo_diario e WHERE e.numero_cuenta = p.numero_cuenta AND e.fecha = p.fecha)) t";
+
+    /**
+     * Suma los totales al día {@code fecha}, que debe existir, y desplaza en su neto el cierre
+     * de ese día y la apertura y el cierre de los posteriores.
+     */
+    String APLICAR = "UPDATE saldo_diario SET saldo_cierre = saldo_cierre + :neto, "
+            + "saldo_apertura = CASE WHEN fecha > :fecha THEN saldo_apertura + :neto ELSE saldo_apertura END, "
+            + "total_debitos = CASE WHEN fecha = :fecha THEN total_debitos + :debitos ELSE total_debitos END, "
+            + "total_creditos = CASE WHEN fecha = :fecha THEN total_creditos + :creditos ELSE total_creditos END, "
+            + "total_movimientos = CASE WHEN fecha = :fecha THEN total_movimientos + :movimientos ELSE total_movimientos END "
+            + "WHERE numero_cuenta = :numeroCuenta AND fecha >= :fecha";
+
+    @Modifying
+    @Query(value = APLICAR, nativeQuery = true)
+    int aplicar(@Param("numeroCuenta") Long numeroCuenta, @Param("fecha") LocalDate fecha, @Param("neto") BigDecimal neto,
+                @Param("debitos") BigDecimal debitos, @Param("creditos") BigDecimal creditos, @Param("movimientos") int movimientos);
+
+    @Modifying
+    @Query(value = "DELETE FROM saldo_diario WHERE numero_cuenta = :numeroCuenta AND fecha = :fecha AND total_movimientos = 0", nativeQuery = true)
+    int eliminarSiVacio(@Param("numeroCuenta") Long numeroCuenta, @Param("fecha") LocalDate fecha);
+
+    @Modifying
+    @Query(value = "DELETE FROM saldo_diario WHERE numero_cuenta = :numeroCuenta", nativeQuery = true)
+    int eliminarCuenta(@Param("numeroCuenta") Long numeroCuenta);
+
+    /**
+     * Resúmenes por día de los movimientos de una cuenta; se completa con el filtro y el cierre.
+     * Los saldos salen de los valores, no del saldo guardado en cada movimiento: el cierre de un
+     * día es el saldo actual de la cuenta menos lo que suman los días posteriores.
+     */
+    String RECONSTRUIR = "INSERT INTO saldo_diario (numero_cuenta, fecha, saldo_apertura, saldo_cierre, total_debitos, total_creditos, total_movimientos) "
+            + "SELECT numero_cuenta, dia, cierre - neto, cierre, debitos, creditos, movimientos FROM ("
+            + "SELECT numero_cuenta, dia, neto, debitos, creditos, movimientos, "
+            + "(SELECT c.saldo_inicial FROM cuenta c WHERE c.numero_cuenta = d.numero_cuenta) "
+            + "- COALESCE(SUM(neto) OVER (ORDER BY dia DESC ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING), 0) AS cierre "
+            + "FROM (SELECT numero_cuenta, CAST(fecha_movimiento AS DATE) AS dia, SUM(valor) AS neto, "
+            + "SUM(CASE WHEN valor < 0 THEN -valor ELSE 0 END) AS debitos, "
+            + "SUM(CASE WHEN valor > 0 THEN valor ELSE 0 END) AS creditos, "
+            + "COUNT(*) AS movimientos "
+            + "FROM movimiento WHERE numero_cuenta = :numeroCuenta";
+    String RECONSTRUIR_FIN = " GROUP BY numero_cuenta, CAST(fecha_movimiento AS DATE)) d) t";
+
+    /**
+     * Recalcula desde los movimientos todos los días de una cuenta.
+     */
+    @Modifying
+    @Query(value = RECONSTRUIR + RECONSTRUIR_FIN, nativeQuery = true)
+    int reconstruirCuenta(@Param("numeroCuenta") Long numeroCuenta);
+
+    @Modifying
+    @Query(value = "DELETE FROM saldo_diario WHERE numero_cuenta = :numeroCuenta AND fecha >= :desde", nativeQuery = true)
+    int eliminarCuentaDesde(@Param("numeroCuenta") Long numeroCuenta, @Param("desde") LocalDate desde);
+
+    /**
+     * Recalcula los días de una cuenta desde {@code desde}; los anteriores no se tocan.
+     */
+    @Modifying
+    @Query(value = RECONSTRUIR + " AND fecha_movimiento >= :inicio" + RECONSTRUIR_FIN, nativeQuery = true)
+    int reconstruirCuentaDesde(@Param("numeroCuenta") Long numeroCuenta, @Param("inicio") Date inicio);
+
+    /**
+     * Totales del rango por cuenta del cliente, leyendo un resumen por día en lugar de cada movimiento.
+     */
+    @Query("SELECT new com.example.demo.ReporteTotalesFila(c.numeroCuenta, c.tipoCuenta, c.saldoInicial, c.estado, "
+            + "SUM(sd.totalMovimientos), SUM(sd.totalDebitos), SUM(sd.totalCreditos)) "
+            + "FROM Cuenta c LEFT JOIN SaldoDiario sd ON sd.numeroCuenta = c.numeroCuenta "
+            + "AND sd.fecha >= :desde AND sd.fecha <= :hasta "
+            + "WHERE c.clienteId = :clienteId "
+            + "GROUP BY c.numeroCuenta, c.tipoCuenta, c.saldoInicial, c.estado "
+            + "ORDER BY c.numeroCuenta")
+    List<ReporteTotalesFila> findTotalesByClienteId(@Param("clienteId") String clienteId, @Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    /** Resumen más reciente de la cuenta en o antes del día indicado. */
+    Optional<SaldoDiario> findFirstByNumeroCuentaAndFechaLessThanEqualOrderByFechaDesc(Long numeroCuenta, LocalDate fecha);
+
+    /** Primer resumen de la cuenta posterior al día indicado. */
+    Optional<SaldoDiario> findFirstByNumeroCuentaAndFechaGreaterThanOrderByFechaAsc(Long numeroCuenta, LocalDate fecha);
+}
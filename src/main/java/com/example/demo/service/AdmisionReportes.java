@@ -0,0 +1,181 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Control de admisión de reportes con un límite de concurrencia que se adapta a la latencia
+ * (estilo Gradient2).
+ *
+ * Se comparan dos medias de la duración de los reportes: una corta (los últimos reportes) y una
+ * larga (la referencia sin colas). Si la corta crece por encima de la larga, las consultas
+ * esperan conexiones o disco y el límite baja en proporción; si no, sube con margen sqrt(límite).
+ * El límite nunca supera cuenta.reporte.admision.maximo, por defecto la mitad del pool de
+ * Hikari, de modo que el resto del pool queda para las escrituras.
+ *
+ * Además cada clienteId tiene un máximo propio de reportes en curso (como mucho la mitad del
+ * límite global), para que un solo cliente con rangos amplios no ocupe todo el cupo.
+ */
+@Component
+public class AdmisionReportes {
+
+    /** Peso de cada muestra en la media corta y en la larga. */
+    private static final double ALFA_CORTO = 2.0 / (10 + 1);
+    private static final double ALFA_LARGO = 2.0 / (600 + 1);
+
+    /** La media corta puede superar a la larga en este factor sin reducir el límite. */
+    private static final double TOLERANCIA = 1.5;
+
+    /** Fracción del nuevo límite que se aplica con cada muestra. */
+    private static final double SUAVIZADO = 0.2;
+
+    private static final int LIMITE_MINIMO = 1;
+
+    private final int limiteMaximo;
+    private final LongSupplier reloj;
+    private final int maximoPorCliente;
+
+    private double limite;
+    private double rttCorto;
+    private double rttLargo;
+    private int enCurso;
+    private final Map<String, Integer> enCursoPorCliente = new HashMap<>();
+
+    private final Counter rechazadosCliente;
+    private final Counter rechazadosGlobal;
+
+    /**
+     * Reporte admitido; cerrarlo libera su plaza. Cerrarlo más de una vez no tiene efecto.
+     */
+    public final class Permiso implements AutoCloseable {
+
+        private final String clienteId;
+        private final boolean medir;
+        private final long inicio = reloj.getAsLong();
+        private boolean cerrado;
+
+        private Permiso(String clienteId, boolean medir) {
+            this.clienteId = clienteId;
+            this.medir = medir;
+        }
+
+        @Override
+        public void close() {
+            synchronized (AdmisionReportes.this) {
+                if (cerrado) {
+                    return;
+                }
+                cerrado = true;
+                liberar(clienteId, medir ? reloj.getAsLong() - inicio : -1);
+            }
+        }
+    }
+
+    @Autowired
+    public AdmisionReportes(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int tamanoPool,
+                            @Value("${cuenta.reporte.admision.maximo:0}") int maximo,
+                            @Value("${cuenta.reporte.admision.maximo-por-cliente:2}") int maximoPorCliente,
+                            @Value("${cuenta.reporte.admision.inicial:0}") int inicial,
+                            MeterRegistry meterRegistry) {
+        this(tamanoPool, maximo, maximoPorCliente, inicial, meterRegistry, System::nanoTime);
+    }
+
+    /**
+     * @param reloj nanosegundos con los que se mide la duración de los reportes (en las pruebas,
+     *              un reloj controlado)
+     */
+    AdmisionReportes(int tamanoPool, int maximo, int maximoPorCliente, int inicial, MeterRegistry meterRegistry,
+                     LongSupplier reloj) {
+        this.reloj = reloj;
+        // Por defecto la mitad del pool, como ReporteParaleloService
+        this.limiteMaximo = maximo > 0 ? maximo : Math.max(1, tamanoPool / 2);
+        this.maximoPorCliente = Math.max(1, maximoPorCliente);
+        this.limite = inicial > 0 ? Math.min(inicial, limiteMaximo) : limiteMaximo;
+
+        Gauge.builder(Metricas.REPORTES_ADMISION_LIMITE, this, AdmisionReportes::getLimite).register(meterRegistry);
+        Gauge.builder(Metricas.REPORTES_ADMISION_EN_CURSO, this, AdmisionReportes::getEnCurso).register(meterRegistry);
+        rechazadosCliente = meterRegistry.counter(Metricas.REPORTES_ADMISION_RECHAZADOS, "motivo", "cliente");
+        rechazadosGlobal = meterRegistry.counter(Metricas.REPORTES_ADMISION_RECHAZADOS, "motivo", "global");
+    }
+
+    /**
+     * Admite un reporte del cliente o lo rechaza sin esperar.
+     *
+     * @param medir si su duración debe ajustar el límite; no en las exportaciones, cuya duración
+     *              depende sobre todo del tamaño del rango y de la velocidad del llamante
+     * @throws ReporteRechazadoException 429 por el máximo del cliente, 503 por el límite global
+     */
+    public synchronized Permiso adquirir(String clienteId, boolean medir) {
+        if (enCurso >= (int) limite) {
+            rechazadosGlobal.increment();
+            throw new ReporteRechazadoException("Demasiados reportes en curso, reintente más tarde",
+                    HttpStatus.SERVICE_UNAVAILABLE, reintentarEnSegundos());
+        }
+        int delCliente = enCursoPorCliente.getOrDefault(clienteId, 0);
+        if (delCliente >= limitePorCliente()) {
+            rechazadosCliente.increment();
+            throw new ReporteRechazadoException("Demasiados reportes en curso para el cliente, reintente más tarde",
+                    HttpStatus.TOO_MANY_REQUESTS, reintentarEnSegundos());
+        }
+        enCurso++;
+        enCursoPorCliente.put(clienteId, delCliente + 1);
+        return new Permiso(clienteId, medir);
+    }
+
+    public synchronized double getLimite() {
+        return limite;
+    }
+
+    public synchronized int getEnCurso() {
+        return enCurso;
+    }
+
+    synchronized int limitePorCliente() {
+        return Math.max(1, Math.min(maximoPorCliente, (int) limite / 2));
+    }
+
+    private void liberar(String clienteId, long duracion) {
+        int enCursoAlTerminar = enCurso;
+        enCurso--;
+        enCursoPorCliente.computeIfPresent(clienteId, (c, n) -> n > 1 ? n - 1 : null);
+        if (duracion > 0) {
+            ajustar(duracion, enCursoAlTerminar);
+        }
+    }
+
+    private void ajustar(long duracion, int enCursoAlTerminar) {
+        if (rttLargo == 0) {
+            rttCorto = duracion;
+            rttLargo = duracion;
+            return;
+        }
+        rttCorto += (duracion - rttCorto) * ALFA_CORTO;
+        rttLargo += (duracion - rttLargo) * ALFA_LARGO;
+        // Tras una sobrecarga larga la referencia queda inflada: se acerca antes a la corta
+        if (rttLargo / rttCorto > 2) {
+            rttLargo *= 0.95;
+        }
+        // Con poca ocupación la latencia no dice nada sobre el límite: no crecer sin demanda
+        if (enCursoAlTerminar < limite / 2) {
+            return;
+        }
+        double gradiente = Math.max(0.5, Math.min(1.0, TOLERANCIA * rttLargo / rttCorto));
+        double nuevo = limite * gradiente + Math.sqrt(limite);
+        limite = Math.max(LIMITE_MINIMO, Math.min(limiteMaximo, limite * (1 - SUAVIZADO) + nuevo * SUAVIZADO));
+    }
+
+    private long reintentarEnSegundos() {
+        // Lo que tarda en liberarse una plaza: la duración reciente de un reporte
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds((long) Math.ceil(rttCorto)) + 1);
+    }
+}
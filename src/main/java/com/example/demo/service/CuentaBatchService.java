@@ -0,0 +1,135 @@
+package com.example.demo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Alta masiva de cuentas. Las cuentas válidas se insertan con lotes JDBC junto con su evento
+ * del outbox de cliente_cuentas, y se confirman por bloques de cuenta.cuentas.batch.tamano-bloque
+ * en transacciones independientes: un bloque que falla en la base de datos se reintenta cuenta
+ * a cuenta, de modo que solo se rechazan las cuentas que fallan y no el lote entero.
+ */
+@Service
+public class CuentaBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(CuentaBatchService.class);
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CuentaCache cuentaCache;
+
+    @Autowired
+    private ReporteCache reporteCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${cuenta.cuentas.batch.tamano-bloque:1000}")
+    private int tamanoBloque;
+
+    /**
+     * Las cuentas aceptadas devuelven su numeroCuenta en la posición que tenían en la petición.
+     */
+    public List<CuentaBatchResultado> registrar(List<Cuenta> cuentas) {
+        CuentaBatchResultado[] resultados = new CuentaBatchResultado[cuentas.size()];
+
+        List<Integer> validas = new ArrayList<>();
+        for (int i = 0; i < cuentas.size(); i++) {
+            String error = validar(cuentas.get(i));
+            if (error != null) {
+                resultados[i] = CuentaBatchResultado.rechazado(i, cuentas.get(i) == null ? null : cuentas.get(i).getClienteId(), error);
+            } else {
+                validas.add(i);
+            }
+        }
+
+        for (int desde = 0; desde < validas.size(); desde += tamanoBloque) {
+            List<Integer> bloque = validas.subList(desde, Math.min(desde + tamanoBloque, validas.size()));
+            try {
+                insertar(cuentas, bloque, resultados);
+            } catch (RuntimeException e) {
+                log.warn("Bloque de {} cuentas rechazado por la base de datos, se reintenta cuenta a cuenta", bloque.size(), e);
+                for (Integer indice : bloque) {
+                    try {
+                        insertar(cuentas, List.of(indice), resultados);
+                    } catch (RuntimeException ex) {
+                        resultados[indice] = CuentaBatchResultado.rechazado(indice, cuentas.get(indice).getClienteId(),
+                                "Error al guardar la cuenta");
+                    }
+                }
+            }
+        }
+        return Arrays.asList(resultados);
+    }
+
+    /**
+     * Inserta las cuentas indicadas y sus eventos del outbox en una transacción. Los resultados
+     * solo se escriben una vez confirmada, para no devolver números de cuenta que no existen.
+     */
+    private void insertar(List<Cuenta> cuentas, List<Integer> indices, CuentaBatchResultado[] resultados) {
+        List<Cuenta> guardadas = transactionTemplate.execute(estado -> {
+            List<Cuenta> nuevas = new ArrayList<>(indices.size());
+            Set<String> clientes = new LinkedHashSet<>();
+            for (Integer indice : indices) {
+                Cuenta origen = cuentas.get(indice);
+                Cuenta cuenta = new Cuenta(null, origen.getTipoCuenta(), origen.getSaldoInicial(), origen.getEstado(), origen.getClienteId());
+                entityManager.persist(cuenta);
+                nuevas.add(cuenta);
+                clientes.add(cuenta.getClienteId());
+            }
+            // Los identificadores ya están asignados: los eventos van en el mismo lote de INSERT
+            for (Cuenta cuenta : nuevas) {
+                entityManager.persist(EventoClienteCuenta.de(cuenta));
+            }
+            entityManager.flush();
+            for (String clienteId : clientes) {
+                cuentaCache.invalidarCliente(clienteId);
+                reporteCache.invalidarCliente(clienteId);
+            }
+            return nuevas;
+        });
+        for (int i = 0; i < indices.size(); i++) {
+            resultados[indices.get(i)] = CuentaBatchResultado.aceptado(indices.get(i), guardadas.get(i));
+        }
+    }
+
+    private static String validar(Cuenta cuenta) {
+        if (cuenta == null) {
+            return "La cuenta es requerida";
+        }
+        if (cuenta.getClienteId() == null || cuenta.getClienteId().isBlank()) {
+            return "El clienteId es requerido";
+        }
+        if (cuenta.getClienteId().length() > 50) {
+            return "El clienteId no puede superar 50 caracteres";
+        }
+        if (cuenta.getTipoCuenta() == null || cuenta.getTipoCuenta().isBlank() || cuenta.getTipoCuenta().length() > 20) {
+            return "Tipo de cuenta inválido";
+        }
+        if (cuenta.getEstado() == null || cuenta.getEstado().isBlank() || cuenta.getEstado().length() > 10) {
+            return "Estado inválido";
+        }
+        if (cuenta.getSaldoInicial() == null) {
+            return "El saldo inicial es requerido";
+        }
+        // NUMERIC(15, 2): como mucho 13 dígitos enteros
+        if (cuenta.getSaldoInicial().signum() < 0 || cuenta.getSaldoInicial().precision() - cuenta.getSaldoInicial().scale() > 13) {
+            return "Saldo inicial inválido";
+        }
+        return null;
+    }
+}
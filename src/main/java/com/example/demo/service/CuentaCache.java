@@ -0,0 +1,163 @@
+package com.example.demo;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Caché en memoria de cuentas por id y de ids de cuenta por cliente, acotada por tamaño y TTL.
+ *
+ * Cada escritura invalida la entrada dentro de la transacción y otra vez al terminarla. Las
+ * lecturas comparan una versión por franja de claves antes y después de guardar el valor leído:
+ * si una escritura terminó mientras tanto, el valor leído se descarta en lugar de quedarse en
+ * caché hasta el TTL.
+ *
+ * Las invalidaciones se propagan a las demás instancias con {@link InvalidacionCompartida}; si
+ * no llegan, la caché no se usa. Sin PostgreSQL (o con cuenta.cache.invalidacion-compartida=false)
+ * solo es válida con una única instancia: las demás servirían el saldo anterior hasta el TTL.
+ */
+@Component
+public class CuentaCache {
+
+    private static final int FRANJAS = 1024;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private InvalidacionCompartida invalidacionCompartida;
+
+    @Value("${cuenta.cache.tamano-maximo:10000}")
+    private long tamanoMaximo;
+
+    @Value("${cuenta.cache.ttl:60s}")
+    private Duration ttl;
+
+    private Cache<Long, CuentaDto> cuentas;
+    private Cache<String, List<Long>> idsPorCliente;
+
+    private final AtomicLongArray versionesCuenta = new AtomicLongArray(FRANJAS);
+    private final AtomicLongArray versionesCliente = new AtomicLongArray(FRANJAS);
+
+    @PostConstruct
+    void iniciar() {
+        cuentas = Caffeine.newBuilder().maximumSize(tamanoMaximo).expireAfterWrite(ttl).recordStats().build();
+        idsPorCliente = Caffeine.newBuilder().maximumSize(tamanoMaximo).expireAfterWrite(ttl).recordStats().build();
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size...
+        CaffeineCacheMetrics.monitor(meterRegistry, cuentas, "cuentas");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsPorCliente, "cuentasPorCliente");
+        invalidacionCompartida.suscribir("cuenta",
+                clave -> invalidarLocal(cuentas, Long.valueOf(clave), versionesCuenta),
+                () -> vaciar(cuentas, versionesCuenta));
+        invalidacionCompartida.suscribir("cliente",
+                clave -> invalidarLocal(idsPorCliente, clave, versionesCliente),
+                () -> vaciar(idsPorCliente, versionesCliente));
+    }
+
+    public Optional<CuentaDto> buscarCuenta(Long numeroCuenta) {
+        if (!invalidacionCompartida.isAlDia()) {
+            return cuentaRepository.findDtoById(numeroCuenta);
+        }
+        CuentaDto cuenta = cuentas.getIfPresent(numeroCuenta);
+        if (cuenta != null) {
+            return Optional.of(cuenta);
+        }
+        int franja = franja(numeroCuenta);
+        long version = versionesCuenta.get(franja);
+        Optional<CuentaDto> leida = cuentaRepository.findDtoById(numeroCuenta);
+        leida.ifPresent(c -> guardar(cuentas, numeroCuenta, c, versionesCuenta, franja, version));
+        return leida;
+    }
+
+    public List<Long> buscarIdsDeCliente(String clienteId) {
+        if (!invalidacionCompartida.isAlDia()) {
+            return List.copyOf(cuentaRepository.findNumerosCuentaByClienteId(clienteId));
+        }
+        List<Long> ids = idsPorCliente.getIfPresent(clienteId);
+        if (ids != null) {
+            return ids;
+        }
+        int franja = franja(clienteId);
+        long version = versionesCliente.get(franja);
+        List<Long> leidos = List.copyOf(cuentaRepository.findNumerosCuentaByClienteId(clienteId));
+        guardar(idsPorCliente, clienteId, leidos, versionesCliente, franja, version);
+        return leidos;
+    }
+
+    /**
+     * Invalida la cuenta (saldo o datos modificados). Dentro de una transacción se invalida
+     * también al terminarla, cuando el cambio ya es visible para las lecturas.
+     */
+    public void invalidarCuenta(Long numeroCuenta) {
+        invalidar(cuentas, numeroCuenta, versionesCuenta, franja(numeroCuenta));
+        invalidacionCompartida.publicar("cuenta", numeroCuenta);
+    }
+
+    /**
+     * Invalida la lista de cuentas del cliente (alta de cuenta o cambio de cliente).
+     */
+    public void invalidarCliente(String clienteId) {
+        if (clienteId != null) {
+            invalidar(idsPorCliente, clienteId, versionesCliente, franja(clienteId));
+            invalidacionCompartida.publicar("cliente", clienteId);
+        }
+    }
+
+    private static <K, V> void guardar(Cache<K, V> cache, K clave, V valor, AtomicLongArray versiones, int franja, long version) {
+        if (versiones.get(franja) != version) {
+            return;
+        }
+        cache.put(clave, valor);
+        // Una invalidación entre la comprobación y el put ya no vería este valor
+        if (versiones.get(franja) != version) {
+            cache.asMap().remove(clave, valor);
+        }
+    }
+
+    private static <K> void invalidar(Cache<K, ?> cache, K clave, AtomicLongArray versiones, int franja) {
+        versiones.incrementAndGet(franja);
+        cache.invalidate(clave);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    versiones.incrementAndGet(franja);
+                    cache.invalidate(clave);
+                }
+            });
+        }
+    }
+
+    /** Invalidación llegada de otra instancia (o de esta, tras confirmarse). */
+    private static <K> void invalidarLocal(Cache<K, ?> cache, K clave, AtomicLongArray versiones) {
+        versiones.incrementAndGet(franja(clave));
+        cache.invalidate(clave);
+    }
+
+    private static void vaciar(Cache<?, ?> cache, AtomicLongArray versiones) {
+        for (int i = 0; i < FRANJAS; i++) {
+            versiones.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    private static int franja(Object clave) {
+        int h = clave.hashCode();
+        return (h ^ (h >>> 16)) & (FRANJAS - 1);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exportación del reporte en streaming. Las filas se leen de un cursor de solo avance y se
+ * escriben directamente en la salida; tras los movimientos de cada cuenta se emite un registro
+ * de totales, de modo que el uso de memoria no depende del número de movimientos.
+ */
+@Service
+public class ExportadorReporte {
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void exportar(String clienteId, RangoFechas rango, String formato, OutputStream salida) throws IOException {
+        try (Stream<ReporteFila> filas = movimientoRepository.streamReporteByClienteId(clienteId, rango.inicio(), rango.fin());
+             Escritor escritor = CSV.equals(formato) ? new EscritorCsv(salida) : new EscritorNdjson(objectMapper, salida)) {
+
+            ReporteFila cuentaActual = null;
+            TotalesMovimientos totales = null;
+
+            Iterator<ReporteFila> iterator = filas.iterator();
+            while (iterator.hasNext()) {
+                ReporteFila fila = iterator.next();
+                if (cuentaActual == null || !fila.numeroCuenta().equals(cuentaActual.numeroCuenta())) {
+                    if (cuentaActual != null) {
+                        escritor.totales(cuentaActual, totales);
+                    }
+                    cuentaActual = fila;
+                    totales = new TotalesMovimientos();
+                }
+
+                // Cuenta sin movimientos en el rango
+                if (fila.numeroMovimiento() == null) {
+                    continue;
+                }
+
+                escritor.movimiento(fila);
+                totales.agregar(fila.valor());
+            }
+            if (cuentaActual != null) {
+                escritor.totales(cuentaActual, totales);
+            }
+        }
+    }
+
+    private interface Escritor extends AutoCloseable {
+
+        void movimiento(ReporteFila fila) throws IOException;
+
+        void totales(ReporteFila cuenta, TotalesMovimientos totales) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Un objeto JSON por línea; "tipo" distingue movimientos de registros de totales.
+     */
+    private static class EscritorNdjson implements Escritor {
+
+        private final JsonGenerator generator;
+
+        EscritorNdjson(ObjectMapper objectMapper, OutputStream salida) throws IOException {
+            // La respuesta la cierra el contenedor, no el generador. Sin separador entre valores
+            // raíz (por defecto un espacio): cada línea empieza directamente por el objeto
+            this.generator = objectMapper.createGenerator(salida)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null);
+        }
+
+        @Override
+        public void movimiento(ReporteFila fila) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("tipo", "movimiento");
+            generator.writeNumberField("numeroCuenta", fila.numeroCuenta());
+            generator.writeNumberField("numeroMovimiento", fila.numeroMovimiento());
+            generator.writeObjectField("fechaMovimiento", fila.fechaMovimiento());
+            generator.writeStringField("tipoMovimiento", fila.tipoMovimiento());
+            generator.writeNumberField("valor", fila.valor());
+            generator.writeNumberField("saldo", fila.saldo());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void totales(ReporteFila cuenta, TotalesMovimientos totales) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("tipo", "totalCuenta");
+            generator.writeNumberField("numeroCuenta", cuenta.numeroCuenta());
+            generator.writeStringField("tipoCuenta", cuenta.tipoCuenta());
+            generator.writeStringField("estado", cuenta.estado());
+            generator.writeNumberField("saldoActual", cuenta.saldoInicial());
+            generator.writeNumberField("totalMovimientos", totales.getMovimientos());
+            generator.writeNumberField("totalDebitos", totales.getDebitos());
+            generator.writeNumberField("totalCreditos", totales.getCreditos());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    /**
+     * Columnas fijas; las filas de totales tienen tipo "TOTAL" y dejan vacías las columnas
+     * del movimiento.
+     */
+    private static class EscritorCsv implements Escritor {
+
+        private static final DateTimeFormatter FECHA = DateTimeFormatter.ISO_LOCAL_DATE_TIME.withZone(ZoneId.systemDefault());
+
+        private final Writer writer;
+
+        EscritorCsv(OutputStream salida) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+            writer.write("tipo,numeroCuenta,numeroMovimiento,fechaMovimiento,tipoMovimiento,valor,saldo,totalMovimientos,totalDebitos,totalCreditos\n");
+        }
+
+        @Override
+        public void movimiento(ReporteFila fila) throws IOException {
+            writer.write("MOVIMIENTO,");
+            writer.write(fila.numeroCuenta().toString());
+            writer.write(',');
+            writer.write(fila.numeroMovimiento().toString());
+            writer.write(',');
+            writer.write(FECHA.format(fila.fechaMovimiento().toInstant()));
+            writer.write(',');
+            writer.write(texto(fila.tipoMovimiento()));
+            writer.write(',');
+            writer.write(fila.valor().toPlainString());
+            writer.write(',');
+            writer.write(fila.saldo().toPlainString());
+            writer.write(",,,\n");
+        }
+
+        @Override
+        public void totales(ReporteFila cuenta, TotalesMovimientos totales) throws IOException {
+            writer.write("TOTAL,");
+            writer.write(cuenta.numeroCuenta().toString());
+            writer.write(",,,,,");
+            writer.write(cuenta.saldoInicial().toPlainString());
+            writer.write(',');
+            writer.write(Integer.toString(totales.getMovimientos()));
+            writer.write(',');
+            writer.write(totales.getDebitos().toPlainString());
+            writer.write(',');
+            writer.write(totales.getCreditos().toPlainString());
+            writer.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+
+        private static String texto(String valor) {
+            if (valor == null) {
+                return "";
+            }
+            if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0) {
+                return valor;
+            }
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.demo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Propaga las invalidaciones de las cachés en memoria (CuentaCache, ReporteCache) a todas las
+ * instancias con LISTEN/NOTIFY de PostgreSQL.
+ *
+ * Las invalidaciones de una transacción se publican con pg_notify justo antes de confirmarla,
+ * así que PostgreSQL solo las entrega si se confirma y después de confirmarse. Cada instancia
+ * escucha el canal en un hilo con una conexión propia, fuera del pool, y aplica lo que llega de
+ * cualquier instancia, también de ella misma.
+ *
+ * Mientras esa conexión no está establecida las invalidaciones de otras instancias se pierden:
+ * {@link #isAlDia} es false, las cachés no se usan y se vacían al volver a conectar. Con otra
+ * base de datos (H2 en las pruebas) o cuenta.cache.invalidacion-compartida=false cada instancia
+ * solo ve sus propias invalidaciones, lo que solo es válido con una única instancia.
+ */
+@Component
+public class InvalidacionCompartida {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidacionCompartida.class);
+    private static final String CANAL = "cuenta_cache";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${cuenta.cache.invalidacion-compartida:true}")
+    private boolean activo;
+
+    /** Tipo de clave → invalidación local de esa clave. */
+    private final Map<String, Consumer<String>> suscriptores = new ConcurrentHashMap<>();
+    /** Vaciado completo de cada caché, tras perder avisos. */
+    private final List<Runnable> vaciados = new CopyOnWriteArrayList<>();
+
+    private boolean compartida;
+    private volatile boolean conectado;
+    private volatile boolean cerrando;
+    private Thread escucha;
+
+    @PostConstruct
+    void iniciar() {
+        String url = dataSourceProperties.determineUrl();
+        compartida = activo && url != null && url.startsWith("jdbc:postgresql:");
+        if (compartida) {
+            escucha = Thread.ofPlatform().name("cache-invalidacion").daemon().start(this::escuchar);
+        }
+    }
+
+    @PreDestroy
+    void cerrar() {
+        cerrando = true;
+        if (escucha != null) {
+            escucha.interrupt();
+        }
+    }
+
+    /**
+     * Registra una caché: {@code invalidar} recibe las claves de {@code tipo} invalidadas en
+     * cualquier instancia y {@code vaciar} se llama si pudieron perderse avisos.
+     */
+    public void suscribir(String tipo, Consumer<String> invalidar, Runnable vaciar) {
+        suscriptores.put(tipo, invalidar);
+        vaciados.add(vaciar);
+    }
+
+    /**
+     * Indica si las cachés pueden usarse: sin invalidación compartida siempre; con ella, solo
+     * mientras se está escuchando el canal.
+     */
+    public boolean isAlDia() {
+        return !compartida || conectado;
+    }
+
+    /**
+     * Publica la invalidación para todas las instancias. Dentro de una transacción se acumula y
+     * se envía, con una sola sentencia, antes de confirmarla.
+     */
+    public void publicar(String tipo, Object clave) {
+        if (!compartida) {
+            return;
+        }
+        String aviso = tipo + ":" + clave;
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            notificar(List.of(aviso));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> pendientes = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pendientes == null) {
+            Set<String> avisos = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, avisos);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    notificar(avisos);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(InvalidacionCompartida.this);
+                }
+            });
+            pendientes = avisos;
+        }
+        pendientes.add(aviso);
+    }
+
+    private void notificar(Collection<String> avisos) {
+        if (avisos.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute("SELECT pg_notify(?, aviso) FROM unnest(?) AS aviso", (PreparedStatement ps) -> {
+            ps.setString(1, CANAL);
+            ps.setArray(2, ps.getConnection().createArrayOf("text", avisos.toArray()));
+            ps.execute();
+            return null;
+        });
+    }
+
+    private void escuchar() {
+        long espera = 1000;
+        while (!cerrando) {
+            try (Connection conexion = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+                 Statement sentencia = conexion.createStatement()) {
+                sentencia.execute("LISTEN " + CANAL);
+                PGConnection pg = conexion.unwrap(PGConnection.class);
+                // Lo invalidado mientras no se escuchaba no llegará
+                vaciados.forEach(Runnable::run);
+                conectado = true;
+                espera = 1000;
+                log.info("Escuchando invalidaciones de caché de otras instancias");
+                while (!cerrando) {
+                    PGNotification[] avisos = pg.getNotifications(1000);
+                    if (avisos != null) {
+                        for (PGNotification aviso : avisos) {
+                            aplicar(aviso.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!cerrando) {
+                    log.warn("Sin invalidaciones de caché de otras instancias; se reintenta en {} ms: {}", espera, e.getMessage());
+                }
+            } finally {
+                conectado = false;
+            }
+            try {
+                Thread.sleep(espera);
+            } catch (InterruptedException e) {
+                return;
+            }
+            espera = Math.min(espera * 2, 30_000);
+        }
+    }
+
+    private void aplicar(String aviso) {
+        int separador = aviso.indexOf(':');
+        Consumer<String> invalidar = separador < 0 ? null : suscriptores.get(aviso.substring(0, separador));
+        if (invalidar != null) {
+            invalidar.accept(aviso.substring(separador + 1));
+        }
+    }
+}
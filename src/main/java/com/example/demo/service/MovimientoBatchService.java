@@ -0,0 +1,205 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Carga masiva de movimientos. Agrupa los movimientos por cuenta, los aplica en el
+ * orden recibido sobre el saldo de cada cuenta y los inserta con lotes JDBC.
+ *
+ * Cada elemento se valida contra las restricciones de movimiento antes de insertarlo, igual que
+ * en el ledger: uno que la base de datos rechazaría se rechaza por sí solo, sin hacer fallar
+ * la transacción del lote completo.
+ */
+@Service
+public class MovimientoBatchService {
+
+    /** Límite de parámetros por consulta IN al bloquear cuentas. */
+    private static final int CUENTAS_POR_CONSULTA = 1000;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private SaldoDiarioService saldoDiarioService;
+
+    @Autowired
+    private CuentaCache cuentaCache;
+
+    @Autowired
+    private ReporteCache reporteCache;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}")
+    private int tamanoLote;
+
+    /** Cuentas a las que se aplicaría el lote. */
+    public static Set<Long> cuentas(List<Movimiento> movimientos) {
+        Set<Long> cuentas = new HashSet<>();
+        for (Movimiento movimiento : movimientos) {
+            if (movimiento.getCuenta() != null && movimiento.getCuenta().getNumeroCuenta() != null) {
+                cuentas.add(movimiento.getCuenta().getNumeroCuenta());
+            }
+        }
+        return cuentas;
+    }
+
+    /**
+     * Con el ledger activo, las cuentas del lote ({@link #cuentas}) deben estar suspendidas con
+     * {@link LedgerService#conCuentasSuspendidas}.
+     */
+    @Transactional
+    public List<MovimientoBatchResultado> registrar(List<Movimiento> movimientos) {
+        MovimientoBatchResultado[] resultados = new MovimientoBatchResultado[movimientos.size()];
+
+        // Agrupar por cuenta conservando el orden de llegada dentro de cada cuenta
+        Map<Long, List<Integer>> indicesPorCuenta = new LinkedHashMap<>();
+        for (int i = 0; i < movimientos.size(); i++) {
+            Movimiento movimiento = movimientos.get(i);
+            if (movimiento.getCuenta() == null || movimiento.getCuenta().getNumeroCuenta() == null) {
+                resultados[i] = MovimientoBatchResultado.rechazado(i, null, "La cuenta es requerida");
+            } else if (movimiento.getValor() == null) {
+                resultados[i] = MovimientoBatchResultado.rechazado(i, movimiento.getCuenta().getNumeroCuenta(), "El valor es requerido");
+            } else if (!tipoMovimientoValido(movimiento.getTipoMovimiento())) {
+                resultados[i] = MovimientoBatchResultado.rechazado(i, movimiento.getCuenta().getNumeroCuenta(), "Tipo de movimiento inválido");
+            } else {
+                indicesPorCuenta.computeIfAbsent(movimiento.getCuenta().getNumeroCuenta(), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        ledgerService.exigirSuspendidas(indicesPorCuenta.keySet());
+        Map<Long, Cuenta> cuentas = bloquearCuentas(indicesPorCuenta.keySet().toArray(new Long[0]));
+
+        int sinSaldo = 0;
+        Date ahora = new Date();
+        List<Movimiento> pendientes = new ArrayList<>(tamanoLote);
+        List<SaldoDiarioService.BloqueDiario> bloques = new ArrayList<>();
+        for (Map.Entry<Long, List<Integer>> entry : indicesPorCuenta.entrySet()) {
+            Cuenta cuenta = cuentas.get(entry.getKey());
+            if (cuenta == null) {
+                for (Integer indice : entry.getValue()) {
+                    resultados[indice] = MovimientoBatchResultado.rechazado(indice, entry.getKey(), "Cuenta no encontrada");
+                }
+                continue;
+            }
+
+            // Saldo corriente en centavos; solo se convierte a BigDecimal al guardar
+            long saldo = Centavos.de(cuenta.getSaldoInicial());
+            SaldoDiarioService.BloqueDiario bloque = null;
+            for (Integer indice : entry.getValue()) {
+                Movimiento movimiento = movimientos.get(indice);
+                long valor;
+                long nuevoSaldo;
+                try {
+                    valor = Centavos.de(movimiento.getValor());
+                    nuevoSaldo = Centavos.sumar(saldo, valor);
+                } catch (ArithmeticException e) {
+                    resultados[indice] = MovimientoBatchResultado.rechazado(indice, entry.getKey(), "Valor inválido");
+                    continue;
+                }
+                // El valor y el saldo deben caber en NUMERIC(15,2)
+                if (Math.abs(valor) > Centavos.MAXIMO_NUMERIC_15_2 || nuevoSaldo > Centavos.MAXIMO_NUMERIC_15_2) {
+                    resultados[indice] = MovimientoBatchResultado.rechazado(indice, entry.getKey(), "Valor inválido");
+                    continue;
+                }
+
+                // Validar que el saldo no sea negativo (saldo no disponible)
+                if (nuevoSaldo < 0) {
+                    resultados[indice] = MovimientoBatchResultado.rechazado(indice, entry.getKey(), "Saldo no disponible");
+                    sinSaldo++;
+                    continue;
+                }
+
+                movimiento.setNumeroMovimiento(null);
+                if (movimiento.getFechaMovimiento() == null) {
+                    movimiento.setFechaMovimiento(ahora);
+                }
+                movimiento.setCuenta(cuenta);
+                movimiento.setSaldo(Centavos.aBigDecimal(nuevoSaldo));
+                entityManager.persist(movimiento);
+
+                // Movimientos consecutivos del mismo día se resumen juntos
+                LocalDate dia = SaldoDiarioService.dia(movimiento.getFechaMovimiento());
+                if (bloque == null || !bloque.dia().equals(dia)) {
+                    bloque = new SaldoDiarioService.BloqueDiario(cuenta.getNumeroCuenta(), dia, saldo);
+                    bloques.add(bloque);
+                }
+                bloque.totales().agregar(valor);
+                saldo = nuevoSaldo;
+
+                resultados[indice] = MovimientoBatchResultado.aceptado(indice, movimiento);
+                pendientes.add(movimiento);
+                if (pendientes.size() >= tamanoLote) {
+                    vaciarLote(pendientes);
+                }
+            }
+
+            // Un único UPDATE por cuenta con el saldo final
+            cuenta.setSaldoInicial(Centavos.aBigDecimal(saldo));
+            cuentaCache.invalidarCuenta(cuenta.getNumeroCuenta());
+            reporteCache.invalidarCliente(cuenta.getClienteId());
+        }
+        vaciarLote(pendientes);
+
+        // Los resúmenes diarios se actualizan al final, con dos lotes para todas las cuentas
+        saldoDiarioService.registrar(bloques);
+
+        meterRegistry.counter(Metricas.MOVIMIENTOS_RECHAZADOS, "motivo", "saldo_no_disponible", "operacion", "batch").increment(sinSaldo);
+        return Arrays.asList(resultados);
+    }
+
+    private static boolean tipoMovimientoValido(String tipoMovimiento) {
+        return tipoMovimiento != null && !tipoMovimiento.isBlank() && tipoMovimiento.length() <= Movimiento.MAXIMO_TIPO_MOVIMIENTO;
+    }
+
+    private Map<Long, Cuenta> bloquearCuentas(Long[] numerosCuenta) {
+        Arrays.sort(numerosCuenta);
+        Map<Long, Cuenta> cuentas = new HashMap<>();
+        for (int desde = 0; desde < numerosCuenta.length; desde += CUENTAS_POR_CONSULTA) {
+            int hasta = Math.min(desde + CUENTAS_POR_CONSULTA, numerosCuenta.length);
+            for (Cuenta cuenta : cuentaRepository.findAllForUpdate(Arrays.asList(numerosCuenta).subList(desde, hasta))) {
+                cuentas.put(cuenta.getNumeroCuenta(), cuenta);
+            }
+        }
+        return cuentas;
+    }
+
+    /**
+     * Envía el lote pendiente a la base de datos y libera los movimientos del contexto de
+     * persistencia; las cuentas siguen gestionadas para actualizar su saldo al final.
+     */
+    private void vaciarLote(List<Movimiento> pendientes) {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+        for (Movimiento movimiento : pendientes) {
+            entityManager.detach(movimiento);
+        }
+        pendientes.clear();
+    }
+}
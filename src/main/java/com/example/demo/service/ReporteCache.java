@@ -0,0 +1,143 @@
+package com.example.demo;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Caché de reportes por (clienteId, rango, detalle) con una versión por cliente.
+ *
+ * Cualquier cambio en las cuentas o movimientos del cliente incrementa su versión (dentro de la
+ * transacción y otra vez al terminarla), lo que invalida a la vez todos sus reportes y su ETag.
+ * Las versiones se guardan por franjas de clienteId, así que un cambio puede invalidar también
+ * reportes de otros clientes de la misma franja, nunca dejar uno sin invalidar.
+ *
+ * Las versiones son de cada instancia: los cambios hechos en otras llegan por
+ * {@link InvalidacionCompartida} y, mientras no puede garantizarse que lleguen, la caché no se
+ * usa ni se responde 304. Como los ETag llevan la época del arranque de la instancia, uno emitido
+ * por otra instancia nunca coincide: detrás de un balanceador solo se pierde el 304, no se sirve
+ * un reporte desactualizado.
+ */
+@Component
+public class ReporteCache {
+
+    private static final int FRANJAS = 4096;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private InvalidacionCompartida invalidacionCompartida;
+
+    @Value("${cuenta.reporte.cache.tamano-maximo:200}")
+    private long tamanoMaximo;
+
+    @Value("${cuenta.reporte.cache.ttl:5m}")
+    private Duration ttl;
+
+    private Cache<Clave, Entrada> reportes;
+
+    private final AtomicLongArray versiones = new AtomicLongArray(FRANJAS);
+
+    /** Distingue los ETag de cada arranque, ya que las versiones vuelven a empezar en cero. */
+    private final String epoca = Long.toString(System.currentTimeMillis(), 36);
+
+    public record Clave(String clienteId, long inicio, long fin, boolean detalle) {
+
+        public static Clave de(String clienteId, RangoFechas rango, boolean detalle) {
+            return new Clave(clienteId, rango.inicio().getTime(), rango.fin().getTime(), detalle);
+        }
+    }
+
+    private record Entrada(long version, Map<String, Object> reporte) {
+    }
+
+    @PostConstruct
+    void iniciar() {
+        reportes = Caffeine.newBuilder().maximumSize(tamanoMaximo).expireAfterWrite(ttl).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, reportes, "reportes");
+        invalidacionCompartida.suscribir("reporte", clienteId -> versiones.incrementAndGet(franja(clienteId)), this::invalidarTodo);
+    }
+
+    /**
+     * Indica si las versiones reflejan los cambios de todas las instancias; si no, no debe
+     * responderse 304 con ellas.
+     */
+    public boolean isAlDia() {
+        return invalidacionCompartida.isAlDia();
+    }
+
+    public long version(String clienteId) {
+        return versiones.get(franja(clienteId));
+    }
+
+    /**
+     * @param formato formato negociado de la respuesta: cada representación lleva su propio ETag
+     */
+    public String etag(Clave clave, long version, String formato) {
+        return "\"" + epoca + "-" + Long.toString(version, 36) + "-" + Integer.toHexString(clave.hashCode()) + "-" + formato + "\"";
+    }
+
+    /**
+     * Devuelve el reporte guardado para esa versión o lo genera. Un reporte generado mientras
+     * cambiaba la versión queda guardado con la anterior y no vuelve a servirse.
+     *
+     * @param generar devuelve null si no hay reporte (no se guarda)
+     */
+    public Map<String, Object> obtener(Clave clave, long version, Supplier<Map<String, Object>> generar) {
+        if (!isAlDia()) {
+            return generar.get();
+        }
+        Entrada entrada = reportes.getIfPresent(clave);
+        if (entrada != null && entrada.version() == version) {
+            return entrada.reporte();
+        }
+        Map<String, Object> reporte = generar.get();
+        if (reporte != null) {
+            reportes.put(clave, new Entrada(version, reporte));
+        }
+        return reporte;
+    }
+
+    public void invalidarCliente(String clienteId) {
+        if (clienteId == null) {
+            return;
+        }
+        int franja = franja(clienteId);
+        versiones.incrementAndGet(franja);
+        invalidacionCompartida.publicar("reporte", clienteId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    versiones.incrementAndGet(franja);
+                }
+            });
+        }
+    }
+
+    /** Tras perder avisos de otras instancias: ningún reporte ni ETag anterior sigue siendo válido. */
+    private void invalidarTodo() {
+        for (int i = 0; i < FRANJAS; i++) {
+            versiones.incrementAndGet(i);
+        }
+        reportes.invalidateAll();
+    }
+
+    private static int franja(String clienteId) {
+        int h = clienteId.hashCode();
+        return (h ^ (h >>> 16)) & (FRANJAS - 1);
+    }
+}
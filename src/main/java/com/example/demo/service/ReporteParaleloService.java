@@ -0,0 +1,104 @@
+package com.example.demo;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Ensamblado del reporte por grupos de cuentas en paralelo, sobre hilos virtuales.
+ *
+ * Cada grupo es una consulta independiente (sin transacción compartida, para no retener una
+ * conexión mientras se espera a las demás). Un semáforo común a todas las peticiones limita
+ * las consultas simultáneas a una parte del pool de Hikari, de modo que los reportes no dejan
+ * sin conexiones a las escrituras.
+ */
+@Service
+public class ReporteParaleloService {
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private CuentaCache cuentaCache;
+
+    /** Solo con hilos virtuales tiene sentido bloquear un hilo por grupo de cuentas. */
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean activo;
+
+    private final Semaphore permisos;
+    private final int maximoConcurrente;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ReporteParaleloService(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int tamanoPool,
+                                  @Value("${cuenta.reporte.paralelo.maximo:0}") int maximo) {
+        // Por defecto la mitad del pool; el resto queda para escrituras y demás consultas
+        this.maximoConcurrente = maximo > 0 ? maximo : Math.max(1, tamanoPool / 2);
+        this.permisos = new Semaphore(maximoConcurrente);
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    /**
+     * Mismo resultado y orden que {@link ReporteService#generarCuentas}.
+     */
+    public List<Map<String, Object>> generarCuentas(String clienteId, Date fechaInicio, Date fechaFin) {
+        List<Long> numerosCuenta = cuentaCache.buscarIdsDeCliente(clienteId);
+        if (numerosCuenta.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Grupos contiguos de cuentas: concatenados en orden conservan el orden por numeroCuenta
+        int grupos = Math.min(maximoConcurrente, numerosCuenta.size());
+        int tamanoGrupo = (numerosCuenta.size() + grupos - 1) / grupos;
+        List<Future<List<Map<String, Object>>>> tareas = new ArrayList<>();
+        for (int desde = 0; desde < numerosCuenta.size(); desde += tamanoGrupo) {
+            List<Long> grupo = numerosCuenta.subList(desde, Math.min(desde + tamanoGrupo, numerosCuenta.size()));
+            tareas.add(executor.submit(() -> generarGrupo(grupo, fechaInicio, fechaFin)));
+        }
+
+        List<Map<String, Object>> cuentasReporte = new ArrayList<>();
+        try {
+            for (Future<List<Map<String, Object>>> tarea : tareas) {
+                cuentasReporte.addAll(tarea.get());
+            }
+        } catch (InterruptedException e) {
+            tareas.forEach(t -> t.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Generación del reporte interrumpida", e);
+        } catch (ExecutionException e) {
+            tareas.forEach(t -> t.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return cuentasReporte;
+    }
+
+    private List<Map<String, Object>> generarGrupo(List<Long> numerosCuenta, Date fechaInicio, Date fechaFin) throws InterruptedException {
+        permisos.acquire();
+        try {
+            return ReporteService.ensamblar(movimientoRepository.findReporteByNumerosCuenta(numerosCuenta, fechaInicio, fechaFin));
+        } finally {
+            permisos.release();
+        }
+    }
+
+    @PreDestroy
+    void cerrar() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ensambla el detalle por cuenta del reporte a partir de una única consulta, con una sola
+ * pasada sobre las filas para mapear movimientos y acumular débitos y créditos (en centavos).
+ */
+@Service
+public class ReporteService {
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private SaldoDiarioRepository saldoDiarioRepository;
+
+    /**
+     * @return una entrada por cuenta del cliente; vacía si el cliente no tiene cuentas
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> generarCuentas(String clienteId, Date fechaInicio, Date fechaFin) {
+        return ensamblar(movimientoRepository.findReporteByClienteId(clienteId, fechaInicio, fechaFin));
+    }
+
+    /**
+     * Reporte solo de totales (sin detalle de movimientos), calculado sobre los resúmenes
+     * diarios: lee una fila por cuenta y día en lugar de una por movimiento.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> generarTotales(String clienteId, Date fechaInicio, Date fechaFin) {
+        List<Map<String, Object>> cuentasReporte = new ArrayList<>();
+        for (ReporteTotalesFila fila : saldoDiarioRepository.findTotalesByClienteId(
+                clienteId, SaldoDiarioService.dia(fechaInicio), SaldoDiarioService.dia(fechaFin))) {
+            Map<String, Object> cuentaInfo = new HashMap<>();
+            cuentaInfo.put("numeroCuenta", fila.numeroCuenta());
+            cuentaInfo.put("tipoCuenta", fila.tipoCuenta());
+            cuentaInfo.put("saldoInicial", fila.saldoInicial());
+            cuentaInfo.put("saldoActual", fila.saldoInicial());
+            cuentaInfo.put("estado", fila.estado());
+            cuentaInfo.put("totalMovimientos", fila.totalMovimientos() == null ? 0 : fila.totalMovimientos().intValue());
+            cuentaInfo.put("totalDebitos", fila.totalDebitos() == null ? BigDecimal.ZERO : fila.totalDebitos());
+            cuentaInfo.put("totalCreditos", fila.totalCreditos() == null ? BigDecimal.ZERO : fila.totalCreditos());
+            cuentasReporte.add(cuentaInfo);
+        }
+        return cuentasReporte;
+    }
+
+    /**
+     * Las filas deben venir ordenadas por cuenta.
+     */
+    static List<Map<String, Object>> ensamblar(List<ReporteFila> filas) {
+        List<Map<String, Object>> cuentasReporte = new ArrayList<>();
+
+        Map<String, Object> cuentaInfo = null;
+        List<Map<String, Object>> movimientosInfo = null;
+        TotalesMovimientos totales = null;
+
+        for (ReporteFila fila : filas) {
+            if (cuentaInfo == null || !fila.numeroCuenta().equals(cuentaInfo.get("numeroCuenta"))) {
+                if (cuentaInfo != null) {
+                    cerrarCuenta(cuentaInfo, movimientosInfo, totales);
+                }
+                cuentaInfo = new HashMap<>();
+                cuentaInfo.put("numeroCuenta", fila.numeroCuenta());
+                cuentaInfo.put("tipoCuenta", fila.tipoCuenta());
+                cuentaInfo.put("saldoInicial", fila.saldoInicial());
+                cuentaInfo.put("saldoActual", fila.saldoInicial());
+                cuentaInfo.put("estado", fila.estado());
+                cuentasReporte.add(cuentaInfo);
+
+                movimientosInfo = new ArrayList<>();
+                totales = new TotalesMovimientos();
+            }
+
+            // Cuenta sin movimientos en el rango
+            if (fila.numeroMovimiento() == null) {
+                continue;
+            }
+
+            Map<String, Object> mov = new HashMap<>();
+            mov.put("numeroMovimiento", fila.numeroMovimiento());
+            mov.put("fechaMovimiento", fila.fechaMovimiento());
+            mov.put("tipoMovimiento", fila.tipoMovimiento());
+            mov.put("valor", fila.valor());
+            mov.put("saldo", fila.saldo());
+            movimientosInfo.add(mov);
+            totales.agregar(fila.valor());
+        }
+        if (cuentaInfo != null) {
+            cerrarCuenta(cuentaInfo, movimientosInfo, totales);
+        }
+
+        return cuentasReporte;
+    }
+
+    private static void cerrarCuenta(Map<String, Object> cuentaInfo, List<Map<String, Object>> movimientosInfo,
+                                     TotalesMovimientos totales) {
+        cuentaInfo.put("movimientos", movimientosInfo);
+        cuentaInfo.put("totalMovimientos", totales.getMovimientos());
+        cuentaInfo.put("totalDebitos", totales.getDebitos());
+        cuentaInfo.put("totalCreditos", totales.getCreditos());
+    }
+}
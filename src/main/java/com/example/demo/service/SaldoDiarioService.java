@@ -0,0 +1,199 @@
+package com.example.demo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Mantenimiento incremental de los resúmenes diarios (saldo_diario). Cada operación toca solo
+ * el día del movimiento y desplaza apertura/cierre de los días posteriores con un UPDATE. Los
+ * movimientos nuevos se registran por bloques con dos lotes JDBC, sea cual sea el número de
+ * cuentas y días: uno que crea los días que faltan y otro que aplica los totales.
+ *
+ * Los métodos incrementales deben llamarse dentro de la transacción que modifica el saldo de la
+ * cuenta, con su fila ya bloqueada.
+ */
+@Service
+public class SaldoDiarioService {
+
+    @Autowired
+    private SaldoDiarioRepository saldoDiarioRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private ReporteCache reporteCache;
+
+    @Autowired
+    private ParticionMovimientoJob particionMovimientoJob;
+
+    /**
+     * Registra un movimiento nuevo en su día, que puede ser anterior a otros días con resumen.
+     *
+     * @param saldoPrevio saldo de la cuenta justo antes del movimiento; solo se usa como apertura
+     *                    si la cuenta no tiene ningún día con resumen
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(Long numeroCuenta, Date fecha, BigDecimal saldoPrevio, BigDecimal valor) {
+        BloqueDiario bloque = new BloqueDiario(numeroCuenta, dia(fecha), Centavos.de(saldoPrevio));
+        bloque.totales().agregar(valor);
+        registrar(List.of(bloque));
+    }
+
+    /**
+     * Registra bloques de movimientos nuevos, de una o varias cuentas, con dos lotes JDBC.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(List<BloqueDiario> bloques) {
+        if (bloques.isEmpty()) {
+            return;
+        }
+        // Sin ningún día con resumen, la apertura es el saldo antes del primer bloque de la cuenta
+        Map<Long, Long> saldoPrevio = new HashMap<>();
+        for (BloqueDiario bloque : bloques) {
+            saldoPrevio.putIfAbsent(bloque.numeroCuenta(), bloque.saldoPrevio());
+        }
+        // Por fecha dentro de cada cuenta: cada día nuevo abre con el cierre del anterior, también
+        // si este es nuevo en el mismo lote. Los desplazamientos se suman, y su orden da igual
+        List<BloqueDiario> ordenados = new ArrayList<>(bloques);
+        ordenados.sort(Comparator.comparing(BloqueDiario::numeroCuenta).thenComparing(BloqueDiario::dia));
+        SqlParameterSource[] dias = new SqlParameterSource[ordenados.size()];
+        SqlParameterSource[] totales = new SqlParameterSource[ordenados.size()];
+        for (int i = 0; i < ordenados.size(); i++) {
+            BloqueDiario bloque = ordenados.get(i);
+            TotalesMovimientos t = bloque.totales();
+            dias[i] = new MapSqlParameterSource()
+                    .addValue("numeroCuenta", bloque.numeroCuenta())
+                    .addValue("fecha", bloque.dia())
+                    .addValue("saldoPrevio", Centavos.aBigDecimal(saldoPrevio.get(bloque.numeroCuenta())));
+            totales[i] = new MapSqlParameterSource()
+                    .addValue("numeroCuenta", bloque.numeroCuenta())
+                    .addValue("fecha", bloque.dia())
+                    .addValue("neto", t.getCreditos().subtract(t.getDebitos()))
+                    .addValue("debitos", t.getDebitos())
+                    .addValue("creditos", t.getCreditos())
+                    .addValue("movimientos", t.getMovimientos());
+        }
+        namedParameterJdbcTemplate.batchUpdate(SaldoDiarioRepository.ABRIR_DIA, dias);
+        namedParameterJdbcTemplate.batchUpdate(SaldoDiarioRepository.APLICAR, totales);
+    }
+
+    /**
+     * Retira un movimiento existente de su día.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revertir(Long numeroCuenta, Date fecha, BigDecimal valor) {
+        LocalDate dia = dia(fecha);
+        saldoDiarioRepository.aplicar(numeroCuenta, dia, valor.negate(), debitos(valor).negate(), creditos(valor).negate(), -1);
+        saldoDiarioRepository.eliminarSiVacio(numeroCuenta, dia);
+    }
+
+    /**
+     * Cambia el valor de un movimiento sin moverlo de día.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ajustar(Long numeroCuenta, Date fecha, BigDecimal valorAnterior, BigDecimal valorNuevo) {
+        saldoDiarioRepository.aplicar(numeroCuenta, dia(fecha), valorNuevo.subtract(valorAnterior),
+                debitos(valorNuevo).subtract(debitos(valorAnterior)),
+                creditos(valorNuevo).subtract(creditos(valorAnterior)), 0);
+    }
+
+    /**
+     * Recalcula desde cero los resúmenes de una cuenta a partir de sus movimientos. Los días de
+     * meses archivados (ver {@link ParticionMovimientoJob}) ya no tienen sus movimientos en
+     * movimiento: sus resúmenes se conservan y solo se recalcula el rango no archivado.
+     */
+    @Transactional
+    public void reconstruir(Long numeroCuenta) {
+        // Bloquea la cuenta para que no entren movimientos durante la reconstrucción
+        for (Cuenta cuenta : cuentaRepository.findAllForUpdate(List.of(numeroCuenta))) {
+            reporteCache.invalidarCliente(cuenta.getClienteId());
+        }
+        Optional<LocalDate> inicio = particionMovimientoJob.inicioNoArchivado();
+        if (inicio.isEmpty()) {
+            saldoDiarioRepository.eliminarCuenta(numeroCuenta);
+            saldoDiarioRepository.reconstruirCuenta(numeroCuenta);
+        } else {
+            saldoDiarioRepository.eliminarCuentaDesde(numeroCuenta, inicio.get());
+            saldoDiarioRepository.reconstruirCuentaDesde(numeroCuenta,
+                    Date.from(inicio.get().atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        }
+    }
+
+    /**
+     * Saldo de la cuenta en un instante. Parte del resumen diario más cercano como punto de
+     * control y solo suma los movimientos del propio día hasta el instante, de modo que el coste
+     * no crece con el historial de la cuenta.
+     *
+     * @return vacío si la cuenta no existe
+     */
+    @Transactional(readOnly = true)
+    public Optional<BigDecimal> saldoAl(Long numeroCuenta, Date instante) {
+        LocalDate dia = dia(instante);
+        Optional<SaldoDiario> anterior = saldoDiarioRepository.findFirstByNumeroCuentaAndFechaLessThanEqualOrderByFechaDesc(numeroCuenta, dia);
+        if (anterior.isPresent()) {
+            SaldoDiario resumen = anterior.get();
+            if (resumen.getFecha().isBefore(dia)) {
+                // Sin movimientos entre ese día y el instante
+                return Optional.of(resumen.getSaldoCierre());
+            }
+            Date inicioDia = Date.from(dia.atStartOfDay(ZoneId.systemDefault()).toInstant());
+            return Optional.of(resumen.getSaldoApertura().add(movimientoRepository.sumarValorEntre(numeroCuenta, inicioDia, instante)));
+        }
+
+        // Instante anterior a todos los movimientos: el saldo previo al primero de ellos
+        Optional<SaldoDiario> siguiente = saldoDiarioRepository.findFirstByNumeroCuentaAndFechaGreaterThanOrderByFechaAsc(numeroCuenta, dia);
+        if (siguiente.isPresent()) {
+            return Optional.of(siguiente.get().getSaldoApertura());
+        }
+
+        // Cuenta sin movimientos: su saldo no ha cambiado
+        return cuentaRepository.findById(numeroCuenta).map(Cuenta::getSaldoInicial);
+    }
+
+    public static LocalDate dia(Date fecha) {
+        return fecha.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static BigDecimal creditos(BigDecimal valor) {
+        return valor.signum() > 0 ? valor : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal debitos(BigDecimal valor) {
+        return valor.signum() < 0 ? valor.negate() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Movimientos nuevos de una cuenta en un mismo día.
+     *
+     * @param saldoPrevio saldo de la cuenta, en centavos, justo antes del primero de ellos
+     */
+    public record BloqueDiario(Long numeroCuenta, LocalDate dia, long saldoPrevio, TotalesMovimientos totales) {
+
+        public BloqueDiario(Long numeroCuenta, LocalDate dia, long saldoPrevio) {
+            this(numeroCuenta, dia, saldoPrevio, new TotalesMovimientos());
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.demo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Actualización de saldos sin pérdida de actualizaciones bajo concurrencia.
+ *
+ * El saldo se modifica con un UPDATE condicional atómico en lugar de leer, sumar en Java y
+ * guardar: la fila de la cuenta queda bloqueada solo durante la transacción del movimiento, y
+ * el movimiento y el nuevo saldo se confirman juntos.
+ */
+@Service
+public class SaldoService {
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private SaldoDiarioService saldoDiarioService;
+
+    @Autowired
+    private CuentaCache cuentaCache;
+
+    @Autowired
+    private ReporteCache reporteCache;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional
+    public Movimiento registrarMovimiento(Movimiento movimiento) {
+        Cuenta cuenta = aplicar(movimiento.getCuenta().getNumeroCuenta(), movimiento.getValor());
+
+        // Set fechaMovimiento if not provided
+        if (movimiento.getFechaMovimiento() == null) {
+            movimiento.setFechaMovimiento(new Date());
+        }
+
+        movimiento.setCuenta(cuenta);
+        movimiento.setSaldo(cuenta.getSaldoInicial());
+        Movimiento savedMovimiento = movimientoRepository.save(movimiento);
+
+        saldoDiarioService.registrar(cuenta.getNumeroCuenta(), movimiento.getFechaMovimiento(),
+                cuenta.getSaldoInicial().subtract(movimiento.getValor()), movimiento.getValor());
+        return savedMovimiento;
+    }
+
+    /**
+     * Suma {@code valor} al saldo de la cuenta y devuelve la cuenta ya actualizada.
+     * La fila queda bloqueada hasta el final de la transacción actual, por lo que la lectura
+     * posterior ve exactamente el saldo resultante de este movimiento.
+     *
+     * @throws CuentaNoEncontradaException si la cuenta no existe
+     * @throws SaldoNoDisponibleException si el saldo resultante sería negativo
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Cuenta aplicar(Long numeroCuenta, BigDecimal valor) {
+        ledgerService.exigirSuspendidas(List.of(numeroCuenta));
+        int actualizadas = cuentaRepository.incrementarSaldo(numeroCuenta, valor);
+        Cuenta cuenta = cuentaRepository.findById(numeroCuenta)
+                .orElseThrow(() -> new CuentaNoEncontradaException(numeroCuenta));
+        if (actualizadas == 0) {
+            throw new SaldoNoDisponibleException(numeroCuenta);
+        }
+        cuentaCache.invalidarCuenta(numeroCuenta);
+        reporteCache.invalidarCliente(cuenta.getClienteId());
+        return cuenta;
+    }
+
+    /**
+     * Edita un movimiento sin recorrer el historial de la cuenta: el saldo de los movimientos
+     * posteriores se desplaza con un UPDATE sobre el rango y la restricción de saldo no negativo
+     * se valida con un único MIN(saldo).
+     *
+     * @return vacío si el movimiento no existe
+     * @throws CuentaNoEncontradaException si la cuenta destino no existe
+     * @throws SaldoNoDisponibleException si algún saldo resultante sería negativo
+     * @throws ConcurrencyFailureException si el movimiento cambió mientras se bloqueaba su cuenta
+     *         o, con el ledger activo, si sus cuentas no están suspendidas
+     */
+    @Transactional
+    public Optional<Movimiento> actualizarMovimiento(Long id, Movimiento detalles) {
+        Optional<Movimiento> movimientoOptional = movimientoRepository.findById(id);
+        if (movimientoOptional.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Movimiento movimiento = movimientoOptional.get();
+        Long cuentaOrigen = movimiento.getCuenta().getNumeroCuenta();
+        Date fechaOrigen = movimiento.getFechaMovimiento();
+        BigDecimal valorOrigen = movimiento.getValor();
+
+        Long cuentaDestino = detalles.getCuenta() != null && detalles.getCuenta().getNumeroCuenta() != null
+                ? detalles.getCuenta().getNumeroCuenta() : cuentaOrigen;
+        Date fechaDestino = detalles.getFechaMovimiento() != null ? detalles.getFechaMovimiento() : fechaOrigen;
+        BigDecimal valorDestino = detalles.getValor() != null ? detalles.getValor() : valorOrigen;
+        ledgerService.exigirSuspendidas(List.of(cuentaOrigen, cuentaDestino));
+
+        if (cuentaDestino.equals(cuentaOrigen) && fechaDestino.getTime() == fechaOrigen.getTime()) {
+            BigDecimal delta = valorDestino.subtract(valorOrigen);
+            if (delta.signum() != 0) {
+                cambiarValor(movimiento, delta);
+            }
+        } else if (cuentaDestino.equals(cuentaOrigen)) {
+            moverEnLaCuenta(movimiento, fechaDestino, valorDestino);
+        } else {
+            moverMovimiento(movimiento, cuentaDestino, fechaDestino, valorDestino);
+        }
+
+        if (detalles.getTipoMovimiento() != null) {
+            movimiento.setTipoMovimiento(detalles.getTipoMovimiento());
+        }
+        return Optional.of(movimientoRepository.save(movimiento));
+    }
+
+    /**
+     * Mismo lugar en la historia, distinto valor: todo lo posterior se desplaza en delta.
+     */
+    private void cambiarValor(Movimiento movimiento, BigDecimal delta) {
+        Long numeroCuenta = movimiento.getCuenta().getNumeroCuenta();
+        Date fecha = movimiento.getFechaMovimiento();
+        BigDecimal valor = movimiento.getValor();
+
+        // Bloquea la cuenta y valida su saldo actual en una sola sentencia
+        if (cuentaRepository.incrementarSaldo(numeroCuenta, delta) == 0) {
+            throw new SaldoNoDisponibleException(numeroCuenta);
+        }
+        cuentaCache.invalidarCuenta(numeroCuenta);
+        releerSinCambios(movimiento, numeroCuenta, fecha, valor);
+        reporteCache.invalidarCliente(movimiento.getCuenta().getClienteId());
+
+        BigDecimal nuevoSaldo = movimiento.getSaldo().add(delta);
+        BigDecimal minimoPosterior = movimientoRepository.findSaldoMinimoPosterior(
+                numeroCuenta, fecha, movimiento.getNumeroMovimiento());
+        if (nuevoSaldo.signum() < 0 || (minimoPosterior != null && minimoPosterior.add(delta).signum() < 0)) {
+            throw new SaldoNoDisponibleException(numeroCuenta);
+        }
+
+        movimientoRepository.desplazarSaldosPosteriores(numeroCuenta, fecha, movimiento.getNumeroMovimiento(), delta);
+        saldoDiarioService.ajustar(numeroCuenta, fecha, valor, valor.add(delta));
+        movimiento.setValor(valor.add(delta));
+        movimiento.setSaldo(nuevoSaldo);
+    }
+
+    /**
+     * Cambio de fecha dentro de la misma cuenta: se valida y aplica el efecto neto de una vez.
+     * Los movimientos posteriores a ambas posiciones se desplazan en la diferencia de valor y
+     * solo los situados entre la posición antigua y la nueva ganan (hacia atrás) o pierden
+     * (hacia delante) el movimiento. Retirarlo y volver a insertarlo por separado rechazaría
+     * cambios válidos: un depósito del que depende un retiro posterior no puede retirarse
+     * aunque solo se mueva a una fecha anterior al retiro.
+     */
+    private void moverEnLaCuenta(Movimiento movimiento, Date fechaDestino, BigDecimal valorDestino) {
+        Long id = movimiento.getNumeroMovimiento();
+        Long numeroCuenta = movimiento.getCuenta().getNumeroCuenta();
+        Date fechaOrigen = movimiento.getFechaMovimiento();
+        BigDecimal valorOrigen = movimiento.getValor();
+        BigDecimal delta = valorDestino.subtract(valorOrigen);
+
+        // Bloquea la cuenta y valida su saldo final en una sola sentencia
+        if (cuentaRepository.incrementarSaldo(numeroCuenta, delta) == 0) {
+            throw new SaldoNoDisponibleException(numeroCuenta);
+        }
+        cuentaCache.invalidarCuenta(numeroCuenta);
+        releerSinCambios(movimiento, numeroCuenta, fechaOrigen, valorOrigen);
+        reporteCache.invalidarCliente(movimiento.getCuenta().getClienteId());
+
+        boolean haciaAtras = fechaDestino.before(fechaOrigen);
+        Date desde = haciaAtras ? fechaDestino : fechaOrigen;
+        Date hasta = haciaAtras ? fechaOrigen : fechaDestino;
+        BigDecimal desplazamiento = haciaAtras ? valorDestino : valorOrigen.negate();
+
+        // Saldo previo en la nueva posición: el previo en la antigua más (o menos) lo que hay entre ambas
+        BigDecimal sumaEntre = movimientoRepository.sumarValorEntrePosiciones(numeroCuenta, desde, hasta, id);
+        BigDecimal saldoPrevioOrigen = movimiento.getSaldo().subtract(valorOrigen);
+        BigDecimal saldoPrevio = haciaAtras ? saldoPrevioOrigen.subtract(sumaEntre) : saldoPrevioOrigen.add(sumaEntre);
+        BigDecimal nuevoSaldo = saldoPrevio.add(valorDestino);
+
+        BigDecimal minimoEntre = movimientoRepository.findSaldoMinimoEntre(numeroCuenta, desde, hasta, id);
+        BigDecimal minimoPosterior = movimientoRepository.findSaldoMinimoPosterior(numeroCuenta, hasta, id);
+        if (nuevoSaldo.signum() < 0
+                || (minimoEntre != null && minimoEntre.add(desplazamiento).signum() < 0)
+                || (minimoPosterior != null && minimoPosterior.add(delta).signum() < 0)) {
+            throw new SaldoNoDisponibleException(numeroCuenta);
+        }
+
+        movimientoRepository.desplazarSaldosEntre(numeroCuenta, desde, hasta, id, desplazamiento);
+        if (delta.signum() != 0) {
+            movimientoRepository.desplazarSaldosPosteriores(numeroCuenta, hasta, id, delta);
+        }
+        saldoDiarioService.revertir(numeroCuenta, fechaOrigen, valorOrigen);
+        saldoDiarioService.registrar(numeroCuenta, fechaDestino, saldoPrevio, valorDestino);
+
+        movimiento.setFechaMovimiento(fechaDestino);
+        movimiento.setValor(valorDestino);
+        movimiento.setSaldo(nuevoSaldo);
+    }
+
+    /**
+     * Cambio de cuenta (y quizá de fecha): se retira el movimiento de la cuenta origen y se
+     * inserta en la destino, desplazando en cada cuenta solo los movimientos posteriores.
+     */
+    private void moverMovimiento(Movimiento movimiento, Long cuentaDestino, Date fechaDestino, BigDecimal valorDestino) {
+        Long id = movimiento.getNumeroMovimiento();
+        Long cuentaOrigen = movimiento.getCuenta().getNumeroCuenta();
+        Date fechaOrigen = movimiento.getFechaMovimiento();
+        BigDecimal valorOrigen = movimiento.getValor();
+
+        // Bloquear las cuentas implicadas siempre en el mismo orden para evitar interbloqueos
+        Map<Long, Cuenta> cuentas = new HashMap<>();
+        for (Cuenta cuenta : cuentaRepository.findAllForUpdate(new TreeSet<>(List.of(cuentaOrigen, cuentaDestino)))) {
+            cuentas.put(cuenta.getNumeroCuenta(), cuenta);
+        }
+        Cuenta origen = cuentas.get(cuentaOrigen);
+        Cuenta destino = cuentas.get(cuentaDestino);
+        if (destino == null) {
+            throw new CuentaNoEncontradaException(cuentaDestino);
+        }
+        releerSinCambios(movimiento, cuentaOrigen, fechaOrigen, valorOrigen);
+        cuentaCache.invalidarCuenta(cuentaOrigen);
+        cuentaCache.invalidarCuenta(cuentaDestino);
+        reporteCache.invalidarCliente(origen.getClienteId());
+        reporteCache.invalidarCliente(destino.getClienteId());
+
+        // Retirar el movimiento de la cuenta origen
+        BigDecimal minimoPosterior = movimientoRepository.findSaldoMinimoPosterior(cuentaOrigen, fechaOrigen, id);
+        if (origen.getSaldoInicial().subtract(valorOrigen).signum() < 0
+                || (minimoPosterior != null && minimoPosterior.subtract(valorOrigen).signum() < 0)) {
+            throw new SaldoNoDisponibleException(cuentaOrigen);
+        }
+        movimientoRepository.desplazarSaldosPosteriores(cuentaOrigen, fechaOrigen, id, valorOrigen.negate());
+        origen.setSaldoInicial(origen.getSaldoInicial().subtract(valorOrigen));
+        saldoDiarioService.revertir(cuentaOrigen, fechaOrigen, valorOrigen);
+
+        // Insertarlo en su nueva posición: el saldo previo es el del movimiento anterior, o el
+        // previo al siguiente, o el de la cuenta si no tiene otros movimientos
+        BigDecimal saldoPrevio = movimientoRepository.findSaldoAnterior(cuentaDestino, fechaDestino, id)
+                .or(() -> movimientoRepository.findSaldoPrevioAlSiguiente(cuentaDestino, fechaDestino, id))
+                .orElse(destino.getSaldoInicial());
+        BigDecimal nuevoSaldo = saldoPrevio.add(valorDestino);
+        minimoPosterior = movimientoRepository.findSaldoMinimoPosterior(cuentaDestino, fechaDestino, id);
+        if (nuevoSaldo.signum() < 0
+                || destino.getSaldoInicial().add(valorDestino).signum() < 0
+                || (minimoPosterior != null && minimoPosterior.add(valorDestino).signum() < 0)) {
+            throw new SaldoNoDisponibleException(cuentaDestino);
+        }
+        movimientoRepository.desplazarSaldosPosteriores(cuentaDestino, fechaDestino, id, valorDestino);
+        destino.setSaldoInicial(destino.getSaldoInicial().add(valorDestino));
+        saldoDiarioService.registrar(cuentaDestino, fechaDestino, saldoPrevio, valorDestino);
+
+        movimiento.setCuenta(destino);
+        movimiento.setFechaMovimiento(fechaDestino);
+        movimiento.setValor(valorDestino);
+        movimiento.setSaldo(nuevoSaldo);
+    }
+
+    /**
+     * Relee el movimiento una vez bloqueada su cuenta; si otra edición lo cambió entre la
+     * primera lectura y el bloqueo, los cálculos ya no son válidos.
+     */
+    private void releerSinCambios(Movimiento movimiento, Long numeroCuenta, Date fecha, BigDecimal valor) {
+        entityManager.refresh(movimiento);
+        if (!movimiento.getCuenta().getNumeroCuenta().equals(numeroCuenta)
+                || movimiento.getFechaMovimiento().getTime() != fecha.getTime()
+                || movimiento.getValor().compareTo(valor) != 0) {
+            throw new ConcurrencyFailureException("El movimiento " + movimiento.getNumeroMovimiento() + " fue modificado concurrentemente");
+        }
+    }
+}
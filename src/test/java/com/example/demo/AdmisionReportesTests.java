@@ -0,0 +1,111 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+/**
+ * Límites de AdmisionReportes: por cliente (429) y global (503), sin pasar de la mitad del pool.
+ */
+class AdmisionReportesTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	// Pool de 8 conexiones: 4 plazas para reportes, como mucho 2 por cliente
+	private final AdmisionReportes admision = new AdmisionReportes(8, 0, 2, 0, meterRegistry);
+
+	@Test
+	void limitaLosReportesDeUnCliente() {
+		AdmisionReportes.Permiso primero = admision.adquirir("a", false);
+		admision.adquirir("a", false);
+
+		ReporteRechazadoException rechazo = catchThrowableOfType(ReporteRechazadoException.class,
+				() -> admision.adquirir("a", false));
+		assertThat(rechazo.getEstado()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+		assertThat(rechazo.getReintentarEnSegundos()).isPositive();
+
+		// Otro cliente sigue entrando y el primero vuelve a tener plaza al liberar una
+		admision.adquirir("b", false);
+		primero.close();
+		primero.close();
+		admision.adquirir("a", false);
+		assertThat(admision.getEnCurso()).isEqualTo(3);
+		assertThat(meterRegistry.counter(Metricas.REPORTES_ADMISION_RECHAZADOS, "motivo", "cliente").count()).isEqualTo(1);
+	}
+
+	@Test
+	void reservaElRestoDelPoolParaLasEscrituras() {
+		assertThat(admision.getLimite()).isEqualTo(4);
+		for (String cliente : new String[] {"a", "b", "c", "d"}) {
+			admision.adquirir(cliente, false);
+		}
+
+		ReporteRechazadoException rechazo = catchThrowableOfType(ReporteRechazadoException.class,
+				() -> admision.adquirir("e", false));
+		assertThat(rechazo.getEstado()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(meterRegistry.counter(Metricas.REPORTES_ADMISION_RECHAZADOS, "motivo", "global").count()).isEqualTo(1);
+	}
+
+	@Test
+	void elLimiteBajaCuandoCreceLaLatencia() {
+		// Pool de 20 conexiones: límite máximo 10, sin máximo por cliente que estorbe
+		AtomicLong reloj = new AtomicLong();
+		AdmisionReportes adaptativa = new AdmisionReportes(20, 0, 100, 0, new SimpleMeterRegistry(), reloj::get);
+
+		for (int i = 0; i < 20; i++) {
+			ronda(adaptativa, reloj, 10);
+		}
+		assertThat(adaptativa.getLimite()).isEqualTo(10);
+
+		// Los reportes pasan de 10 ms a 100 ms: las consultas hacen cola y el límite baja
+		for (int i = 0; i < 20; i++) {
+			ronda(adaptativa, reloj, 100);
+		}
+		assertThat(adaptativa.getLimite()).isLessThan(5);
+		for (int i = 0; i < (int) adaptativa.getLimite(); i++) {
+			adaptativa.adquirir("lleno-" + i, true);
+		}
+		ReporteRechazadoException rechazo = catchThrowableOfType(ReporteRechazadoException.class,
+				() -> adaptativa.adquirir("otro", true));
+		assertThat(rechazo.getEstado()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(rechazo.getReintentarEnSegundos()).isPositive();
+	}
+
+	@Test
+	void elLimiteSeRecuperaCuandoVuelveLaLatencia() {
+		AtomicLong reloj = new AtomicLong();
+		AdmisionReportes adaptativa = new AdmisionReportes(20, 0, 100, 0, new SimpleMeterRegistry(), reloj::get);
+		for (int i = 0; i < 20; i++) {
+			ronda(adaptativa, reloj, 10);
+		}
+		for (int i = 0; i < 20; i++) {
+			ronda(adaptativa, reloj, 100);
+		}
+		double reducido = adaptativa.getLimite();
+
+		for (int i = 0; i < 10; i++) {
+			ronda(adaptativa, reloj, 10);
+		}
+		assertThat(reducido).isLessThan(5);
+		assertThat(adaptativa.getLimite()).isEqualTo(10);
+	}
+
+	/** Ocupa todas las plazas del límite actual con reportes que tardan {@code milisegundos}. */
+	private static void ronda(AdmisionReportes admision, AtomicLong reloj, long milisegundos) {
+		List<AdmisionReportes.Permiso> permisos = new ArrayList<>();
+		for (int i = 0; i < (int) admision.getLimite(); i++) {
+			permisos.add(admision.adquirir("cliente-" + i, true));
+		}
+		reloj.addAndGet(TimeUnit.MILLISECONDS.toNanos(milisegundos));
+		permisos.forEach(AdmisionReportes.Permiso::close);
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recuperación del diario del ledger tras una caída: los registros confirmados se recuperan en
+ * orden y una escritura cortada al final se descarta.
+ */
+class DiarioLedgerTests {
+
+	@TempDir
+	Path directorio;
+
+	@Test
+	void recuperaLoConfirmadoYDescartaLaEscrituraCortada() throws Exception {
+		List<RegistroLedger> confirmados = new ArrayList<>();
+		try (DiarioLedger diario = new DiarioLedger(directorio, 1024 * 1024, 100)) {
+			diario.recuperar(0, r -> { });
+			diario.iniciar(confirmados::addAll);
+			List<CompletableFuture<RegistroLedger>> anotados = new ArrayList<>();
+			for (int i = 1; i <= 500; i++) {
+				anotados.add(diario.anotar(registro(i)));
+			}
+			anotados.forEach(CompletableFuture::join);
+		}
+		assertThat(confirmados).hasSize(500);
+
+		// Caída a mitad de escribir un registro
+		Path segmento = segmentos().get(0);
+		long tamano = Files.size(segmento);
+		Files.write(segmento, new byte[] {0, 0, 0, 60, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+		List<RegistroLedger> pendientes = new ArrayList<>();
+		try (DiarioLedger diario = new DiarioLedger(directorio, 1024 * 1024, 100)) {
+			diario.recuperar(200, pendientes::add);
+			assertThat(Files.size(segmento)).isEqualTo(tamano);
+
+			// Los lsn continúan tras el último recuperado
+			diario.iniciar(r -> { });
+			assertThat(diario.anotar(registro(501)).join().lsn()).isEqualTo(501);
+		}
+		assertThat(pendientes).extracting(RegistroLedger::lsn).containsExactlyElementsOf(
+				confirmados.subList(200, 500).stream().map(RegistroLedger::lsn).toList());
+		assertThat(pendientes.get(0)).isEqualTo(confirmados.get(200));
+	}
+
+	@Test
+	void rechazaLosRegistrosDemasiadoGrandesSinPerderLosSiguientes() throws Exception {
+		RegistroLedger grande = new RegistroLedger(0, 99, 1, "x".repeat(2000), 1_700_000_000_000L, "Depósito", 100, 100);
+		try (DiarioLedger diario = new DiarioLedger(directorio, 1024 * 1024, 100)) {
+			diario.recuperar(0, r -> { });
+			diario.iniciar(r -> { });
+			diario.anotar(registro(1)).join();
+			assertThat(diario.anotar(grande)).isCompletedExceptionally();
+			diario.anotar(registro(2)).join();
+			assertThat(diario.isFallido()).isFalse();
+		}
+
+		List<RegistroLedger> pendientes = new ArrayList<>();
+		try (DiarioLedger diario = new DiarioLedger(directorio, 1024 * 1024, 100)) {
+			diario.recuperar(0, pendientes::add);
+		}
+		assertThat(pendientes).extracting(RegistroLedger::numeroMovimiento).containsExactly(1L, 2L);
+	}
+
+	@Test
+	void continuaTrasLaPosicionVolcadaSinSegmentos() throws Exception {
+		try (DiarioLedger diario = new DiarioLedger(directorio, 1024 * 1024, 100)) {
+			diario.recuperar(200, r -> { });
+			diario.iniciar(r -> { });
+			assertThat(diario.anotar(registro(1)).join().lsn()).isEqualTo(201);
+		}
+	}
+
+	@Test
+	void liberaLosSegmentosYaVolcados() throws Exception {
+		try (DiarioLedger diario = new DiarioLedger(directorio, 512, 1)) {
+			diario.recuperar(0, r -> { });
+			diario.iniciar(r -> { });
+			for (int i = 1; i <= 50; i++) {
+				diario.anotar(registro(i)).join();
+			}
+			int antes = segmentos().size();
+			assertThat(antes).isGreaterThan(2);
+
+			diario.liberarHasta(50);
+			assertThat(segmentos()).hasSize(1);
+		}
+	}
+
+	private List<Path> segmentos() throws IOException {
+		try (Stream<Path> ficheros = Files.list(directorio)) {
+			return ficheros.sorted().toList();
+		}
+	}
+
+	private static RegistroLedger registro(long numero) {
+		return new RegistroLedger(0, numero, numero % 7, "cliente-" + (numero % 3), 1_700_000_000_000L + numero,
+				numero % 2 == 0 ? "Depósito" : "Retiro", numero % 2 == 0 ? 1250 : -730, 100_000 + numero);
+	}
+}
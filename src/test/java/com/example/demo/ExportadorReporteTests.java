@@ -0,0 +1,70 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Formato de la exportación NDJSON sobre H2: un objeto por línea, sin separadores entre ellos.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ExportadorReporteTests {
+
+	@Autowired
+	private ExportadorReporte exportadorReporte;
+
+	@Autowired
+	private SaldoService saldoService;
+
+	@Autowired
+	private CuentaRepository cuentaRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void unObjetoPorLinea() throws Exception {
+		String cliente = "exportacion-" + UUID.randomUUID();
+		Cuenta cuenta = cuentaRepository.save(new Cuenta(null, "Ahorros", new BigDecimal("0.00"), "Activa", cliente));
+		registrar(cuenta, "100.00");
+		registrar(cuenta, "-40.00");
+
+		LocalDate hoy = LocalDate.now();
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		exportadorReporte.exportar(cliente, RangoFechas.parse(hoy.minusDays(1) + "," + hoy.plusDays(1)), ExportadorReporte.NDJSON, salida);
+
+		String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+		assertThat(lineas).hasSize(3).allSatisfy(linea -> assertThat(linea).startsWith("{").endsWith("}"));
+		List<String> tipos = new ArrayList<>();
+		for (String linea : lineas) {
+			JsonNode objeto = objectMapper.readTree(linea);
+			tipos.add(objeto.get("tipo").asText());
+		}
+		assertThat(tipos).containsExactly("movimiento", "movimiento", "totalCuenta");
+	}
+
+	private void registrar(Cuenta cuenta, String valor) {
+		Cuenta referencia = new Cuenta();
+		referencia.setNumeroCuenta(cuenta.getNumeroCuenta());
+		Movimiento movimiento = new Movimiento();
+		movimiento.setTipoMovimiento(new BigDecimal(valor).signum() < 0 ? "Retiro" : "Depósito");
+		movimiento.setValor(new BigDecimal(valor));
+		movimiento.setCuenta(referencia);
+		saldoService.registrarMovimiento(movimiento);
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Negociación de Smile y CBOR en /reportes: cuerpos binarios solo si se piden en Accept, JSON por
+ * defecto y un ETag distinto por formato.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class FormatosBinariosTests {
+
+	private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private CuentaRepository cuentaRepository;
+
+	@Test
+	void jsonPorDefecto() throws Exception {
+		String cliente = cliente();
+
+		for (MockHttpServletRequestBuilder peticion : new MockHttpServletRequestBuilder[] {
+				reporte(cliente), reporte(cliente).accept(MediaType.ALL) }) {
+			MockHttpServletResponse respuesta = mockMvc.perform(peticion).andReturn().getResponse();
+			assertThat(respuesta.getStatus()).isEqualTo(200);
+			assertThat(MediaType.parseMediaType(respuesta.getContentType()).isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+			assertThat(respuesta.getContentAsString()).startsWith("{");
+		}
+	}
+
+	@Test
+	void smileYCborSiSePidenEnAccept() throws Exception {
+		String cliente = cliente();
+
+		MockHttpServletResponse smile = mockMvc.perform(reporte(cliente).accept(SMILE)).andReturn().getResponse();
+		assertThat(smile.getStatus()).isEqualTo(200);
+		assertThat(MediaType.parseMediaType(smile.getContentType()).isCompatibleWith(SMILE)).isTrue();
+		// Cabecera de Smile: ":)\n"
+		assertThat(new String(smile.getContentAsByteArray(), 0, 3, StandardCharsets.US_ASCII)).isEqualTo(":)\n");
+
+		MockHttpServletResponse cbor = mockMvc.perform(reporte(cliente).accept(MediaType.APPLICATION_CBOR)).andReturn().getResponse();
+		assertThat(cbor.getStatus()).isEqualTo(200);
+		assertThat(MediaType.parseMediaType(cbor.getContentType()).isCompatibleWith(MediaType.APPLICATION_CBOR)).isTrue();
+		// Tipo mayor 5 de CBOR: un mapa
+		assertThat(cbor.getContentAsByteArray()[0] & 0xE0).isEqualTo(0xA0);
+	}
+
+	@Test
+	void unEtagPorFormato() throws Exception {
+		String cliente = cliente();
+
+		String json = mockMvc.perform(reporte(cliente)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		String smile = mockMvc.perform(reporte(cliente).accept(SMILE)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		String cbor = mockMvc.perform(reporte(cliente).accept(MediaType.APPLICATION_CBOR)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(json).isNotEqualTo(smile).isNotEqualTo(cbor);
+		assertThat(smile).isNotEqualTo(cbor);
+
+		// El ETag del JSON no sirve para validar la copia en Smile, pero sí la del propio JSON
+		assertThat(mockMvc.perform(reporte(cliente).accept(SMILE).header(HttpHeaders.IF_NONE_MATCH, json))
+				.andReturn().getResponse().getStatus()).isEqualTo(200);
+		assertThat(mockMvc.perform(reporte(cliente).accept(SMILE).header(HttpHeaders.IF_NONE_MATCH, smile))
+				.andReturn().getResponse().getStatus()).isEqualTo(304);
+		assertThat(mockMvc.perform(reporte(cliente).header(HttpHeaders.IF_NONE_MATCH, json))
+				.andReturn().getResponse().getStatus()).isEqualTo(304);
+	}
+
+	/** Cliente con una cuenta, para que el reporte exista. */
+	private String cliente() {
+		String cliente = "formatos-" + UUID.randomUUID();
+		cuentaRepository.save(new Cuenta(null, "Ahorros", new BigDecimal("100.00"), "Activa", cliente));
+		return cliente;
+	}
+
+	private static MockHttpServletRequestBuilder reporte(String cliente) {
+		LocalDate hoy = LocalDate.now();
+		return get("/reportes").param("clienteId", cliente).param("fecha", hoy.minusDays(1) + "," + hoy.plusDays(1));
+	}
+
+}
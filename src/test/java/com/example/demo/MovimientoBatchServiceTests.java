@@ -0,0 +1,83 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Validación por elemento de POST /movimientos/batch sobre H2: los elementos que la tabla
+ * rechazaría se rechazan uno a uno y el resto del lote se guarda.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MovimientoBatchServiceTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private CuentaRepository cuentaRepository;
+
+	@Autowired
+	private MovimientoRepository movimientoRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void rechazaCadaElementoInvalidoSinFallarElLote() throws Exception {
+		Cuenta cuenta = cuentaRepository.save(new Cuenta(null, "Ahorros", new BigDecimal("100.00"), "Activa", "lote-" + UUID.randomUUID()));
+		long numeroCuenta = cuenta.getNumeroCuenta();
+		String lote = "[" + String.join(",",
+				movimiento(numeroCuenta, "\"Depósito\"", "10.00"),
+				movimiento(numeroCuenta, "null", "10.00"),
+				movimiento(numeroCuenta, "\"" + "x".repeat(Movimiento.MAXIMO_TIPO_MOVIMIENTO + 1) + "\"", "10.00"),
+				movimiento(numeroCuenta, "\"Depósito\"", "9999999999889.99"),
+				movimiento(numeroCuenta, "\"Depósito\"", "0.01"),
+				movimiento(numeroCuenta, "\"Retiro\"", "-10000000000000.00"),
+				movimiento(numeroCuenta, "\"Retiro\"", "-20.00")) + "]";
+
+		String respuesta = mockMvc.perform(post("/movimientos/batch").contentType(MediaType.APPLICATION_JSON).content(lote))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		List<String> resultados = new ArrayList<>();
+		for (JsonNode resultado : objectMapper.readTree(respuesta)) {
+			resultados.add(resultado.get("estado").asText() + (resultado.has("mensaje") ? " " + resultado.get("mensaje").asText() : ""));
+		}
+		// El cuarto deja el saldo en el máximo de NUMERIC(15,2): con el quinto lo superaría y el
+		// sexto no cabe en la columna valor
+		assertThat(resultados).containsExactly(
+				"ACEPTADO",
+				"RECHAZADO Tipo de movimiento inválido",
+				"RECHAZADO Tipo de movimiento inválido",
+				"ACEPTADO",
+				"RECHAZADO Valor inválido",
+				"RECHAZADO Valor inválido",
+				"ACEPTADO");
+		assertThat(cuentaRepository.findById(numeroCuenta).orElseThrow().getSaldoInicial()).isEqualByComparingTo("9999999999979.99");
+		assertThat(movimientoRepository.findAll().stream()
+				.filter(m -> m.getCuenta().getNumeroCuenta().equals(numeroCuenta))).hasSize(3);
+	}
+
+	private static String movimiento(long numeroCuenta, String tipoMovimiento, String valor) {
+		return "{\"cuenta\":{\"numeroCuenta\":" + numeroCuenta + "},\"tipoMovimiento\":" + tipoMovimiento + ",\"valor\":" + valor + "}";
+	}
+
+}
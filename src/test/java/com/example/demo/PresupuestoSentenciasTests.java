@@ -0,0 +1,242 @@
+package com.example.demo;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Presupuesto de sentencias SQL por endpoint, medido con las estadísticas de Hibernate sobre H2
+ * en modo PostgreSQL. Los endpoints que devuelven listas se miden con pocos y con muchos
+ * elementos: el número de sentencias no debe crecer con ellos (sin N+1).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PresupuestoSentenciasTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private CuentaRepository cuentaRepository;
+
+	@Autowired
+	private SaldoService saldoService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	/** Las sentencias JDBC no cuentan en las estadísticas de Hibernate: los lotes se cuentan aparte. */
+	@MockitoSpyBean
+	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+	@Test
+	void cuentas() throws Exception {
+		String cliente = cliente();
+		long crear = sentencias(post("/cuentas").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"tipoCuenta\":\"Ahorros\",\"saldoInicial\":100.00,\"estado\":\"Activa\",\"clienteId\":\"" + cliente + "\"}"),
+				status().isCreated());
+		// Secuencias de cuenta y outbox, INSERT de la cuenta y del evento del outbox
+		assertThat(crear).isLessThanOrEqualTo(4);
+
+		Cuenta cuenta = crearCuentas(cliente, 1).get(0);
+		assertThat(sentencias(get("/cuentas/{id}", cuenta.getNumeroCuenta()), status().isOk())).isLessThanOrEqualTo(1);
+		assertThat(sentencias(put("/cuentas/{id}", cuenta.getNumeroCuenta()).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"tipoCuenta\":\"Corriente\",\"saldoInicial\":100.00,\"estado\":\"Activa\"}"), status().isOk()))
+				.isLessThanOrEqualTo(3);
+		assertThat(sentencias(get("/cuentas/{id}/saldo", cuenta.getNumeroCuenta())
+				.param("at", LocalDateTime.now().toString()), status().isOk())).isLessThanOrEqualTo(3);
+	}
+
+	@Test
+	void altaMasivaDeCuentas() throws Exception {
+		// Secuencias (una cada 50 identificadores) y un lote de INSERT por tabla
+		assertThat(sentencias(loteCuentas(cliente(), 1), status().isOk())).isLessThanOrEqualTo(4);
+		assertThat(sentencias(loteCuentas(cliente(), 200), status().isOk())).isLessThanOrEqualTo(2 + 2 * 5);
+	}
+
+	@Test
+	void listasDeCuentasSinNMasUno() throws Exception {
+		String pocas = cliente();
+		String muchas = cliente();
+		crearCuentas(pocas, 1);
+		crearCuentas(muchas, 20);
+
+		for (String ruta : List.of("/cuentas?clienteId={c}", "/cuentas/cliente/{c}", "/cuentas/cliente/{c}/ids")) {
+			long conPocas = sentencias(get(ruta, pocas), status().isOk());
+			long conMuchas = sentencias(get(ruta, muchas), status().isOk());
+			assertThat(conPocas).as(ruta).isLessThanOrEqualTo(1);
+			assertThat(conMuchas).as(ruta).isEqualTo(conPocas);
+		}
+	}
+
+	@Test
+	void movimientos() throws Exception {
+		Cuenta cuenta = crearCuentas(cliente(), 1).get(0);
+		long crear = sentencias(post("/movimientos").contentType(MediaType.APPLICATION_JSON)
+				.content(movimientoJson(cuenta, "50.00")), status().isCreated());
+		assertThat(crear).isLessThanOrEqualTo(8);
+
+		Movimiento movimiento = saldoService.registrarMovimiento(movimiento(cuenta, "25.00"));
+		assertThat(sentencias(get("/movimientos/{id}", movimiento.getNumeroMovimiento()), status().isOk())).isLessThanOrEqualTo(1);
+		assertThat(sentencias(put("/movimientos/{id}", movimiento.getNumeroMovimiento()).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"valor\":30.00}"), status().isOk())).isLessThanOrEqualTo(10);
+	}
+
+	@Test
+	void listaDeMovimientosSinNMasUno() throws Exception {
+		String pocos = cliente();
+		String muchos = cliente();
+		for (Cuenta cuenta : crearCuentas(pocos, 1)) {
+			saldoService.registrarMovimiento(movimiento(cuenta, "10.00"));
+		}
+		// Cada movimiento en una cuenta distinta: una carga perezosa por cuenta sería visible
+		for (Cuenta cuenta : crearCuentas(muchos, 20)) {
+			saldoService.registrarMovimiento(movimiento(cuenta, "10.00"));
+		}
+
+		long conPocos = sentencias(get("/movimientos").param("clienteId", pocos), status().isOk());
+		long conMuchos = sentencias(get("/movimientos").param("clienteId", muchos), status().isOk());
+		assertThat(conPocos).isEqualTo(1);
+		assertThat(conMuchos).isEqualTo(conPocos);
+	}
+
+	@Test
+	void cargaMasiva() throws Exception {
+		List<Cuenta> una = crearCuentas(cliente(), 1);
+		List<Cuenta> diez = crearCuentas(cliente(), 10);
+
+		// Ni las sentencias ni los lotes de los resúmenes diarios (días nuevos y totales) dependen del lote
+		for (MockHttpServletRequestBuilder lote : List.of(lote(una, 10), lote(diez, 1))) {
+			clearInvocations(namedParameterJdbcTemplate);
+			assertThat(sentencias(lote, status().isOk())).isLessThanOrEqualTo(5);
+			verify(namedParameterJdbcTemplate, times(2)).batchUpdate(anyString(), any(SqlParameterSource[].class));
+		}
+	}
+
+	@Test
+	void reportes() throws Exception {
+		String pocas = cliente();
+		String muchas = cliente();
+		for (Cuenta cuenta : crearCuentas(pocas, 1)) {
+			saldoService.registrarMovimiento(movimiento(cuenta, "10.00"));
+		}
+		for (Cuenta cuenta : crearCuentas(muchas, 20)) {
+			saldoService.registrarMovimiento(movimiento(cuenta, "10.00"));
+			saldoService.registrarMovimiento(movimiento(cuenta, "-5.00"));
+		}
+
+		for (String detalle : List.of("true", "false")) {
+			long conPocas = sentencias(reporte(pocas).param("detalle", detalle), status().isOk());
+			long conMuchas = sentencias(reporte(muchas).param("detalle", detalle), status().isOk());
+			assertThat(conPocas).as("detalle=" + detalle).isEqualTo(1);
+			assertThat(conMuchas).as("detalle=" + detalle).isEqualTo(conPocas);
+		}
+
+		// Sin cambios desde el ETag recibido: 304 sin tocar la base de datos
+		String etag = mockMvc.perform(reporte(muchas)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(sentencias(reporte(muchas).header(HttpHeaders.IF_NONE_MATCH, etag), status().isNotModified())).isZero();
+
+		assertThat(sentencias(get("/reportes/export").param("clienteId", muchas).param("fecha", rango()), status().isOk()))
+				.isLessThanOrEqualTo(2);
+	}
+
+	private long sentencias(MockHttpServletRequestBuilder peticion, ResultMatcher esperado) throws Exception {
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estadisticas.clear();
+		MvcResult resultado = mockMvc.perform(peticion).andReturn();
+		if (resultado.getRequest().isAsyncStarted()) {
+			mockMvc.perform(asyncDispatch(resultado)).andExpect(esperado);
+		} else {
+			esperado.match(resultado);
+		}
+		return estadisticas.getPrepareStatementCount();
+	}
+
+	private List<Cuenta> crearCuentas(String cliente, int cantidad) {
+		List<Cuenta> cuentas = new ArrayList<>();
+		for (int i = 0; i < cantidad; i++) {
+			cuentas.add(cuentaRepository.save(new Cuenta(null, "Ahorros", new BigDecimal("500.00"), "Activa", cliente)));
+		}
+		return cuentas;
+	}
+
+	private MockHttpServletRequestBuilder lote(List<Cuenta> cuentas, int porCuenta) {
+		List<String> elementos = new ArrayList<>();
+		for (Cuenta cuenta : cuentas) {
+			for (int i = 0; i < porCuenta; i++) {
+				elementos.add(movimientoJson(cuenta, "1.00"));
+			}
+		}
+		return post("/movimientos/batch").contentType(MediaType.APPLICATION_JSON).content("[" + String.join(",", elementos) + "]");
+	}
+
+	private MockHttpServletRequestBuilder loteCuentas(String cliente, int cantidad) {
+		List<String> elementos = new ArrayList<>();
+		for (int i = 0; i < cantidad; i++) {
+			elementos.add("{\"tipoCuenta\":\"Ahorros\",\"saldoInicial\":100.00,\"estado\":\"Activa\",\"clienteId\":\"" + cliente + "\"}");
+		}
+		return post("/cuentas/batch").contentType(MediaType.APPLICATION_JSON).content("[" + String.join(",", elementos) + "]");
+	}
+
+	private MockHttpServletRequestBuilder reporte(String cliente) {
+		return get("/reportes").param("clienteId", cliente).param("fecha", rango());
+	}
+
+	private static String rango() {
+		LocalDate hoy = LocalDate.now();
+		return hoy.minusDays(1) + "," + hoy.plusDays(1);
+	}
+
+	private static String movimientoJson(Cuenta cuenta, String valor) {
+		return "{\"cuenta\":{\"numeroCuenta\":" + cuenta.getNumeroCuenta() + "},\"tipoMovimiento\":\"Depósito\",\"valor\":" + valor + "}";
+	}
+
+	private static Movimiento movimiento(Cuenta cuenta, String valor) {
+		Cuenta referencia = new Cuenta();
+		referencia.setNumeroCuenta(cuenta.getNumeroCuenta());
+		Movimiento movimiento = new Movimiento();
+		movimiento.setTipoMovimiento(new BigDecimal(valor).signum() < 0 ? "Retiro" : "Depósito");
+		movimiento.setValor(new BigDecimal(valor));
+		movimiento.setCuenta(referencia);
+		return movimiento;
+	}
+
+	private static String cliente() {
+		return "presupuesto-" + UUID.randomUUID();
+	}
+
+}
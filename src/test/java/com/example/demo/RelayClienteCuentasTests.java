@@ -0,0 +1,147 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Outbox de cliente_cuentas sobre H2 en modo PostgreSQL: el alta de cuentas escribe los eventos,
+ * el relay los publica y los borra, y tras un fallo del destino espera sin dejar de actualizar
+ * las métricas de lag.
+ *
+ * Base de datos propia y relay activo, pero sin ciclos programados (intervalo de una hora): cada
+ * prueba llama a {@link RelayClienteCuentas#vaciar} directamente.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:outbox;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+		"cuenta.outbox.relay.activo=true",
+		"cuenta.outbox.intervalo=1h",
+		"cuenta.outbox.espera-maxima=30s"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RelayClienteCuentasTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RelayClienteCuentas relay;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@MockitoSpyBean
+	private DestinoClienteCuenta destino;
+
+	@BeforeEach
+	void vaciarOutbox() {
+		doCallRealMethod().when(destino).publicar(anyList());
+		ReflectionTestUtils.setField(relay, "reintentarDespuesDe", 0L);
+		ReflectionTestUtils.setField(relay, "fallosSeguidos", 0);
+		relay.vaciar();
+		clearInvocations(destino);
+	}
+
+	@Test
+	void elAltaDeCuentasEscribeUnEventoPorCuenta() throws Exception {
+		String cliente = cliente();
+		crearCuenta(cliente);
+		mockMvc.perform(post("/cuentas/batch").contentType(MediaType.APPLICATION_JSON)
+				.content("[" + cuentaJson(cliente) + "," + cuentaJson(cliente) + "]"))
+				.andExpect(status().isOk());
+
+		assertThat(eventos(cliente)).isEqualTo(3);
+		assertThat(publicadas(cliente)).isZero();
+	}
+
+	@Test
+	void publicaYBorraLosEventos() throws Exception {
+		String cliente = cliente();
+		crearCuenta(cliente);
+		crearCuenta(cliente);
+		double antes = meterRegistry.counter("outbox.publicados").count();
+
+		relay.vaciar();
+
+		assertThat(eventos(cliente)).isZero();
+		assertThat(publicadas(cliente)).isEqualTo(2);
+		assertThat(meterRegistry.counter("outbox.publicados").count()).isEqualTo(antes + 2);
+		assertThat(meterRegistry.get("outbox.pendientes").gauge().value()).isZero();
+		assertThat(meterRegistry.get("outbox.lag").timeGauge().value()).isZero();
+	}
+
+	@Test
+	void esperaTrasUnFalloSinDejarDeMedirElLag() throws Exception {
+		String cliente = cliente();
+		crearCuenta(cliente);
+		double fallos = meterRegistry.counter("outbox.fallos").count();
+		doThrow(new IllegalStateException("destino caído")).when(destino).publicar(anyList());
+
+		// El lote vuelve al outbox y el siguiente intento se aplaza
+		relay.vaciar();
+		assertThat(eventos(cliente)).isEqualTo(1);
+		assertThat(meterRegistry.counter("outbox.fallos").count()).isEqualTo(fallos + 1);
+		assertThat(meterRegistry.get("outbox.pendientes").gauge().value()).isEqualTo(1);
+
+		// Durante la espera no se llama al destino, pero las métricas siguen al día
+		crearCuenta(cliente);
+		relay.vaciar();
+		verify(destino, times(1)).publicar(anyList());
+		assertThat(meterRegistry.get("outbox.pendientes").gauge().value()).isEqualTo(2);
+
+		// Pasada la espera se publica todo
+		doCallRealMethod().when(destino).publicar(anyList());
+		ReflectionTestUtils.setField(relay, "reintentarDespuesDe", 0L);
+		relay.vaciar();
+		assertThat(eventos(cliente)).isZero();
+		assertThat(publicadas(cliente)).isEqualTo(2);
+		assertThat(meterRegistry.get("outbox.pendientes").gauge().value()).isZero();
+	}
+
+	private void crearCuenta(String cliente) throws Exception {
+		mockMvc.perform(post("/cuentas").contentType(MediaType.APPLICATION_JSON).content(cuentaJson(cliente)))
+				.andExpect(status().isCreated());
+	}
+
+	private int eventos(String cliente) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_cliente_cuenta WHERE cliente_id = ?", Integer.class, cliente);
+	}
+
+	private int publicadas(String cliente) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cliente_cuentas WHERE cliente_id = ?", Integer.class, cliente);
+	}
+
+	private static String cuentaJson(String cliente) {
+		return "{\"tipoCuenta\":\"Ahorros\",\"saldoInicial\":100.00,\"estado\":\"Activa\",\"clienteId\":\"" + cliente + "\"}";
+	}
+
+	private static String cliente() {
+		return "outbox-" + UUID.randomUUID();
+	}
+
+}
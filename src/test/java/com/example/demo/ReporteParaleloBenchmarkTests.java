@@ -0,0 +1,122 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara el modelo bloqueante (pool fijo de hilos de plataforma como el de Tomcat, una
+ * consulta por reporte) con hilos virtuales y ensamblado por grupos de cuentas en paralelo.
+ * Imprime p99 y reportes/s de cada modo.
+ *
+ * Mide contra el PostgreSQL configurado y no forma parte de ./gradlew test: se ejecuta con
+ * ./gradlew benchmark. La equivalencia de los dos modos se comprueba en ReporteParaleloServiceTests.
+ */
+@SpringBootTest
+@Tag("benchmark")
+class ReporteParaleloBenchmarkTests {
+
+	private static final String CLIENTE = "reporte-paralelo";
+	private static final int CUENTAS = 40;
+	private static final int MOVIMIENTOS_POR_CUENTA = 50;
+	private static final int PETICIONES = 2000;
+	private static final int HILOS_TOMCAT = 200;
+
+	@Autowired
+	private ReporteService reporteService;
+
+	@Autowired
+	private ReporteParaleloService reporteParaleloService;
+
+	@Autowired
+	private CuentaRepository cuentaRepository;
+
+	@Autowired
+	private MovimientoRepository movimientoRepository;
+
+	private final List<Cuenta> cuentas = new ArrayList<>();
+
+	@AfterEach
+	void limpiar() {
+		for (Cuenta cuenta : cuentas) {
+			movimientoRepository.deleteAll(movimientoRepository.findByCuentaOrderByFechaMovimientoAsc(cuenta));
+			cuentaRepository.deleteById(cuenta.getNumeroCuenta());
+		}
+	}
+
+	@Test
+	void bloqueanteFrenteAHilosVirtuales() throws Exception {
+		crearCuentas();
+		Date inicio = new Date(System.currentTimeMillis() - 86_400_000L);
+		Date fin = new Date(System.currentTimeMillis() + 86_400_000L);
+
+		medir("bloqueante", Executors.newFixedThreadPool(HILOS_TOMCAT),
+				() -> reporteService.generarCuentas(CLIENTE, inicio, fin));
+		medir("hilos virtuales", Executors.newVirtualThreadPerTaskExecutor(),
+				() -> reporteParaleloService.generarCuentas(CLIENTE, inicio, fin));
+	}
+
+	private void medir(String modo, ExecutorService executor, Supplier<List<Map<String, Object>>> reporte) throws Exception {
+		long[] latencias = new long[PETICIONES];
+		CountDownLatch salida = new CountDownLatch(1);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < PETICIONES; i++) {
+			int indice = i;
+			tareas.add(executor.submit(() -> {
+				salida.await();
+				long t0 = System.nanoTime();
+				assertThat(reporte.get()).hasSize(CUENTAS);
+				latencias[indice] = System.nanoTime() - t0;
+				return null;
+			}));
+		}
+		long inicio = System.nanoTime();
+		salida.countDown();
+		for (Future<?> tarea : tareas) {
+			tarea.get();
+		}
+		long duracion = System.nanoTime() - inicio;
+		executor.shutdown();
+		assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+		Arrays.sort(latencias);
+		System.out.printf("Reportes %s: %d peticiones, p50 %.1f ms, p99 %.1f ms, %.0f reportes/s%n",
+				modo, PETICIONES,
+				latencias[PETICIONES / 2] / 1_000_000.0,
+				latencias[(int) (PETICIONES * 0.99)] / 1_000_000.0,
+				PETICIONES / (duracion / 1_000_000_000.0));
+	}
+
+	private void crearCuentas() {
+		for (int i = 0; i < CUENTAS; i++) {
+			Cuenta cuenta = cuentaRepository.save(new Cuenta(null, "Ahorros", new BigDecimal("0.00"), "Activa", CLIENTE));
+			List<Movimiento> movimientos = new ArrayList<>();
+			BigDecimal saldo = BigDecimal.ZERO;
+			for (int j = 0; j < MOVIMIENTOS_POR_CUENTA; j++) {
+				saldo = saldo.add(BigDecimal.TEN);
+				movimientos.add(new Movimiento(null, new Date(), "Depósito", BigDecimal.TEN, saldo, cuenta));
+			}
+			movimientoRepository.saveAll(movimientos);
+			cuenta.setSaldoInicial(saldo);
+			cuentas.add(cuentaRepository.save(cuenta));
+		}
+	}
+
+}
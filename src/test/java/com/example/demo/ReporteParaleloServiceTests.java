@@ -0,0 +1,68 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El ensamblado por grupos de cuentas en paralelo devuelve lo mismo, y en el mismo orden, que la
+ * consulta única de ReporteService, sobre H2 en modo PostgreSQL.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReporteParaleloServiceTests {
+
+	private static final int CUENTAS = 12;
+	private static final long DIA = 86_400_000L;
+
+	@Autowired
+	private ReporteService reporteService;
+
+	@Autowired
+	private ReporteParaleloService reporteParaleloService;
+
+	@Autowired
+	private CuentaRepository cuentaRepository;
+
+	@Autowired
+	private MovimientoRepository movimientoRepository;
+
+	@Test
+	void mismoReporteQueLaConsultaUnica() {
+		String cliente = "paralelo-" + UUID.randomUUID();
+		long ahora = System.currentTimeMillis();
+		for (int i = 0; i < CUENTAS; i++) {
+			Cuenta cuenta = cuentaRepository.save(new Cuenta(null, "Ahorros", new BigDecimal("0.00"), "Activa", cliente));
+			// Cada cuenta con un número distinto de movimientos (la primera sin ninguno) y uno fuera del rango
+			List<Movimiento> movimientos = new ArrayList<>();
+			BigDecimal saldo = BigDecimal.ZERO;
+			for (int j = 0; j < i; j++) {
+				BigDecimal valor = j % 3 == 2 ? new BigDecimal("-5.00") : BigDecimal.TEN;
+				saldo = saldo.add(valor);
+				movimientos.add(new Movimiento(null, new Date(ahora - j * 60_000L), valor.signum() < 0 ? "Retiro" : "Depósito", valor, saldo, cuenta));
+			}
+			movimientos.add(new Movimiento(null, new Date(ahora - 10 * DIA), "Depósito", BigDecimal.ONE, BigDecimal.ONE, cuenta));
+			movimientoRepository.saveAll(movimientos);
+		}
+		Date inicio = new Date(ahora - DIA);
+		Date fin = new Date(ahora + DIA);
+
+		List<Map<String, Object>> secuencial = reporteService.generarCuentas(cliente, inicio, fin);
+		List<Map<String, Object>> paralelo = reporteParaleloService.generarCuentas(cliente, inicio, fin);
+
+		assertThat(secuencial).hasSize(CUENTAS);
+		assertThat(paralelo).isEqualTo(secuencial);
+		assertThat(reporteParaleloService.generarCuentas("paralelo-sin-cuentas", inicio, fin)).isEmpty();
+	}
+
+}
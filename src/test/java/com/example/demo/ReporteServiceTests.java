@@ -0,0 +1,65 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reporte de ReporteService sobre H2 en modo PostgreSQL: una entrada por cuenta del cliente,
+ * también sin movimientos en el rango, con sus movimientos y totales. El número de sentencias
+ * se comprueba en PresupuestoSentenciasTests.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReporteServiceTests {
+
+	private static final long DIA = 86_400_000L;
+
+	@Autowired
+	private ReporteService reporteService;
+
+	@Autowired
+	private CuentaRepository cuentaRepository;
+
+	@Autowired
+	private MovimientoRepository movimientoRepository;
+
+	@Test
+	void totalesPorCuenta() {
+		String cliente = "reporte-" + UUID.randomUUID();
+		long ahora = System.currentTimeMillis();
+		Cuenta conMovimientos = cuentaRepository.save(new Cuenta(null, "Ahorros", new BigDecimal("60.00"), "Activa", cliente));
+		movimientoRepository.save(new Movimiento(null, new Date(ahora), "Depósito", new BigDecimal("100.00"), new BigDecimal("100.00"), conMovimientos));
+		movimientoRepository.save(new Movimiento(null, new Date(ahora), "Retiro", new BigDecimal("-40.00"), new BigDecimal("60.00"), conMovimientos));
+		// Fuera del rango: no cuenta en los totales
+		movimientoRepository.save(new Movimiento(null, new Date(ahora - 10 * DIA), "Depósito", BigDecimal.ONE, BigDecimal.ONE, conMovimientos));
+		Cuenta sinMovimientos = cuentaRepository.save(new Cuenta(null, "Corriente", new BigDecimal("5.00"), "Activa", cliente));
+
+		List<Map<String, Object>> reporte = reporteService.generarCuentas(cliente, new Date(ahora - DIA), new Date(ahora + DIA));
+
+		assertThat(reporte).hasSize(2);
+		Map<String, Object> primera = reporte.get(0);
+		assertThat(primera.get("numeroCuenta")).isEqualTo(conMovimientos.getNumeroCuenta());
+		assertThat((List<?>) primera.get("movimientos")).hasSize(2);
+		assertThat(primera.get("totalMovimientos")).isEqualTo(2);
+		assertThat((BigDecimal) primera.get("totalCreditos")).isEqualByComparingTo("100.00");
+		assertThat((BigDecimal) primera.get("totalDebitos")).isEqualByComparingTo("40.00");
+
+		Map<String, Object> segunda = reporte.get(1);
+		assertThat(segunda.get("numeroCuenta")).isEqualTo(sinMovimientos.getNumeroCuenta());
+		assertThat((List<?>) segunda.get("movimientos")).isEmpty();
+		assertThat(segunda.get("totalMovimientos")).isEqualTo(0);
+		assertThat((BigDecimal) segunda.get("totalCreditos")).isEqualByComparingTo("0.00");
+		assertThat((BigDecimal) segunda.get("totalDebitos")).isEqualByComparingTo("0.00");
+	}
+
+}
@@ -0,0 +1,256 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Resúmenes diarios sobre H2: mantenimiento incremental (días nuevos, desplazamiento de los
+ * posteriores, eliminación de los vacíos), también con movimientos con fecha pasada y por
+ * bloques, reconstrucción desde los movimientos y saldo en un instante a partir del resumen más
+ * cercano, y GET /cuentas/{id}/saldo tras sobrescribir el saldo con PUT /cuentas/{id}.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SaldoDiarioServiceTests {
+
+	private static final LocalDate DIA = LocalDate.of(2024, 5, 1);
+
+	@Autowired
+	private SaldoDiarioService saldoDiarioService;
+
+	@Autowired
+	private SaldoService saldoService;
+
+	@Autowired
+	private SaldoDiarioRepository saldoDiarioRepository;
+
+	@Autowired
+	private CuentaRepository cuentaRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void registrarDesplazaLosDiasPosteriores() {
+		Long cuenta = cuenta("0.00").getNumeroCuenta();
+		enTransaccion(() -> {
+			saldoDiarioService.registrar(cuenta, instante(0, 9), new BigDecimal("0.00"), new BigDecimal("100.00"));
+			saldoDiarioService.registrar(cuenta, instante(0, 15), new BigDecimal("100.00"), new BigDecimal("-30.00"));
+			saldoDiarioService.registrar(cuenta, instante(2, 10), new BigDecimal("70.00"), new BigDecimal("20.00"));
+		});
+		assertThat(resumenes(cuenta)).containsExactly(
+				"2024-05-01 0.00 70.00 30.00 100.00 2",
+				"2024-05-03 70.00 90.00 0.00 20.00 1");
+
+		// Un día nuevo entre los dos: abre con el cierre del anterior y desplaza el posterior
+		enTransaccion(() -> saldoDiarioService.registrar(cuenta, instante(1, 12), new BigDecimal("70.00"), new BigDecimal("10.00")));
+		assertThat(resumenes(cuenta)).containsExactly(
+				"2024-05-01 0.00 70.00 30.00 100.00 2",
+				"2024-05-02 70.00 80.00 0.00 10.00 1",
+				"2024-05-03 80.00 100.00 0.00 20.00 1");
+	}
+
+	@Test
+	void movimientosConFechaPasadaAbrenConElCierreDelDiaAnterior() {
+		Cuenta cuenta = cuenta("0.00");
+		Long numeroCuenta = cuenta.getNumeroCuenta();
+		registrar(cuenta, "100.00", instante(0, 9));
+		registrar(cuenta, "-30.00", instante(0, 15));
+		registrar(cuenta, "20.00", instante(2, 10));
+
+		// El saldo de la cuenta ya es 90: el día 2 abre con 70, no con 90
+		registrar(cuenta, "10.00", instante(1, 12));
+		// Anterior a todos los días con resumen: abre con la apertura del primero
+		registrar(cuenta, "5.00", instante(-1, 12));
+
+		List<String> esperados = List.of(
+				"2024-04-30 0.00 5.00 0.00 5.00 1",
+				"2024-05-01 5.00 75.00 30.00 100.00 2",
+				"2024-05-02 75.00 85.00 0.00 10.00 1",
+				"2024-05-03 85.00 105.00 0.00 20.00 1");
+		assertThat(resumenes(numeroCuenta)).isEqualTo(esperados);
+		assertThat(saldoAl(numeroCuenta, 1, 23)).isEqualByComparingTo("85.00");
+
+		// La reconstrucción desde los movimientos da lo mismo
+		saldoDiarioService.reconstruir(numeroCuenta);
+		assertThat(resumenes(numeroCuenta)).isEqualTo(esperados);
+	}
+
+	@Test
+	void registrarPorBloquesEnCualquierOrden() {
+		Long cuenta = cuenta("0.00").getNumeroCuenta();
+		// Como llegarían de una carga masiva: el segundo bloque es de un día anterior al primero
+		SaldoDiarioService.BloqueDiario tercerDia = new SaldoDiarioService.BloqueDiario(cuenta, DIA.plusDays(2), 0);
+		tercerDia.totales().agregar(1000);
+		tercerDia.totales().agregar(-300);
+		SaldoDiarioService.BloqueDiario primerDia = new SaldoDiarioService.BloqueDiario(cuenta, DIA, 700);
+		primerDia.totales().agregar(500);
+		enTransaccion(() -> saldoDiarioService.registrar(List.of(tercerDia, primerDia)));
+
+		assertThat(resumenes(cuenta)).containsExactly(
+				"2024-05-01 0.00 5.00 0.00 5.00 1",
+				"2024-05-03 5.00 12.00 3.00 10.00 2");
+	}
+
+	@Test
+	void revertirYAjustar() {
+		Long cuenta = cuenta("0.00").getNumeroCuenta();
+		enTransaccion(() -> {
+			saldoDiarioService.registrar(cuenta, instante(0, 9), new BigDecimal("0.00"), new BigDecimal("100.00"));
+			saldoDiarioService.registrar(cuenta, instante(0, 15), new BigDecimal("100.00"), new BigDecimal("-30.00"));
+			saldoDiarioService.registrar(cuenta, instante(1, 12), new BigDecimal("70.00"), new BigDecimal("10.00"));
+			saldoDiarioService.registrar(cuenta, instante(2, 10), new BigDecimal("80.00"), new BigDecimal("20.00"));
+		});
+
+		// El único movimiento del día: el resumen desaparece y los posteriores vuelven atrás
+		enTransaccion(() -> saldoDiarioService.revertir(cuenta, instante(1, 12), new BigDecimal("10.00")));
+		assertThat(resumenes(cuenta)).containsExactly(
+				"2024-05-01 0.00 70.00 30.00 100.00 2",
+				"2024-05-03 70.00 90.00 0.00 20.00 1");
+
+		// Uno de dos movimientos del día: el resumen se queda con el otro
+		enTransaccion(() -> saldoDiarioService.revertir(cuenta, instante(0, 9), new BigDecimal("100.00")));
+		assertThat(resumenes(cuenta)).containsExactly(
+				"2024-05-01 0.00 -30.00 30.00 0.00 1",
+				"2024-05-03 -30.00 -10.00 0.00 20.00 1");
+
+		// Un retiro que pasa a depósito: cambian los totales del día y el cierre en la diferencia
+		enTransaccion(() -> saldoDiarioService.ajustar(cuenta, instante(0, 15), new BigDecimal("-30.00"), new BigDecimal("45.00")));
+		assertThat(resumenes(cuenta)).containsExactly(
+				"2024-05-01 0.00 45.00 0.00 45.00 1",
+				"2024-05-03 45.00 65.00 0.00 20.00 1");
+	}
+
+	@Test
+	void reconstruirCalculaCadaDiaDesdeLosMovimientos() {
+		Cuenta cuenta = cuenta("10.00");
+		registrar(cuenta, "100.00", instante(0, 9));
+		registrar(cuenta, "-30.00", instante(0, 15));
+		registrar(cuenta, "20.00", instante(2, 10));
+		enTransaccion(() -> saldoDiarioRepository.eliminarCuenta(cuenta.getNumeroCuenta()));
+		assertThat(resumenes(cuenta.getNumeroCuenta())).isEmpty();
+
+		saldoDiarioService.reconstruir(cuenta.getNumeroCuenta());
+
+		assertThat(resumenes(cuenta.getNumeroCuenta())).containsExactly(
+				"2024-05-01 10.00 80.00 30.00 100.00 2",
+				"2024-05-03 80.00 100.00 0.00 20.00 1");
+	}
+
+	@Test
+	void saldoAlParteDelResumenMasCercano() {
+		Cuenta cuenta = cuenta("10.00");
+		Long numeroCuenta = cuenta.getNumeroCuenta();
+		registrar(cuenta, "100.00", instante(0, 9));
+		registrar(cuenta, "-30.00", instante(0, 15));
+		registrar(cuenta, "20.00", instante(2, 10));
+
+		// Antes del primer movimiento: la apertura del primer día con resumen
+		assertThat(saldoAl(numeroCuenta, -3, 12)).isEqualByComparingTo("10.00");
+		assertThat(saldoAl(numeroCuenta, 0, 8)).isEqualByComparingTo("10.00");
+		// Dentro de un día con resumen: su apertura más lo que llevan sus movimientos
+		assertThat(saldoAl(numeroCuenta, 0, 12)).isEqualByComparingTo("110.00");
+		assertThat(saldoAl(numeroCuenta, 0, 23)).isEqualByComparingTo("80.00");
+		// Un día sin resumen: el cierre del anterior
+		assertThat(saldoAl(numeroCuenta, 1, 12)).isEqualByComparingTo("80.00");
+		assertThat(saldoAl(numeroCuenta, 2, 9)).isEqualByComparingTo("80.00");
+		assertThat(saldoAl(numeroCuenta, 2, 11)).isEqualByComparingTo("100.00");
+		assertThat(saldoAl(numeroCuenta, 30, 12)).isEqualByComparingTo("100.00");
+	}
+
+	@Test
+	void saldoAlSinMovimientosOSinCuenta() {
+		Cuenta cuenta = cuenta("25.00");
+
+		assertThat(saldoDiarioService.saldoAl(cuenta.getNumeroCuenta(), instante(0, 12))).hasValueSatisfying(
+				saldo -> assertThat(saldo).isEqualByComparingTo("25.00"));
+		assertThat(saldoDiarioService.saldoAl(-1L, instante(0, 12))).isEmpty();
+	}
+
+	@Test
+	void saldoActualTrasSobrescribirloConPut() throws Exception {
+		Cuenta cuenta = cuenta("10.00");
+		Long numeroCuenta = cuenta.getNumeroCuenta();
+		registrar(cuenta, "100.00", instante(0, 9));
+
+		mockMvc.perform(put("/cuentas/{id}", numeroCuenta).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"tipoCuenta\":\"Ahorros\",\"saldoInicial\":250.00,\"estado\":\"Activa\"}"))
+				.andExpect(status().isOk());
+
+		// Sin at, el saldo de la cuenta; en el pasado, el que dan los movimientos
+		mockMvc.perform(get("/cuentas/{id}/saldo", numeroCuenta))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.saldo").value(250.00));
+		mockMvc.perform(get("/cuentas/{id}/saldo", numeroCuenta).param("at", DIA + "T12:00:00"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.saldo").value(110.00));
+		mockMvc.perform(get("/cuentas/{id}/saldo", -1L)).andExpect(status().isNotFound());
+	}
+
+	private BigDecimal saldoAl(Long numeroCuenta, int dias, int hora) {
+		return saldoDiarioService.saldoAl(numeroCuenta, instante(dias, hora)).orElseThrow();
+	}
+
+	/** Cada resumen como "fecha apertura cierre débitos créditos movimientos", por fecha. */
+	private List<String> resumenes(Long numeroCuenta) {
+		return saldoDiarioRepository.findAll().stream()
+				.filter(s -> s.getNumeroCuenta().equals(numeroCuenta))
+				.sorted((a, b) -> a.getFecha().compareTo(b.getFecha()))
+				.map(s -> s.getFecha() + " " + texto(s.getSaldoApertura()) + " " + texto(s.getSaldoCierre()) + " "
+						+ texto(s.getTotalDebitos()) + " " + texto(s.getTotalCreditos()) + " " + s.getTotalMovimientos())
+				.toList();
+	}
+
+	private void enTransaccion(Runnable operacion) {
+		transactionTemplate.executeWithoutResult(estado -> operacion.run());
+	}
+
+	private Cuenta cuenta(String saldo) {
+		return cuentaRepository.save(new Cuenta(null, "Ahorros", new BigDecimal(saldo), "Activa", "diario-" + UUID.randomUUID()));
+	}
+
+	private void registrar(Cuenta cuenta, String valor, Date fecha) {
+		Cuenta referencia = new Cuenta();
+		referencia.setNumeroCuenta(cuenta.getNumeroCuenta());
+		Movimiento movimiento = new Movimiento();
+		movimiento.setTipoMovimiento(new BigDecimal(valor).signum() < 0 ? "Retiro" : "Depósito");
+		movimiento.setValor(new BigDecimal(valor));
+		movimiento.setFechaMovimiento(fecha);
+		movimiento.setCuenta(referencia);
+		saldoService.registrarMovimiento(movimiento);
+	}
+
+	private static String texto(BigDecimal valor) {
+		return valor.setScale(2).toPlainString();
+	}
+
+	private static Date instante(int dias, int hora) {
+		return Date.from(LocalDateTime.of(DIA.plusDays(dias), LocalTime.of(hora, 0)).atZone(ZoneId.systemDefault()).toInstant());
+	}
+
+}
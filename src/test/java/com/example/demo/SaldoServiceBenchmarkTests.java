@@ -0,0 +1,112 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Movimientos por segundo de SaldoService.registrarMovimiento con 64 hilos sobre una misma
+ * cuenta, el caso de contención del UPDATE condicional del saldo. Imprime p50, p99 y
+ * movimientos/s tras una ronda de calentamiento.
+ *
+ * Mide contra el PostgreSQL configurado y no forma parte de ./gradlew test: se ejecuta con
+ * ./gradlew benchmark. La corrección con concurrencia se comprueba en SaldoServiceConcurrenciaTests.
+ */
+@SpringBootTest
+@Tag("benchmark")
+class SaldoServiceBenchmarkTests {
+
+	private static final int HILOS = 64;
+	private static final int MOVIMIENTOS_POR_HILO = 200;
+
+	@Autowired
+	private SaldoService saldoService;
+
+	@Autowired
+	private CuentaRepository cuentaRepository;
+
+	@Autowired
+	private MovimientoRepository movimientoRepository;
+
+	private Cuenta cuenta;
+
+	@AfterEach
+	void limpiar() {
+		if (cuenta != null) {
+			movimientoRepository.deleteAll(movimientoRepository.findByCuentaOrderByFechaMovimientoAsc(cuenta));
+			cuentaRepository.deleteById(cuenta.getNumeroCuenta());
+		}
+	}
+
+	@Test
+	void sesentaYCuatroHilosSobreUnaCuenta() throws Exception {
+		cuenta = cuentaRepository.save(new Cuenta(null, "Ahorros", new BigDecimal("0.00"), "Activa", "benchmark-saldo"));
+
+		medir("calentamiento");
+		medir("medición");
+
+		int total = 2 * HILOS * MOVIMIENTOS_POR_HILO;
+		assertThat(cuentaRepository.findById(cuenta.getNumeroCuenta()).orElseThrow().getSaldoInicial())
+				.isEqualByComparingTo(BigDecimal.valueOf(total));
+	}
+
+	private void medir(String ronda) throws Exception {
+		int total = HILOS * MOVIMIENTOS_POR_HILO;
+		long[] latencias = new long[total];
+		ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch salida = new CountDownLatch(1);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < HILOS; i++) {
+			int hilo = i;
+			tareas.add(executor.submit(() -> {
+				salida.await();
+				for (int j = 0; j < MOVIMIENTOS_POR_HILO; j++) {
+					long t0 = System.nanoTime();
+					saldoService.registrarMovimiento(deposito());
+					latencias[hilo * MOVIMIENTOS_POR_HILO + j] = System.nanoTime() - t0;
+				}
+				return null;
+			}));
+		}
+		long inicio = System.nanoTime();
+		salida.countDown();
+		for (Future<?> tarea : tareas) {
+			tarea.get();
+		}
+		long duracion = System.nanoTime() - inicio;
+		executor.shutdown();
+		assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+		Arrays.sort(latencias);
+		System.out.printf("registrarMovimiento (%s): %d hilos, %d movimientos, p50 %.1f ms, p99 %.1f ms, %.0f movimientos/s%n",
+				ronda, HILOS, total,
+				latencias[total / 2] / 1_000_000.0,
+				latencias[(int) (total * 0.99)] / 1_000_000.0,
+				total / (duracion / 1_000_000_000.0));
+	}
+
+	private Movimiento deposito() {
+		Cuenta referencia = new Cuenta();
+		referencia.setNumeroCuenta(cuenta.getNumeroCuenta());
+		Movimiento movimiento = new Movimiento();
+		movimiento.setTipoMovimiento("Depósito");
+		movimiento.setValor(BigDecimal.ONE);
+		movimiento.setCuenta(referencia);
+		return movimiento;
+	}
+
+}
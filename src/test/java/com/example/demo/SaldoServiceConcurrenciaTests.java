@@ -0,0 +1,118 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Depósitos y retiros concurrentes sobre una misma cuenta, contra H2 en modo PostgreSQL: no se
+ * pierden actualizaciones ni se retira más de lo disponible.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SaldoServiceConcurrenciaTests {
+
+	private static final int HILOS = 64;
+	private static final int MOVIMIENTOS_POR_HILO = 50;
+
+	@Autowired
+	private SaldoService saldoService;
+
+	@Autowired
+	private CuentaRepository cuentaRepository;
+
+	@Autowired
+	private MovimientoRepository movimientoRepository;
+
+	private Cuenta cuenta;
+
+	@AfterEach
+	void limpiar() {
+		if (cuenta != null) {
+			movimientoRepository.deleteAll(movimientoRepository.findByCuentaOrderByFechaMovimientoAsc(cuenta));
+			cuentaRepository.deleteById(cuenta.getNumeroCuenta());
+		}
+	}
+
+	@Test
+	void depositosYRetirosConcurrentesNoPierdenActualizaciones() throws Exception {
+		cuenta = cuentaRepository.save(new Cuenta(null, "Ahorros", new BigDecimal("0.00"), "Activa", "concurrencia"));
+
+		// Fase 1: 64 hilos depositan 1.00 sobre la misma cuenta
+		AtomicInteger aceptados = new AtomicInteger();
+		ejecutarConcurrente(() -> {
+			saldoService.registrarMovimiento(movimiento(new BigDecimal("1.00")));
+			aceptados.incrementAndGet();
+		});
+
+		int total = HILOS * MOVIMIENTOS_POR_HILO;
+		assertThat(aceptados.get()).isEqualTo(total);
+		assertThat(saldoActual()).isEqualByComparingTo(BigDecimal.valueOf(total));
+
+		// Fase 2: se intenta retirar el doble del saldo; solo pasan los que caben en él
+		AtomicInteger rechazados = new AtomicInteger();
+		aceptados.set(0);
+		ejecutarConcurrente(() -> {
+			try {
+				saldoService.registrarMovimiento(movimiento(new BigDecimal("-2.00")));
+				aceptados.incrementAndGet();
+			} catch (SaldoNoDisponibleException e) {
+				rechazados.incrementAndGet();
+			}
+		});
+
+		assertThat(aceptados.get()).isEqualTo(total / 2);
+		assertThat(rechazados.get()).isEqualTo(total / 2);
+		assertThat(saldoActual()).isEqualByComparingTo(BigDecimal.ZERO);
+	}
+
+	private void ejecutarConcurrente(Runnable operacion) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch salida = new CountDownLatch(1);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < HILOS; i++) {
+			tareas.add(executor.submit(() -> {
+				salida.await();
+				for (int j = 0; j < MOVIMIENTOS_POR_HILO; j++) {
+					operacion.run();
+				}
+				return null;
+			}));
+		}
+		salida.countDown();
+		for (Future<?> tarea : tareas) {
+			tarea.get();
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+	}
+
+	private Movimiento movimiento(BigDecimal valor) {
+		Cuenta referencia = new Cuenta();
+		referencia.setNumeroCuenta(cuenta.getNumeroCuenta());
+		Movimiento movimiento = new Movimiento();
+		movimiento.setTipoMovimiento(valor.signum() < 0 ? "Retiro" : "Depósito");
+		movimiento.setValor(valor);
+		movimiento.setCuenta(referencia);
+		return movimiento;
+	}
+
+	private BigDecimal saldoActual() {
+		return cuentaRepository.findById(cuenta.getNumeroCuenta()).orElseThrow().getSaldoInicial();
+	}
+
+}
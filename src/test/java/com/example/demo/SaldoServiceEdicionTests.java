@@ -0,0 +1,212 @@
+package com.example.demo;
+
+import org.assertj.core.api.recursive.comparison.RecursiveComparisonConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Edición incremental de movimientos sobre H2: cambio de valor, cambio de fecha dentro de la
+ * cuenta y cambio de cuenta. Tras cada edición los saldos de los movimientos y los resúmenes
+ * diarios deben coincidir con los recalculados desde cero.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SaldoServiceEdicionTests {
+
+	private static final LocalDateTime DIA = LocalDateTime.of(2024, 3, 10, 9, 0);
+
+	@Autowired
+	private SaldoService saldoService;
+
+	@Autowired
+	private SaldoDiarioService saldoDiarioService;
+
+	@Autowired
+	private CuentaRepository cuentaRepository;
+
+	@Autowired
+	private MovimientoRepository movimientoRepository;
+
+	@Autowired
+	private SaldoDiarioRepository saldoDiarioRepository;
+
+	@Test
+	void cambiaElValorYDesplazaLosPosteriores() {
+		Cuenta cuenta = cuenta("0.00");
+		Movimiento deposito = registrar(cuenta, "100.00", 1);
+		registrar(cuenta, "-30.00", 2);
+		registrar(cuenta, "20.00", 26);
+
+		saldoService.actualizarMovimiento(deposito.getNumeroMovimiento(), cambio(null, "150.00"));
+
+		assertThat(saldos(cuenta)).containsExactly("150.00", "120.00", "140.00");
+		assertThat(saldo(cuenta)).isEqualByComparingTo("140.00");
+		assertConsistente(cuenta);
+	}
+
+	@Test
+	void rechazaElCambioDeValorQueDejaUnSaldoPosteriorNegativo() {
+		Cuenta cuenta = cuenta("0.00");
+		Movimiento deposito = registrar(cuenta, "100.00", 1);
+		registrar(cuenta, "-80.00", 2);
+		registrar(cuenta, "50.00", 3);
+
+		assertThatThrownBy(() -> saldoService.actualizarMovimiento(deposito.getNumeroMovimiento(), cambio(null, "60.00")))
+				.isInstanceOf(SaldoNoDisponibleException.class);
+		assertThat(saldos(cuenta)).containsExactly("100.00", "20.00", "70.00");
+		assertThat(saldo(cuenta)).isEqualByComparingTo("70.00");
+	}
+
+	@Test
+	void mueveUnDepositoDelQueDependeUnRetiroPosterior() {
+		// Retirar el depósito por separado dejaría el retiro en negativo, aunque sigue antes que él
+		Cuenta cuenta = cuenta("0.00");
+		Movimiento deposito = registrar(cuenta, "100.00", 1);
+		registrar(cuenta, "-100.00", 3);
+
+		saldoService.actualizarMovimiento(deposito.getNumeroMovimiento(), cambio(2, null));
+
+		assertThat(saldos(cuenta)).containsExactly("100.00", "0.00");
+		assertThat(saldo(cuenta)).isEqualByComparingTo("0.00");
+		assertConsistente(cuenta);
+	}
+
+	@Test
+	void rechazaMoverUnDepositoTrasElRetiroQueLoNecesita() {
+		Cuenta cuenta = cuenta("0.00");
+		Movimiento deposito = registrar(cuenta, "100.00", 1);
+		registrar(cuenta, "-100.00", 3);
+
+		assertThatThrownBy(() -> saldoService.actualizarMovimiento(deposito.getNumeroMovimiento(), cambio(4, null)))
+				.isInstanceOf(SaldoNoDisponibleException.class);
+		assertThat(saldos(cuenta)).containsExactly("100.00", "0.00");
+		assertConsistente(cuenta);
+	}
+
+	@Test
+	void mueveHaciaDelanteCambiandoElValor() {
+		Cuenta cuenta = cuenta("10.00");
+		registrar(cuenta, "50.00", 1);
+		registrar(cuenta, "-20.00", 2);
+		Movimiento tercero = registrar(cuenta, "5.00", 3);
+		registrar(cuenta, "-40.00", 27);
+		registrar(cuenta, "15.00", 50);
+
+		// Hacia delante, a otro día: los intermedios pierden el valor antiguo y los posteriores cambian en la diferencia
+		saldoService.actualizarMovimiento(tercero.getNumeroMovimiento(), cambio(28, "8.00"));
+
+		assertThat(saldos(cuenta)).containsExactly("60.00", "40.00", "0.00", "8.00", "23.00");
+		assertThat(saldo(cuenta)).isEqualByComparingTo("23.00");
+		assertConsistente(cuenta);
+	}
+
+	@Test
+	void mueveHaciaAtrasCambiandoElValor() {
+		Cuenta cuenta = cuenta("10.00");
+		registrar(cuenta, "50.00", 1);
+		registrar(cuenta, "-20.00", 2);
+		Movimiento tercero = registrar(cuenta, "5.00", 26);
+		registrar(cuenta, "-40.00", 27);
+
+		// Hacia atrás, a otro día: los intermedios ganan el nuevo valor
+		saldoService.actualizarMovimiento(tercero.getNumeroMovimiento(), cambio(0, "8.00"));
+
+		assertThat(saldos(cuenta)).containsExactly("18.00", "68.00", "48.00", "8.00");
+		assertThat(saldo(cuenta)).isEqualByComparingTo("8.00");
+		assertConsistente(cuenta);
+	}
+
+	@Test
+	void mueveAOtraCuenta() {
+		Cuenta origen = cuenta("0.00");
+		Cuenta destino = cuenta("5.00");
+		registrar(origen, "40.00", 1);
+		Movimiento movido = registrar(origen, "60.00", 2);
+		registrar(destino, "10.00", 3);
+
+		Movimiento detalles = cambio(2, null);
+		detalles.setCuenta(referencia(destino));
+		saldoService.actualizarMovimiento(movido.getNumeroMovimiento(), detalles);
+
+		assertThat(saldos(origen)).containsExactly("40.00");
+		assertThat(saldos(destino)).containsExactly("65.00", "75.00");
+		assertThat(saldo(origen)).isEqualByComparingTo("40.00");
+		assertThat(saldo(destino)).isEqualByComparingTo("75.00");
+		assertConsistente(origen);
+		assertConsistente(destino);
+	}
+
+	/** Los resúmenes diarios mantenidos de forma incremental coinciden con los reconstruidos. */
+	private void assertConsistente(Cuenta cuenta) {
+		List<SaldoDiario> incrementales = resumenes(cuenta);
+		saldoDiarioService.reconstruir(cuenta.getNumeroCuenta());
+		assertThat(incrementales)
+				.usingRecursiveFieldByFieldElementComparator(RecursiveComparisonConfiguration.builder()
+						.withComparatorForType(BigDecimal::compareTo, BigDecimal.class).build())
+				.containsExactlyElementsOf(resumenes(cuenta));
+	}
+
+	private List<SaldoDiario> resumenes(Cuenta cuenta) {
+		return saldoDiarioRepository.findAll().stream()
+				.filter(s -> s.getNumeroCuenta().equals(cuenta.getNumeroCuenta()))
+				.sorted((a, b) -> a.getFecha().compareTo(b.getFecha()))
+				.toList();
+	}
+
+	private List<String> saldos(Cuenta cuenta) {
+		return movimientoRepository.findByCuentaOrderByFechaMovimientoAsc(cuenta).stream()
+				.map(m -> m.getSaldo().setScale(2).toPlainString())
+				.toList();
+	}
+
+	private BigDecimal saldo(Cuenta cuenta) {
+		return cuentaRepository.findById(cuenta.getNumeroCuenta()).orElseThrow().getSaldoInicial();
+	}
+
+	private Cuenta cuenta(String saldo) {
+		return cuentaRepository.save(new Cuenta(null, "Ahorros", new BigDecimal(saldo), "Activa", "edicion-" + UUID.randomUUID()));
+	}
+
+	/** Movimiento a las {@code horas} horas de DIA; se registran en orden cronológico. */
+	private Movimiento registrar(Cuenta cuenta, String valor, int horas) {
+		Movimiento movimiento = new Movimiento();
+		movimiento.setTipoMovimiento(new BigDecimal(valor).signum() < 0 ? "Retiro" : "Depósito");
+		movimiento.setValor(new BigDecimal(valor));
+		movimiento.setFechaMovimiento(fecha(horas));
+		movimiento.setCuenta(referencia(cuenta));
+		return saldoService.registrarMovimiento(movimiento);
+	}
+
+	private static Movimiento cambio(Integer horas, String valor) {
+		Movimiento detalles = new Movimiento();
+		if (horas != null) {
+			detalles.setFechaMovimiento(fecha(horas));
+		}
+		if (valor != null) {
+			detalles.setValor(new BigDecimal(valor));
+		}
+		return detalles;
+	}
+
+	private static Cuenta referencia(Cuenta cuenta) {
+		Cuenta referencia = new Cuenta();
+		referencia.setNumeroCuenta(cuenta.getNumeroCuenta());
+		return referencia;
+	}
+
+	private static Date fecha(int horas) {
+		return Date.from(DIA.plusHours(horas).atZone(ZoneId.systemDefault()).toInstant());
+	}
+}
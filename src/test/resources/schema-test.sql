@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS cliente_cuentas (
+    cliente_id VARCHAR(50),
+    cuenta_id BIGINT,
+    PRIMARY KEY (cliente_id, cuenta_id)
+);